@@ -0,0 +1,326 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Holds received events while the app is in the background, so nothing is converted or pushed to
+// a paused WebView. Events stay raw in memory up to maxMemoryEvents; later ones are appended to a
+// log file as one JSON line each ({"seq","event","channel","data"}). Coalesced events only keep
+// their latest value. On resume the events are handed back in sequence order. The log is opened
+// for writing once per pause and stays open while the replay reads it back, since events arriving
+// during the replay are appended behind it.
+class BackgroundBuffer {
+    private static final String TAG = "CapacitorSignalR";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static final class Event {
+        final long seq;
+        final String eventName;
+        final String channel;
+        final Object data;
+
+        Event(long seq, String eventName, String channel, Object data) {
+            this.seq = seq;
+            this.eventName = eventName;
+            this.channel = channel;
+            this.data = data;
+        }
+    }
+
+    private final int maxMemoryEvents;
+    private final int maxEvents;
+    private final boolean coalesceAll;
+    private final Set<String> coalescedEvents;
+    private final File spillFile;
+
+    private final ArrayDeque<Event> memory = new ArrayDeque<>();
+    // Latest value per coalesced event, in the order of their last arrival
+    private final LinkedHashMap<String, Event> latest = new LinkedHashMap<>();
+    private Writer spillWriter;
+    private BufferedReader spillReader;
+    private Event spillPending;
+    private int spilled;
+    private long spilledTotal;
+    // Events are held while paused; pauseRequested is cleared on resume, paused once the replay has caught up
+    private boolean paused;
+    private boolean pauseRequested;
+    private long dropped;
+    private long coalesced;
+    private long firstSeq = -1;
+    private long lastSeq = -1;
+
+    BackgroundBuffer(int maxMemoryEvents, int maxEvents, boolean coalesceAll, Set<String> coalescedEvents, File spillFile) {
+        this.maxMemoryEvents = Math.max(0, maxMemoryEvents);
+        this.maxEvents = Math.max(this.maxMemoryEvents, maxEvents);
+        this.coalesceAll = coalesceAll;
+        this.coalescedEvents = coalescedEvents;
+        this.spillFile = spillFile;
+    }
+
+    // Parses the "background" option of create(), e.g. true or { maxMemoryEvents: 500, coalesce: ['Ticker'] }.
+    // Returns null when the option is missing or false, as buffering is opt-in.
+    static BackgroundBuffer fromOptions(Object option, File spillFile) {
+        if (option == null || Boolean.FALSE.equals(option)) return null;
+
+        int maxMemoryEvents = 1000;
+        int maxEvents = 10000;
+        boolean coalesceAll = false;
+        Set<String> coalescedEvents = new HashSet<>();
+        if (option instanceof JSONObject) {
+            JSONObject options = (JSONObject) option;
+            maxMemoryEvents = options.optInt("maxMemoryEvents", maxMemoryEvents);
+            maxEvents = options.optInt("maxEvents", maxEvents);
+            Object coalesce = options.opt("coalesce");
+            if (Boolean.TRUE.equals(coalesce)) {
+                coalesceAll = true;
+            } else if (coalesce instanceof JSONArray) {
+                JSONArray names = (JSONArray) coalesce;
+                for (int i = 0; i < names.length(); i++) {
+                    coalescedEvents.add(names.optString(i));
+                }
+            }
+            if (!options.optBoolean("spill", true)) {
+                spillFile = null;
+            }
+        }
+        return new BackgroundBuffer(maxMemoryEvents, maxEvents, coalesceAll, coalescedEvents, spillFile);
+    }
+
+    synchronized void pause() {
+        paused = true;
+        pauseRequested = true;
+    }
+
+    // Buffers the event while paused; returns false when it should be delivered right away
+    synchronized boolean offer(long seq, String eventName, String channel, Object data) {
+        if (!paused) return false;
+
+        Event event = new Event(seq, eventName, channel, data);
+        if (firstSeq < 0) {
+            firstSeq = seq;
+        }
+        lastSeq = seq;
+
+        if (coalesceAll || coalescedEvents.contains(eventName)) {
+            if (latest.remove(eventName) != null) {
+                coalesced++;
+            }
+            latest.put(eventName, event);
+            return true;
+        }
+
+        if (size() >= maxEvents) {
+            dropped++;
+        } else if (spillFile == null || memory.size() < maxMemoryEvents && spilled == 0) {
+            // Once events went to the file, later ones follow them there to keep the order
+            memory.addLast(event);
+        } else if (!spill(event)) {
+            dropped++;
+        }
+        return true;
+    }
+
+    // Takes up to max buffered events in sequence order. Once nothing is left the buffer is
+    // unpaused atomically, so events arriving during replay queue up behind it instead of
+    // overtaking it. Returns an empty list when done.
+    synchronized List<Event> drain(int max) {
+        List<Event> batch = new ArrayList<>();
+        if (pauseRequested) {
+            // Paused again before the replay finished; the next resume picks up from here
+            return batch;
+        }
+        while (batch.size() < max) {
+            Event ordered = peekOrdered();
+            Event latestEvent = latest.isEmpty() ? null : latest.values().iterator().next();
+            if (ordered == null && latestEvent == null) break;
+
+            if (latestEvent == null || ordered != null && ordered.seq < latestEvent.seq) {
+                batch.add(pollOrdered());
+            } else {
+                latest.remove(latestEvent.eventName);
+                batch.add(latestEvent);
+            }
+        }
+        if (batch.isEmpty()) {
+            paused = false;
+            clearSpill();
+        }
+        return batch;
+    }
+
+    synchronized boolean isPaused() {
+        return paused;
+    }
+
+    // Ends the pause and returns its summary, after which the counters start over. Returns null
+    // when not paused or already resuming.
+    synchronized JSObject resume() {
+        if (!pauseRequested) return null;
+        pauseRequested = false;
+
+        JSObject status = new JSObject();
+        status.put("buffered", size());
+        status.put("spilled", spilledTotal);
+        status.put("dropped", dropped);
+        status.put("coalesced", coalesced);
+        if (firstSeq >= 0) {
+            status.put("fromSeq", firstSeq);
+            status.put("toSeq", lastSeq);
+        }
+        spilledTotal = 0;
+        dropped = 0;
+        coalesced = 0;
+        firstSeq = -1;
+        lastSeq = -1;
+        return status;
+    }
+
+    synchronized void close() {
+        paused = false;
+        pauseRequested = false;
+        memory.clear();
+        latest.clear();
+        clearSpill();
+    }
+
+    private int size() {
+        return memory.size() + latest.size() + spilled;
+    }
+
+    private Event peekOrdered() {
+        if (!memory.isEmpty()) return memory.peekFirst();
+        if (spillPending == null && spilled > 0) {
+            spillPending = readSpilled();
+        }
+        return spillPending;
+    }
+
+    private Event pollOrdered() {
+        if (!memory.isEmpty()) return memory.pollFirst();
+        Event event = spillPending;
+        spillPending = null;
+        if (--spilled == 0) {
+            clearSpill();
+        }
+        return event;
+    }
+
+    private boolean spill(Event event) {
+        try {
+            if (spillWriter == null) {
+                File parent = spillFile.getParentFile();
+                if (parent != null && !parent.exists()) {
+                    parent.mkdirs();
+                }
+                spillWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(spillFile, true), UTF8));
+            }
+            StringBuilder line = new StringBuilder();
+            line.append("{\"seq\":").append(event.seq)
+                .append(",\"event\":").append(JSONObject.quote(event.eventName))
+                .append(",\"channel\":").append(JSONObject.quote(event.channel))
+                .append(",\"data\":").append(toJson(event.data))
+                .append("}\n");
+            spillWriter.write(line.toString());
+            spilled++;
+            spilledTotal++;
+            return true;
+        } catch (Exception e) {
+            Log.w(TAG, "Error spilling background event: " + event.eventName, e);
+            return false;
+        }
+    }
+
+    // Reads the next spilled event; its data comes back as a JsonElement whatever the protocol was
+    private Event readSpilled() {
+        try {
+            if (spillWriter != null) {
+                // Only flushed, so events spilled during the replay reuse the writer
+                spillWriter.flush();
+            }
+            if (spillReader == null) {
+                spillReader = new BufferedReader(new InputStreamReader(new FileInputStream(spillFile), UTF8));
+            }
+            String line;
+            while ((line = spillReader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+                return new Event(json.get("seq").getAsLong(), json.get("event").getAsString(),
+                    json.get("channel").getAsString(), json.get("data"));
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Error reading spilled background events", e);
+        }
+        // Whatever could not be read is lost
+        dropped += spilled;
+        spilled = 0;
+        return null;
+    }
+
+    private void clearSpill() {
+        closeQuietly(spillWriter);
+        closeQuietly(spillReader);
+        spillWriter = null;
+        spillReader = null;
+        spillPending = null;
+        spilled = 0;
+        if (spillFile != null && spillFile.exists() && !spillFile.delete()) {
+            Log.w(TAG, "Could not delete background spill file " + spillFile);
+        }
+    }
+
+    private static String toJson(Object data) {
+        if (data instanceof JsonElement) {
+            return data.toString();
+        }
+        if (data instanceof Object[]) {
+            StringBuilder array = new StringBuilder("[");
+            Object[] items = (Object[]) data;
+            for (int i = 0; i < items.length; i++) {
+                if (i > 0) array.append(',');
+                array.append(toJson(items[i]));
+            }
+            return array.append(']').toString();
+        }
+        Object value = PayloadConverter.toJS(data);
+        if (value == null || value == JSONObject.NULL) {
+            return "null";
+        }
+        if (value instanceof String) {
+            return JSONObject.quote((String) value);
+        }
+        return value.toString();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing to do
+        }
+    }
+}
@@ -1,154 +1,670 @@
 package com.dotnetdreamer.plugins.signalr;
 
+import android.content.Context;
 import android.util.Log;
 import com.microsoft.signalr.*;
-import com.google.gson.Gson;
 import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
+import com.google.gson.JsonElement;
+import com.microsoft.signalr.messagepack.MessagePackHubProtocol;
 import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.disposables.Disposable;
 import io.reactivex.rxjava3.functions.Supplier;
 import io.reactivex.rxjava3.functions.Action;
 import io.reactivex.rxjava3.functions.Consumer;
+import io.reactivex.rxjava3.subjects.PublishSubject;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.json.JSONException;
 
+import okhttp3.OkHttpClient;
+
+import java.io.File;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class CapacitorSignalR {
     private static final String TAG = "CapacitorSignalR";
-    private HubConnection hubConnection;
+    private static final int REPLAY_CHUNK_SIZE = 256;
+    // Pause between replay chunks, about a frame, so JS can handle a chunk before the next arrives
+    private static final long REPLAY_CHUNK_INTERVAL_MS = 16;
+    private static final long DEFAULT_STICKY_CACHE_BYTES = 4 * 1024 * 1024;
+    private final String handle;
+    private final ConnectionRegistry registry;
+    private volatile HubConnection hubConnection;
     private String connectionId;
     private HubConnectionState currentState = HubConnectionState.DISCONNECTED;
     private CapacitorSignalRPlugin plugin;
-    private final Map<String, Subscription> eventSubscriptions = new HashMap<>();
+    private final EventSubscriptions eventSubscriptions = new EventSubscriptions();
+    private EventBatcher eventBatcher;
+    private EventDispatcher eventDispatcher;
+    private JSObject options;
+    private boolean useMessagePack;
+    private boolean perEventChannels;
+    private ReconnectPolicy reconnectPolicy;
+    private volatile boolean reconnecting;
+    private volatile boolean stopRequested;
+    private int reconnectAttempt;
+    private ScheduledFuture<?> reconnectTask;
+    private Outbox outbox;
+    private InvocationTable invocations;
+    private InvocationCache invocationCache;
+    private final Object outboxFlushLock = new Object();
+    private final Map<String, DownloadStream> downloadStreams = new ConcurrentHashMap<>();
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+    private final AtomicInteger streamCounter = new AtomicInteger();
+    private final Metrics metrics = new Metrics();
+    private ScheduledFuture<?> metricsTask;
+    private volatile BackgroundBuffer backgroundBuffer;
+    private volatile PayloadStore payloadStore;
+    private final StickyCache stickyCache = new StickyCache(DEFAULT_STICKY_CACHE_BYTES);
+    // Sequence number of events delivered to JS, so gaps after a background period are visible
+    private final AtomicLong eventSeq = new AtomicLong();
+    private ConnectTimer connectTimer;
+    // Whether the current HubConnection was built from a cached negotiate result
+    private volatile boolean usingCachedNegotiate;
+    private CompletableFuture<JSObject> warmStart;
+    private boolean adopted;
+    private PowerProfiles powerProfiles;
+    private volatile boolean inBackground;
+    // Set while the connection is stopped after the background grace period, until the next resume
+    private volatile boolean suspended;
+    private ScheduledFuture<?> suspendTask;
+
+    // A client-to-server stream fed with chunks from JS
+    private static final class Upload {
+        final PublishSubject<Object> subject;
+        final CompletableFuture<Object> result;
+
+        Upload(PublishSubject<Object> subject, CompletableFuture<Object> result) {
+            this.subject = subject;
+            this.result = result;
+        }
+    }
+
+    public CapacitorSignalR(String handle, ConnectionRegistry registry) {
+        this.handle = handle;
+        this.registry = registry;
+    }
 
     public void setPlugin(CapacitorSignalRPlugin plugin) {
         this.plugin = plugin;
     }
 
+    public String getHandle() {
+        return handle;
+    }
+
     public void create(JSObject options) {
         try {
-            String url = options.getString("url");
-            if (url == null) {
-                throw new IllegalArgumentException("URL is required");
+            configure(options);
+
+            // Time the steps of start() and remember negotiate results when asked to
+            long negotiateCacheTtlMs = options.optLong("negotiateCacheTtlMs", 0);
+            connectTimer = new ConnectTimer(registry.getNegotiateCache(), negotiateCacheTtlMs);
+
+            // Build the connection
+            hubConnection = buildConnection();
+            
+            // Set up connection state monitoring
+            setupConnectionCallbacks(hubConnection);
+
+        } catch (Exception e) {
+            Log.e(TAG, "Error creating SignalR connection", e);
+            throw new RuntimeException("Failed to create SignalR connection: " + e.getMessage());
+        }
+    }
+
+    // Starts the connection ahead of the create() call from JS, used by the warm-up in the plugin's load()
+    public CompletableFuture<JSObject> prestart() {
+        warmStart = start();
+        return warmStart;
+    }
+
+    // Whether this pre-started connection can serve a create() with these options
+    public boolean isWarmFor(JSObject options) {
+        return warmStart != null && !adopted
+            && equalOption(options, "url") && equalOption(options, "protocol") && equalOption(options, "transport");
+    }
+
+    // Takes the options of the create() call from JS for everything except the already open
+    // connection, then resolves once the warm start has finished
+    public CompletableFuture<JSObject> adopt(JSObject options) {
+        adopted = true;
+        configure(options);
+        applyPowerProfile(hubConnection);
+        return warmStart;
+    }
+
+    private boolean equalOption(JSObject other, String name) {
+        String value = options.getString(name);
+        String otherValue = other.getString(name);
+        return value == null ? otherValue == null : value.equals(otherValue);
+    }
+
+    // Applies the options that do not affect how the HubConnection itself is built
+    private void configure(JSObject options) {
+        this.options = options;
+        useMessagePack = "messagepack".equalsIgnoreCase(options.getString("protocol"));
+        perEventChannels = options.optBoolean("perEventChannels", false);
+
+        // Configure batched delivery of received events
+        if (eventBatcher != null) {
+            eventBatcher.flush();
+            eventBatcher = null;
+        }
+        if (options.has("batching")) {
+            JSObject batching = options.getJSObject("batching");
+            if (batching != null) {
+                int maxBatchSize = batching.getInteger("maxBatchSize", 100);
+                int maxDelayMs = batching.getInteger("maxDelayMs", 16);
+                eventBatcher = new EventBatcher(maxBatchSize, maxDelayMs, registry.getScheduler(), new EventBatcher.Sink() {
+                    @Override
+                    public void deliver(JSArray events) {
+                        JSObject batchData = new JSObject();
+                        batchData.put("events", events);
+                        notifyListeners("onReceiveBatch", batchData);
+                    }
+                });
             }
+        }
 
-            HttpHubConnectionBuilder builder = HubConnectionBuilder.create(url);
+        // Convert and deliver received events on the shared dispatch threads instead of the transport thread
+        if (eventDispatcher == null) {
+            eventDispatcher = EventDispatcher.fromOptions(registry.getDispatchExecutor(), options.getJSObject("dispatch"),
+                new EventDispatcher.Sink() {
+                    @Override
+                    public void receive(EventSubscriptions.Entry entry, String channel, Object data) {
+                        processReceivedEvent(entry, channel, data);
+                    }
 
-            // Configure access token
-            if (options.has("accessToken") && options.getString("accessToken") != null) {
-                String accessToken = options.getString("accessToken");
-                builder.withAccessTokenProvider(
-                    Single.defer(new Supplier<Single<String>>() {
-                        @Override
-                        public Single<String> get() {
-                            return Single.just(accessToken);
-                        }
-                    })
-                );
+                    @Override
+                    public void deliver(String eventName, String channel, Object data) {
+                        handleReceivedEvent(eventName, channel, data);
+                    }
+                });
+        }
+
+        // Configure automatic reconnect
+        reconnectPolicy = ReconnectPolicy.fromOptions(options);
+
+        // Configure the outbox for calls made while not connected. A previous outbox (from a warm
+        // start being adopted) is closed first, releasing its journal; journaled sends are restored
+        // from the journal by the new one.
+        if (outbox != null) {
+            outbox.close();
+            outbox = null;
+        }
+        if (options.has("outbox")) {
+            JSObject outboxOptions = options.getJSObject("outbox");
+            if (outboxOptions != null) {
+                outbox = Outbox.fromOptions(outboxOptions, registry.getScheduler(), getOutboxJournalFile());
             }
+        }
 
-            // Configure skip negotiate
-            if (options.has("shouldSkipNegotiate")) {
-                builder.shouldSkipNegotiate(options.getBool("shouldSkipNegotiate"));
+        // Periodically emit onMetrics when requested
+        if (metricsTask != null) {
+            metricsTask.cancel(false);
+            metricsTask = null;
+        }
+        int metricsIntervalMs = options.getInteger("metricsIntervalMs", 0);
+        if (metricsIntervalMs > 0) {
+            metricsTask = registry.getScheduler().scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    notifyListeners("onMetrics", getMetrics());
+                }
+            }, metricsIntervalMs, metricsIntervalMs, TimeUnit.MILLISECONDS);
+        }
+
+        // Track invokeWithResult calls for timeouts, cancellation and the in-flight limit
+        if (invocations != null) {
+            invocations.failAll("CLOSED", "Connection reconfigured");
+        }
+        invocations = InvocationTable.fromOptions(options.getJSObject("invocations"), registry.getScheduler(),
+            new InvocationTable.Starter() {
+                @Override
+                public CompletableFuture<Object> start(String methodName, JSONArray args) {
+                    return startInvocation(methodName, args);
+                }
+            });
+
+        // Cache results of read-only hub methods
+        invocationCache = null;
+        if (options.has("cache")) {
+            JSObject cacheOptions = options.getJSObject("cache");
+            if (cacheOptions != null) {
+                invocationCache = InvocationCache.fromOptions(cacheOptions);
             }
+        }
 
-            // Configure headers
-            if (options.has("headers")) {
-                try {
-                    JSONArray headersJson = options.getJSONArray("headers");
-                    if (headersJson != null) {
-                        Map<String, String> headersMap = new HashMap<>();
-                        for (int i = 0; i < headersJson.length(); i++) {
-                            try {
-                                JSONObject header = headersJson.getJSONObject(i);
-                                if (header != null) {
-                                    String name = header.optString("name");
-                                    String value = header.optString("value");
-                                    if (name != null && value != null && !name.isEmpty()) {
-                                        headersMap.put(name, value);
-                                    }
+        // Memory budget shared by the sticky values of all events
+        stickyCache.setMaxBytes(Math.max(0, options.optLong("stickyCacheBytes", DEFAULT_STICKY_CACHE_BYTES)));
+
+        // Keep-alive profiles and the background grace period
+        powerProfiles = PowerProfiles.fromOptions(options);
+
+        // Hold received events while the app is in the background
+        if (backgroundBuffer != null) {
+            backgroundBuffer.close();
+        }
+        backgroundBuffer = BackgroundBuffer.fromOptions(options.opt("background"), getBackgroundSpillFile());
+
+        // Hand payloads above a size threshold to JS as files
+        if (payloadStore != null) {
+            payloadStore.close();
+            payloadStore = null;
+        }
+        JSObject largePayloads = options.getJSObject("largePayloads");
+        File payloadDirectory = getPayloadDirectory();
+        if (largePayloads != null && payloadDirectory != null) {
+            payloadStore = PayloadStore.fromOptions(largePayloads, payloadDirectory, registry.getScheduler());
+        }
+    }
+
+    // Builds a new HubConnection from the create() options, also used to rebuild it on reconnect
+    private HubConnection buildConnection() {
+        String url = options.getString("url");
+        if (url == null) {
+            throw new IllegalArgumentException("URL is required");
+        }
+
+        // A still valid negotiate result either redirects straight to the service URL or, when the
+        // server offers WebSockets, lets start() skip negotiate
+        String transport = options.getString("transport");
+        NegotiateCache.Entry negotiated = connectTimer != null && options.optLong("negotiateCacheTtlMs", 0) > 0
+            ? registry.getNegotiateCache().get(url) : null;
+        boolean redirect = negotiated != null && negotiated.redirectUrl != null;
+        boolean skipNegotiate = negotiated != null && negotiated.webSockets && !options.has("shouldSkipNegotiate")
+            && (transport == null || "WEBSOCKETS".equals(transport) || "ALL".equals(transport));
+        usingCachedNegotiate = redirect || skipNegotiate;
+
+        HttpHubConnectionBuilder builder = HubConnectionBuilder.create(redirect ? negotiated.redirectUrl : url);
+
+        // Share the HTTP connection pool and dispatcher with the other hubs, apply the "http" tuning
+        // and time the connect steps
+        final Action1<OkHttpClient.Builder> sharedConfig = registry.httpClientConfigurer(HttpClientOptions.fromOptions(options.getJSObject("http")));
+        final ConnectTimer timer = connectTimer;
+        builder.setHttpClientBuilderCallback(new Action1<OkHttpClient.Builder>() {
+            @Override
+            public void invoke(OkHttpClient.Builder httpBuilder) {
+                sharedConfig.invoke(httpBuilder);
+                if (timer != null) {
+                    httpBuilder.addInterceptor(timer);
+                }
+            }
+        });
+
+        // Configure access token; a redirect comes with its own
+        if (redirect && negotiated.accessToken != null) {
+            final String accessToken = negotiated.accessToken;
+            builder.withAccessTokenProvider(
+                Single.defer(new Supplier<Single<String>>() {
+                    @Override
+                    public Single<String> get() {
+                        return Single.just(accessToken);
+                    }
+                })
+            );
+        } else if (options.has("accessToken") && options.getString("accessToken") != null) {
+            String accessToken = options.getString("accessToken");
+            builder.withAccessTokenProvider(
+                Single.defer(new Supplier<Single<String>>() {
+                    @Override
+                    public Single<String> get() {
+                        return Single.just(accessToken);
+                    }
+                })
+            );
+        }
+
+        // Configure skip negotiate
+        if (options.has("shouldSkipNegotiate")) {
+            builder.shouldSkipNegotiate(options.getBool("shouldSkipNegotiate"));
+        }
+
+        // Configure headers
+        if (options.has("headers")) {
+            try {
+                JSONArray headersJson = options.getJSONArray("headers");
+                if (headersJson != null) {
+                    Map<String, String> headersMap = new HashMap<>();
+                    for (int i = 0; i < headersJson.length(); i++) {
+                        try {
+                            JSONObject header = headersJson.getJSONObject(i);
+                            if (header != null) {
+                                String name = header.optString("name");
+                                String value = header.optString("value");
+                                if (name != null && value != null && !name.isEmpty()) {
+                                    headersMap.put(name, value);
                                 }
-                            } catch (Exception headerException) {
-                                Log.w(TAG, "Error processing header at index " + i, headerException);
                             }
-                        }
-                        if (!headersMap.isEmpty()) {
-                            builder.withHeaders(headersMap);
+                        } catch (Exception headerException) {
+                            Log.w(TAG, "Error processing header at index " + i, headerException);
                         }
                     }
-                } catch (Exception e) {
-                    Log.w(TAG, "Error processing headers", e);
+                    if (!headersMap.isEmpty()) {
+                        builder.withHeaders(headersMap);
+                    }
                 }
+            } catch (Exception e) {
+                Log.w(TAG, "Error processing headers", e);
             }
+        }
 
-            // Configure timeouts
-            if (options.has("handshakeResponseTimeout")) {
-                builder.withHandshakeResponseTimeout(options.getInt("handshakeResponseTimeout"));
-            }
-            if (options.has("keepAliveInterval")) {
-                builder.withKeepAliveInterval(options.getInt("keepAliveInterval"));
-            }
-            if (options.has("serverTimeout")) {
-                builder.withServerTimeout(options.getInt("serverTimeout"));
-            }
+        // Configure timeouts
+        if (options.has("handshakeResponseTimeout")) {
+            builder.withHandshakeResponseTimeout(options.getInt("handshakeResponseTimeout"));
+        }
+        if (options.has("keepAliveInterval")) {
+            builder.withKeepAliveInterval(options.getInt("keepAliveInterval"));
+        }
+        if (options.has("serverTimeout")) {
+            builder.withServerTimeout(options.getInt("serverTimeout"));
+        }
 
-            // Configure transport
-            if (options.has("transport")) {
-                String transport = options.getString("transport");
-                TransportEnum transportEnum = TransportEnum.WEBSOCKETS; // default
-                if ("ALL".equals(transport)) {
-                    transportEnum = TransportEnum.ALL;
-                } else if ("LONG_POLLING".equals(transport)) {
-                    transportEnum = TransportEnum.LONG_POLLING;
-                } else if ("WEBSOCKETS".equals(transport)) {
-                    transportEnum = TransportEnum.WEBSOCKETS;
-                }
-                builder.withTransport(transportEnum);
+        // Configure transport
+        if (options.has("transport")) {
+            TransportEnum transportEnum = TransportEnum.WEBSOCKETS; // default
+            if ("ALL".equals(transport)) {
+                transportEnum = TransportEnum.ALL;
+            } else if ("LONG_POLLING".equals(transport)) {
+                transportEnum = TransportEnum.LONG_POLLING;
+            } else if ("WEBSOCKETS".equals(transport)) {
+                transportEnum = TransportEnum.WEBSOCKETS;
             }
+            builder.withTransport(transportEnum);
+        }
+        if (skipNegotiate) {
+            builder.shouldSkipNegotiate(true);
+            builder.withTransport(TransportEnum.WEBSOCKETS);
+        }
 
-            // Build the connection
-            hubConnection = builder.build();
-            
-            // Set up connection state monitoring
-            setupConnectionCallbacks();
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error creating SignalR connection", e);
-            throw new RuntimeException("Failed to create SignalR connection: " + e.getMessage());
+        // Configure hub protocol
+        if (useMessagePack) {
+            builder.withHubProtocol(new MessagePackHubProtocol());
         }
+
+        HubConnection connection = builder.build();
+        applyPowerProfile(connection);
+        return connection;
     }
 
-    private void setupConnectionCallbacks() {
-        if (hubConnection == null) return;
+    private void setupConnectionCallbacks(final HubConnection connection) {
+        if (connection == null) return;
 
         // Monitor connection state changes and handle reconnection
-        hubConnection.onClosed(new OnClosedCallback() {
+        connection.onClosed(new OnClosedCallback() {
             @Override
             public void invoke(Exception exception) {
-                currentState = hubConnection.getConnectionState();
+                // Ignore connections that have already been replaced by a reconnect
+                if (connection != hubConnection) return;
+
                 connectionId = null;
-                
-                if (plugin != null) {
+                metrics.recordClose();
+
+                // Responses can no longer arrive; without an outbox, queued calls have nowhere to go either
+                if (outbox == null && invocations != null) {
+                    invocations.failAll("CLOSED", "Connection closed");
+                }
+                if (invocationCache != null) {
+                    invocationCache.invalidate(null);
+                }
+
+                if (eventBatcher != null) {
+                    eventBatcher.flush();
+                }
+
+                if (suspended) {
+                    // Stopped for the background; reopened on resume, so this is not a close for JS
+                    currentState = connection.getConnectionState();
                     JSObject stateData = new JSObject();
                     stateData.put("state", getConnectionStateString(currentState));
-                    plugin.notifyListenersPublic("onConnectionStateChanged", stateData);
-                    
-                    JSObject closedData = new JSObject();
-                    if (exception != null) {
-                        closedData.put("message", exception.getMessage());
+                    stateData.put("suspended", true);
+                    notifyListeners("onConnectionStateChanged", stateData);
+                    Log.d(TAG, "Connection suspended in the background");
+                    return;
+                }
+
+                if (reconnectPolicy != null && !stopRequested) {
+                    // Failed reconnect attempts are retried from their start() error handler
+                    if (!reconnecting) {
+                        beginReconnect(exception);
                     }
-                    plugin.notifyListenersPublic("onClosed", closedData);
+                    return;
                 }
-                
-                Log.d(TAG, "Connection closed. State: " + currentState);
+
+                currentState = connection.getConnectionState();
+                notifyClosed(exception);
             }
         });
     }
 
+    private File getOutboxJournalFile() {
+        File directory = getStorageDirectory(false);
+        if (directory == null) return null;
+        return new File(directory, "outbox-" + handle.replaceAll("[^A-Za-z0-9_-]", "_") + ".log");
+    }
+
+    private File getBackgroundSpillFile() {
+        File directory = getStorageDirectory(true);
+        if (directory == null) return null;
+        return new File(directory, "background-" + handle.replaceAll("[^A-Za-z0-9_-]", "_") + ".log");
+    }
+
+    private File getPayloadDirectory() {
+        File directory = getStorageDirectory(true);
+        if (directory == null) return null;
+        return new File(new File(directory, "payloads"), handle.replaceAll("[^A-Za-z0-9_-]", "_"));
+    }
+
+    // The plugin's directory under the app's cache or files directory. Returns null while the
+    // plugin has no bridge (e.g. on the JVM), so the outbox journal, background spill and payload
+    // files are skipped and everything stays in memory.
+    private File getStorageDirectory(boolean cache) {
+        if (plugin == null || plugin.getBridge() == null) return null;
+        Context context = plugin.getContext();
+        if (context == null) return null;
+        return new File(cache ? context.getCacheDir() : context.getFilesDir(), "capacitor-signalr");
+    }
+
+    private boolean isConnected() {
+        return hubConnection != null && currentState == HubConnectionState.CONNECTED && !reconnecting;
+    }
+
+    // Sends queued calls in order without waiting on each other; stops early if the connection drops again
+    private void flushOutbox() {
+        if (outbox == null) return;
+
+        synchronized (outboxFlushLock) {
+            long startedAt = System.nanoTime();
+            int count = 0;
+            long lastSeq = -1;
+            Outbox.Entry entry;
+            while (isConnected() && (entry = outbox.peek()) != null) {
+                if (entry.result != null && entry.result.isDone()) {
+                    // Timed out or canceled while queued
+                    outbox.remove(entry);
+                    continue;
+                }
+                try {
+                    if (entry.result != null) {
+                        final CompletableFuture<Object> result = entry.result;
+                        invokeOnConnection(entry.methodName, entry.args).whenComplete((value, throwable) -> {
+                            if (throwable != null) {
+                                result.completeExceptionally(throwable);
+                            } else {
+                                result.complete(value);
+                            }
+                        });
+                    } else {
+                        Object[] argsArray = convertJSONArrayToObjectArray(entry.args);
+                        hubConnection.send(entry.methodName, argsArray);
+                        metrics.recordSend(entry.methodName, PayloadConverter.estimateSize(argsArray));
+                    }
+                } catch (Exception e) {
+                    Log.w(TAG, "Outbox flush interrupted at method: " + entry.methodName, e);
+                    break;
+                }
+                outbox.remove(entry);
+                lastSeq = entry.seq;
+                count++;
+            }
+
+            if (count > 0) {
+                long durationMs = (System.nanoTime() - startedAt) / 1000000;
+                outbox.acknowledge(lastSeq);
+                outbox.recordFlush(count, durationMs);
+
+                JSObject flushData = outbox.getStatus();
+                flushData.put("count", count);
+                flushData.put("durationMs", durationMs);
+                notifyListeners("onOutboxFlushed", flushData);
+                Log.d(TAG, "Flushed " + count + " queued calls in " + durationMs + "ms");
+            }
+        }
+    }
+
+    public JSObject getOutboxStatus() {
+        if (outbox == null) {
+            JSObject status = new JSObject();
+            status.put("depth", 0);
+            return status;
+        }
+        return outbox.getStatus();
+    }
+
+    private void notifyClosed(Throwable exception) {
+        JSObject stateData = new JSObject();
+        stateData.put("state", getConnectionStateString(currentState));
+        notifyListeners("onConnectionStateChanged", stateData);
+        
+        JSObject closedData = new JSObject();
+        if (exception != null) {
+            closedData.put("message", exception.getMessage());
+        }
+        notifyListeners("onClosed", closedData);
+        
+        Log.d(TAG, "Connection closed. State: " + currentState);
+    }
+
+    private synchronized void beginReconnect(Exception exception) {
+        reconnecting = true;
+        reconnectAttempt = 0;
+        currentState = HubConnectionState.DISCONNECTED;
+
+        JSObject stateData = new JSObject();
+        stateData.put("state", "reconnecting");
+        notifyListeners("onConnectionStateChanged", stateData);
+
+        JSObject reconnectingData = new JSObject();
+        if (exception != null) {
+            reconnectingData.put("error", exception.getMessage());
+        }
+        notifyListeners("onReconnecting", reconnectingData);
+
+        Log.d(TAG, "Connection lost, reconnecting");
+        scheduleReconnect(exception);
+    }
+
+    private synchronized void scheduleReconnect(Throwable lastError) {
+        if (stopRequested || !reconnecting) return;
+
+        // Without a policy only the reconnect on resume from the background is tried, once
+        long delay = reconnectPolicy != null ? reconnectPolicy.nextDelay(reconnectAttempt) : -1;
+        if (delay < 0) {
+            Log.d(TAG, "Giving up reconnecting after " + reconnectAttempt + " attempts");
+            reconnecting = false;
+            currentState = HubConnectionState.DISCONNECTED;
+            notifyClosed(lastError);
+            return;
+        }
+
+        reconnectAttempt++;
+        reconnectTask = registry.getScheduler().schedule(new Runnable() {
+            @Override
+            public void run() {
+                attemptReconnect();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // Rebuilds the HubConnection, re-registers every subscribed event and starts it again
+    private void attemptReconnect() {
+        final HubConnection connection;
+        synchronized (this) {
+            if (stopRequested || !reconnecting) return;
+
+            try {
+                connection = replaceConnection();
+            } catch (Exception e) {
+                Log.w(TAG, "Error rebuilding connection", e);
+                scheduleReconnect(e);
+                return;
+            }
+        }
+
+        Log.d(TAG, "Reconnect attempt " + reconnectAttempt);
+        metrics.recordReconnectAttempt();
+        connection.start().subscribe(
+            new Action() {
+                @Override
+                public void run() {
+                    synchronized (CapacitorSignalR.this) {
+                        if (connection != hubConnection || stopRequested) return;
+                        reconnecting = false;
+                        currentState = connection.getConnectionState();
+                        connectionId = connection.getConnectionId();
+                    }
+                    metrics.recordReconnect();
+
+                    JSObject stateData = new JSObject();
+                    stateData.put("state", getConnectionStateString(currentState));
+                    notifyListeners("onConnectionStateChanged", stateData);
+
+                    JSObject reconnectedData = new JSObject();
+                    reconnectedData.put("connectionId", connectionId);
+                    notifyListeners("onReconnected", reconnectedData);
+
+                    Log.d(TAG, "Reconnected. ID: " + connectionId);
+                    flushOutbox();
+                }
+            },
+            new Consumer<Throwable>() {
+                @Override
+                public void accept(Throwable throwable) {
+                    Log.w(TAG, "Reconnect attempt failed", throwable);
+                    if (usingCachedNegotiate) {
+                        // Negotiate again on the next attempt in case the cached result went stale
+                        registry.getNegotiateCache().invalidate(options.getString("url"));
+                    }
+                    if (connection == hubConnection) {
+                        scheduleReconnect(throwable);
+                    }
+                }
+            }
+        );
+    }
+
+    // Swaps in a freshly built HubConnection and re-registers every subscribed event on it
+    private synchronized HubConnection replaceConnection() {
+        HubConnection connection = buildConnection();
+        hubConnection = connection;
+        setupConnectionCallbacks(connection);
+        for (EventSubscriptions.Entry entry : eventSubscriptions.all()) {
+            entry.handler = isEventPaused(entry.eventName) ? null : registerHandler(entry);
+        }
+        return connection;
+    }
+
     public CompletableFuture<JSObject> start() {
         if (hubConnection == null) {
             CompletableFuture<JSObject> future = new CompletableFuture<>();
@@ -157,32 +673,65 @@ public class CapacitorSignalR {
         }
 
         CompletableFuture<JSObject> resultFuture = new CompletableFuture<>();
+        stopRequested = false;
+        suspended = false;
+        startConnection(resultFuture, System.nanoTime(), true);
+        return resultFuture;
+    }
+
+    // One start attempt. When it used a cached negotiate result and failed, the result is dropped
+    // and the connection rebuilt and started once more with a regular negotiate.
+    private void startConnection(final CompletableFuture<JSObject> resultFuture, final long startedAt, final boolean retryUncached) {
+        final HubConnection connection = hubConnection;
+        final boolean negotiateCached = usingCachedNegotiate;
+        final long attemptStartedAt = System.nanoTime();
+        if (connectTimer != null) {
+            connectTimer.reset();
+        }
 
         try {
-            hubConnection.start().subscribe(
+            connection.start().subscribe(
                 new Action() {
                     @Override
                     public void run() {
-                        currentState = hubConnection.getConnectionState();
-                        connectionId = hubConnection.getConnectionId();
+                        long now = System.nanoTime();
+                        metrics.recordStart(now - startedAt, false);
+                        currentState = connection.getConnectionState();
+                        connectionId = connection.getConnectionId();
                         
                         JSObject result = new JSObject();
+                        result.put("handle", handle);
                         result.put("connectionId", connectionId);
                         result.put("state", getConnectionStateString(currentState));
+                        result.put("timings", connectTimings(now - startedAt, now - attemptStartedAt, negotiateCached));
                         
-                        if (plugin != null) {
-                            JSObject stateData = new JSObject();
-                            stateData.put("state", getConnectionStateString(currentState));
-                            plugin.notifyListenersPublic("onConnectionStateChanged", stateData);
-                        }
+                        JSObject stateData = new JSObject();
+                        stateData.put("state", getConnectionStateString(currentState));
+                        notifyListeners("onConnectionStateChanged", stateData);
                         
                         resultFuture.complete(result);
                         Log.d(TAG, "Connection started successfully. ID: " + connectionId);
+                        flushOutbox();
                     }
                 },
                 new Consumer<Throwable>() {
                     @Override
                     public void accept(Throwable throwable) {
+                        if (negotiateCached && retryUncached && !stopRequested) {
+                            Log.w(TAG, "Start with cached negotiate result failed, negotiating again", throwable);
+                            registry.getNegotiateCache().invalidate(options.getString("url"));
+                            try {
+                                replaceConnection();
+                            } catch (Exception e) {
+                                metrics.recordStart(System.nanoTime() - startedAt, true);
+                                resultFuture.completeExceptionally(e);
+                                return;
+                            }
+                            startConnection(resultFuture, startedAt, false);
+                            return;
+                        }
+
+                        metrics.recordStart(System.nanoTime() - startedAt, true);
                         Log.e(TAG, "Failed to start connection", throwable);
                         resultFuture.completeExceptionally(throwable);
                     }
@@ -192,11 +741,60 @@ public class CapacitorSignalR {
             Log.e(TAG, "Error starting connection", e);
             resultFuture.completeExceptionally(e);
         }
+    }
 
-        return resultFuture;
+    // Splits the successful attempt into negotiate, transport open and handshake (everything else)
+    private JSObject connectTimings(long totalNanos, long attemptNanos, boolean negotiateCached) {
+        long negotiateNanos = connectTimer != null ? connectTimer.getNegotiateNanos() : 0;
+        long transportOpenNanos = connectTimer != null ? connectTimer.getTransportOpenNanos() : 0;
+        long handshakeNanos = Math.max(0, attemptNanos - negotiateNanos - transportOpenNanos);
+        metrics.recordConnectSteps(negotiateNanos, transportOpenNanos, handshakeNanos, negotiateCached);
+
+        JSObject timings = new JSObject();
+        timings.put("negotiateMs", negotiateNanos / 1e6);
+        timings.put("transportOpenMs", transportOpenNanos / 1e6);
+        timings.put("handshakeMs", handshakeNanos / 1e6);
+        timings.put("totalMs", totalNanos / 1e6);
+        timings.put("negotiateCached", negotiateCached);
+        return timings;
     }
 
     public void disconnect() {
+        stopRequested = true;
+
+        // Sticky values nobody subscribes to any more would only go stale from here
+        for (EventSubscriptions.Entry entry : eventSubscriptions.clearIdle()) {
+            entry.close();
+        }
+
+        // Abandon a reconnect in progress
+        synchronized (this) {
+            if (suspendTask != null) {
+                suspendTask.cancel(false);
+                suspendTask = null;
+            }
+            if (suspended) {
+                // Already stopped in the background; JS still sees it closing now
+                suspended = false;
+                currentState = HubConnectionState.DISCONNECTED;
+                notifyClosed(null);
+                return;
+            }
+            if (reconnectTask != null) {
+                reconnectTask.cancel(false);
+                reconnectTask = null;
+            }
+            if (reconnecting) {
+                reconnecting = false;
+                currentState = HubConnectionState.DISCONNECTED;
+                if (hubConnection != null) {
+                    hubConnection.stop();
+                }
+                notifyClosed(null);
+                return;
+            }
+        }
+
         if (hubConnection != null && currentState == HubConnectionState.CONNECTED) {
             try {
                 hubConnection.stop();
@@ -207,15 +805,68 @@ public class CapacitorSignalR {
         }
     }
 
+    // Stops the connection and releases everything it holds, used when its handle is re-created
+    public synchronized void dispose() {
+        for (EventSubscriptions.Entry entry : eventSubscriptions.clear()) {
+            entry.close();
+        }
+        if (invocations != null) {
+            invocations.failAll("CLOSED", "Connection disposed");
+        }
+        if (metricsTask != null) {
+            metricsTask.cancel(false);
+            metricsTask = null;
+        }
+        suspended = false;
+        disconnect();
+        if (eventDispatcher != null) {
+            eventDispatcher.close();
+            eventDispatcher = null;
+        }
+        if (eventBatcher != null) {
+            eventBatcher.flush();
+            eventBatcher = null;
+        }
+        if (backgroundBuffer != null) {
+            backgroundBuffer.close();
+            backgroundBuffer = null;
+        }
+        if (payloadStore != null) {
+            payloadStore.close();
+            payloadStore = null;
+        }
+        if (outbox != null) {
+            outbox.close();
+        }
+        for (DownloadStream stream : downloadStreams.values()) {
+            stream.cancel();
+        }
+        downloadStreams.clear();
+        for (Upload upload : uploads.values()) {
+            upload.subject.onError(new RuntimeException("Connection disposed"));
+        }
+        uploads.clear();
+    }
+
     public String getConnectionId() {
         return connectionId;
     }
 
     public String getConnectionState() {
-        return getConnectionStateString(currentState);
+        return reconnecting ? "reconnecting" : getConnectionStateString(currentState);
     }
 
-    public void invoke(String methodName, JSONArray args) {
+    // Completes once the call is sent or queued; only a full outbox with the "block" policy makes it wait
+    public CompletableFuture<Void> invoke(String methodName, JSONArray args) {
+        // Queue behind earlier calls while disconnected or while older calls are still pending
+        if (outbox != null && (!isConnected() || !outbox.isEmpty())) {
+            CompletableFuture<Void> queued = outbox.enqueue(methodName, args);
+            if (isConnected()) {
+                flushOutbox();
+            }
+            return queued;
+        }
+
         if (hubConnection == null || currentState != HubConnectionState.CONNECTED) {
             throw new RuntimeException("Not connected to SignalR hub");
         }
@@ -223,14 +874,127 @@ public class CapacitorSignalR {
         try {
             Object[] argsArray = convertJSONArrayToObjectArray(args);
             hubConnection.send(methodName, argsArray);
+            metrics.recordSend(methodName, PayloadConverter.estimateSize(argsArray));
             Log.d(TAG, "Invoked method: " + methodName);
+            return CompletableFuture.completedFuture(null);
         } catch (Exception e) {
             Log.e(TAG, "Error invoking method: " + methodName, e);
             throw new RuntimeException("Failed to invoke method: " + e.getMessage());
         }
     }
 
-    public CompletableFuture<Object> invokeWithResult(String methodName, JSONArray args) {
+    public CompletableFuture<Object> invokeWithResult(final String methodName, final JSONArray args, final String invocationId, final Long timeoutMs) {
+        if (invocations == null) {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            future.completeExceptionally(new RuntimeException("Connection not initialized"));
+            return future;
+        }
+
+        final InvocationCache cache = invocationCache;
+        if (cache != null && cache.isCached(methodName)) {
+            CompletableFuture<Object> cached = cache.lookup(methodName, args);
+            if (cached != null) {
+                return cached;
+            }
+            // Identical calls share one server round trip, while each caller keeps its own id,
+            // timeout and in-flight slot; the round trip is abandoned once they have all given up
+            return invocations.submit(invocationId, methodName, args, timeoutMs, new InvocationTable.Starter() {
+                @Override
+                public CompletableFuture<Object> start(final String methodName, final JSONArray args) {
+                    return cache.get(methodName, args, new InvocationCache.Loader() {
+                        @Override
+                        public CompletableFuture<Object> load() {
+                            return startInvocation(methodName, args);
+                        }
+                    });
+                }
+            });
+        }
+        return invocations.submit(invocationId, methodName, args, timeoutMs);
+    }
+
+    // Starts every call of the batch without waiting on earlier ones and settles once all have.
+    // Each item reports its own outcome, so one failing call does not fail the batch.
+    public CompletableFuture<JSArray> invokeBatch(JSONArray calls) {
+        int count = calls.length();
+        final Object[] outcomes = new Object[count];
+        CompletableFuture<?>[] pending = new CompletableFuture<?>[count];
+
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            JSONObject item = calls.optJSONObject(i);
+            CompletableFuture<Object> future;
+            try {
+                if (item == null || item.optString("methodName", "").isEmpty()) {
+                    throw new IllegalArgumentException("Method name is required");
+                }
+                String methodName = item.getString("methodName");
+                JSONArray args = item.optJSONArray("args");
+                if (item.optBoolean("expectResult", false)) {
+                    Long timeoutMs = item.has("timeoutMs") ? item.optLong("timeoutMs") : null;
+                    future = invokeWithResult(methodName, args != null ? args : new JSONArray(), item.optString("invocationId", null), timeoutMs);
+                } else {
+                    // Settles once the send is queued or on the wire, like invoke() from JS
+                    future = invoke(methodName, args).thenApply(v -> null);
+                }
+            } catch (Exception e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+
+            pending[i] = future.handle((result, throwable) -> {
+                JSObject outcome = new JSObject();
+                if (throwable instanceof CompletionException && throwable.getCause() != null) {
+                    throwable = throwable.getCause();
+                }
+                if (throwable != null) {
+                    outcome.put("ok", false);
+                    outcome.put("error", throwable.getMessage());
+                    if (throwable instanceof InvocationTable.InvocationException) {
+                        outcome.put("code", ((InvocationTable.InvocationException) throwable).code);
+                    }
+                } else {
+                    outcome.put("ok", true);
+                    putResult(outcome, result);
+                }
+                outcomes[index] = outcome;
+                return null;
+            });
+        }
+
+        return CompletableFuture.allOf(pending).thenApply(ignored -> {
+            JSArray results = new JSArray();
+            for (Object outcome : outcomes) {
+                results.put(outcome);
+            }
+            return results;
+        });
+    }
+
+    public void invalidateCache(String methodName) {
+        if (invocationCache != null) {
+            invocationCache.invalidate(methodName);
+        }
+    }
+
+    public boolean cancelInvocation(String invocationId) {
+        return invocations != null && invocations.cancel(invocationId);
+    }
+
+    // Sends a call once it has an in-flight slot, through the outbox while it is in use
+    private CompletableFuture<Object> startInvocation(String methodName, JSONArray args) {
+        if (outbox != null && (!isConnected() || !outbox.isEmpty())) {
+            CompletableFuture<Object> future = outbox.enqueueWithResult(methodName, args);
+            if (isConnected()) {
+                flushOutbox();
+            }
+            return future;
+        }
+
+        return invokeOnConnection(methodName, args);
+    }
+
+    private CompletableFuture<Object> invokeOnConnection(final String methodName, JSONArray args) {
         if (hubConnection == null || currentState != HubConnectionState.CONNECTED) {
             CompletableFuture<Object> future = new CompletableFuture<>();
             future.completeExceptionally(new RuntimeException("Not connected to SignalR hub"));
@@ -239,23 +1003,34 @@ public class CapacitorSignalR {
 
         try {
             Object[] argsArray = convertJSONArrayToObjectArray(args);
-            Single<Object> single = hubConnection.invoke(Object.class, methodName, argsArray);
-            CompletableFuture<Object> future = new CompletableFuture<>();
+            final long startedAt = System.nanoTime();
+            Single<Object> single = hubConnection.invoke(getPayloadType(), methodName, argsArray);
+            metrics.recordSend(methodName, PayloadConverter.estimateSize(argsArray));
+            final CompletableFuture<Object> future = new CompletableFuture<>();
             
-            single.subscribe(
+            final Disposable disposable = single.subscribe(
                 new Consumer<Object>() {
                     @Override
                     public void accept(Object result) {
-                        future.complete(result);
+                        metrics.recordInvocation(methodName, System.nanoTime() - startedAt, false);
+                        completeConverted(future, result);
                     }
                 },
                 new Consumer<Throwable>() {
                     @Override
                     public void accept(Throwable throwable) {
+                        metrics.recordInvocation(methodName, System.nanoTime() - startedAt, true);
                         future.completeExceptionally(throwable);
                     }
                 }
             );
+
+            // Stop waiting for the completion when the call is canceled or times out
+            future.whenComplete((value, throwable) -> {
+                if (future.isCancelled()) {
+                    disposable.dispose();
+                }
+            });
             
             return future;
         } catch (Exception e) {
@@ -266,107 +1041,664 @@ public class CapacitorSignalR {
         }
     }
 
-    public void on(String eventName) {
-        if (hubConnection == null) {
-            throw new RuntimeException("Connection not initialized");
+    public String stream(String streamId, String methodName, JSONArray args, int window, int bufferSize) {
+        if (!isConnected()) {
+            throw new RuntimeException("Not connected to SignalR hub");
         }
 
+        final String id = streamId != null ? streamId : "stream-" + streamCounter.incrementAndGet();
+        final DownloadStream stream = new DownloadStream(id, window, bufferSize, registry.getDispatchExecutor(),
+            new DownloadStream.Converter() {
+                @Override
+                public Object convert(Object item) {
+                    return convertToJSCompatible(item);
+                }
+            },
+            new DownloadStream.Sink() {
+                @Override
+                public void deliverItems(String streamId, JSArray items) {
+                    JSObject itemsData = new JSObject();
+                    itemsData.put("streamId", streamId);
+                    itemsData.put("items", items);
+                    notifyListeners("onStreamItems", itemsData);
+                }
+
+                @Override
+                public void complete(String streamId, Throwable error) {
+                    downloadStreams.remove(streamId);
+                    JSObject completeData = new JSObject();
+                    completeData.put("streamId", streamId);
+                    if (error != null) {
+                        completeData.put("error", error.getMessage());
+                    }
+                    notifyListeners("onStreamComplete", completeData);
+                }
+            }
+        );
+        downloadStreams.put(id, stream);
+
         try {
-            // Remove existing subscription if any
-            off(eventName);
-            
-            Subscription subscription;
-            
-            // For the ChatHub, ReceiveMessage sends two parameters: user and message
-            if ("ReceiveMessage".equals(eventName)) {
-                subscription = hubConnection.on(eventName, 
-                    (user, message) -> {
-                        // Create an array with both parameters
-                        Object[] data = new Object[]{user, message};
-                        handleReceivedEvent(eventName, data);
-                    }, 
-                    String.class, String.class
+            stream.attach(hubConnection.stream(getPayloadType(), methodName, convertJSONArrayToObjectArray(args)).subscribe(
+                new Consumer<Object>() {
+                    @Override
+                    public void accept(Object item) {
+                        stream.onItem(item);
+                    }
+                },
+                new Consumer<Throwable>() {
+                    @Override
+                    public void accept(Throwable throwable) {
+                        stream.onError(throwable);
+                    }
+                },
+                new Action() {
+                    @Override
+                    public void run() {
+                        stream.onComplete();
+                    }
+                }
+            ));
+        } catch (Exception e) {
+            downloadStreams.remove(id);
+            Log.e(TAG, "Error starting stream: " + methodName, e);
+            throw new RuntimeException("Failed to start stream: " + e.getMessage());
+        }
+
+        Log.d(TAG, "Started stream " + id + " for method: " + methodName);
+        return id;
+    }
+
+    public void requestStreamItems(String streamId, long count) {
+        DownloadStream stream = downloadStreams.get(streamId);
+        if (stream != null) {
+            stream.request(count);
+        }
+    }
+
+    public void cancelStream(String streamId) {
+        DownloadStream stream = downloadStreams.remove(streamId);
+        if (stream != null) {
+            stream.cancel();
+            Log.d(TAG, "Cancelled stream " + streamId);
+        }
+    }
+
+    // Calls a hub method whose last argument is a stream fed by uploadChunks()
+    public String startUpload(String streamId, String methodName, JSONArray args, boolean expectResult) {
+        if (!isConnected()) {
+            throw new RuntimeException("Not connected to SignalR hub");
+        }
+
+        String id = streamId != null ? streamId : "upload-" + streamCounter.incrementAndGet();
+        Object[] baseArgs = convertJSONArrayToObjectArray(args);
+        Object[] streamArgs = new Object[baseArgs.length + 1];
+        System.arraycopy(baseArgs, 0, streamArgs, 0, baseArgs.length);
+        PublishSubject<Object> subject = PublishSubject.create();
+        streamArgs[baseArgs.length] = subject;
+
+        try {
+            CompletableFuture<Object> result = null;
+            if (expectResult) {
+                final CompletableFuture<Object> future = new CompletableFuture<>();
+                hubConnection.invoke(getPayloadType(), methodName, streamArgs).subscribe(
+                    new Consumer<Object>() {
+                        @Override
+                        public void accept(Object value) {
+                            completeConverted(future, value);
+                        }
+                    },
+                    new Consumer<Throwable>() {
+                        @Override
+                        public void accept(Throwable throwable) {
+                            future.completeExceptionally(throwable);
+                        }
+                    }
                 );
+                result = future;
             } else {
-                // For other events that might have different parameter counts
-                subscription = hubConnection.on(eventName, 
-                    (data) -> {
-                        handleReceivedEvent(eventName, data);
-                    }, 
-                    Object.class
-                );
+                hubConnection.send(methodName, streamArgs);
             }
-            
-            eventSubscriptions.put(eventName, subscription);
-            Log.d(TAG, "Subscribed to event: " + eventName);
+            uploads.put(id, new Upload(subject, result));
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting upload: " + methodName, e);
+            throw new RuntimeException("Failed to start upload: " + e.getMessage());
+        }
+
+        Log.d(TAG, "Started upload " + id + " for method: " + methodName);
+        return id;
+    }
+
+    public void uploadChunks(String streamId, JSONArray chunks) {
+        Upload upload = uploads.get(streamId);
+        if (upload == null) {
+            throw new RuntimeException("Unknown upload: " + streamId);
+        }
+
+        for (Object chunk : convertJSONArrayToObjectArray(chunks)) {
+            if (chunk == null) {
+                throw new RuntimeException("Upload chunks can't be null");
+            }
+            upload.subject.onNext(chunk);
+        }
+    }
+
+    // Ends the upload; the future carries the hub method's result when one was expected
+    public CompletableFuture<Object> completeUpload(String streamId, String error) {
+        Upload upload = uploads.remove(streamId);
+        if (upload == null) {
+            throw new RuntimeException("Unknown upload: " + streamId);
+        }
+
+        if (error != null) {
+            upload.subject.onError(new RuntimeException(error));
+        } else {
+            upload.subject.onComplete();
+        }
+        return upload.result != null ? upload.result : CompletableFuture.completedFuture(null);
+    }
+
+    // Adds a subscriber to the event. The first subscriber registers the hub handler with its
+    // options; later ones share it. Returns the subscriber's id, the number of subscribers and,
+    // for sticky events, the values received so far.
+    public synchronized JSObject on(String eventName, final JSONArray argTypes, final JSONObject filterOptions,
+                                    final JSONObject conflation, final Object stickyOption) {
+        if (hubConnection == null) {
+            throw new RuntimeException("Connection not initialized");
+        }
+
+        try {
+            String subscriptionId = eventSubscriptions.add(eventName, new EventSubscriptions.Factory() {
+                @Override
+                public EventSubscriptions.Entry create(String name) {
+                    EventSchema schema = EventSchema.fromOptions(name, argTypes);
+                    EventFilter filter = filterOptions != null ? EventFilter.fromOptions(filterOptions) : null;
+                    EventConflator conflator = conflation != null ? createConflator(name, conflation) : null;
+                    StickyCache.Slot sticky = stickyCache.open(name, stickyOption);
+                    EventSubscriptions.Entry entry = new EventSubscriptions.Entry(name, schema, filter, conflator, sticky);
+                    entry.handler = isEventPaused(name) ? null : registerHandler(entry);
+                    Log.d(TAG, "Subscribed to event: " + name);
+                    return entry;
+                }
+            });
+
+            JSObject result = new JSObject();
+            result.put("subscriptionId", subscriptionId);
+            result.put("subscribers", eventSubscriptions.getSubscriberCount(eventName));
+            EventSubscriptions.Entry entry = eventSubscriptions.get(eventName);
+            if (entry != null && entry.sticky != null) {
+                result.put("sticky", stickyEvents(entry.sticky));
+            }
+            return result;
         } catch (Exception e) {
             Log.e(TAG, "Error subscribing to event: " + eventName, e);
             throw new RuntimeException("Failed to subscribe to event: " + e.getMessage());
         }
     }
 
-    public void off(String eventName) {
-        Subscription subscription = eventSubscriptions.remove(eventName);
-        if (subscription != null) {
-            subscription.unsubscribe();
+    // Registers a handler with the event's declared arity; a single argument is delivered as is,
+    // several arguments as an array. The transport thread only queues the decoded message.
+    private Subscription registerHandler(final EventSubscriptions.Entry entry) {
+        final String channel = perEventChannels ? "onReceive:" + entry.eventName : "onReceive";
+        return entry.schema.register(hubConnection, entry.eventName, getPayloadType(), new EventSchema.Receiver() {
+            @Override
+            public void receive(Object[] args) {
+                Object data = args.length == 1 ? args[0] : args;
+                EventDispatcher dispatcher = eventDispatcher;
+                if (dispatcher != null) {
+                    dispatcher.receive(entry, channel, data);
+                } else {
+                    processReceivedEvent(entry, channel, data);
+                }
+            }
+        });
+    }
+
+    // Runs on the dispatch executor. The payload is sized once here and the size reused for the
+    // metrics, the sticky cache and the largePayloads threshold; only a projection is sized again.
+    // With no JS listener on the channel it is not walked at all, unless the sticky cache keeps it.
+    void processReceivedEvent(EventSubscriptions.Entry entry, String channel, Object data) {
+        if (entry.closed) return;
+
+        String eventName = entry.eventName;
+        StickyCache.Slot sticky = entry.sticky;
+        boolean listened = hasListeners(channel);
+        if (!listened && sticky == null) {
+            metrics.recordReceive(eventName, 0);
+            return;
+        }
+
+        long bytes = PayloadConverter.estimateSize(data);
+        metrics.recordReceive(eventName, bytes);
+        EventFilter filter = entry.filter;
+        if (filter != null) {
+            // Rejected events stop here; accepted ones only carry the selected fields from now on
+            if (!filter.accepts(data)) {
+                metrics.recordFiltered(eventName);
+                return;
+            }
+            Object projected = filter.project(data);
+            if (projected != data) {
+                data = projected;
+                bytes = PayloadConverter.estimateSize(data);
+            }
+        }
+        if (sticky != null) {
+            // Kept decoded; only converted if a later subscriber reads it
+            sticky.put(data, bytes);
+            if (entry.idle || !listened) return;
+        }
+        EventConflator conflator = entry.conflator;
+        if (conflator != null) {
+            // Superseded values are dropped here, before any conversion work
+            if (conflator.offer(data)) {
+                metrics.recordConflated(eventName);
+            }
+        } else {
+            handleReceivedEvent(eventName, channel, data, bytes);
+        }
+    }
+
+    // Parses the "conflate" option of on(), e.g. { keyPath: "symbol", minIntervalMs: 250 }
+    private EventConflator createConflator(final String eventName, JSONObject conflation) {
+        long minIntervalMs = conflation.optLong("minIntervalMs", 0);
+        if (minIntervalMs < 0) {
+            throw new IllegalArgumentException("minIntervalMs must not be negative");
+        }
+        ValuePath keyPath = ValuePath.parse(conflation.optString("keyPath", null));
+        final String channel = perEventChannels ? "onReceive:" + eventName : "onReceive";
+
+        return new EventConflator(keyPath, minIntervalMs, registry.getScheduler(), new EventConflator.Sink() {
+            @Override
+            public void emit(Object data) {
+                dispatchEvent(eventName, channel, data);
+            }
+        });
+    }
+
+    // Hands an event emitted by a conflator to the dispatch executor
+    private void dispatchEvent(String eventName, String channel, Object data) {
+        EventDispatcher dispatcher = eventDispatcher;
+        if (dispatcher != null) {
+            dispatcher.dispatch(eventName, channel, data);
+        } else {
+            handleReceivedEvent(eventName, channel, data);
+        }
+    }
+
+    // Removes a subscriber, or the most recent one without an id; the hub handler is only
+    // unregistered when the last subscriber leaves. A sticky event keeps collecting values for
+    // its retainMs after that, unless released. Returns the number of subscribers left.
+    public synchronized int off(String eventName, String subscriptionId, boolean releaseSticky) {
+        final EventSubscriptions.Entry entry = eventSubscriptions.remove(eventName, subscriptionId, releaseSticky);
+        if (entry == null) {
+            return eventSubscriptions.getSubscriberCount(eventName);
+        }
+
+        if (entry.idle) {
+            if (entry.conflator != null) {
+                // Nothing pending is delivered after the last subscriber left
+                entry.conflator.cancel();
+            }
+            eventSubscriptions.setExpiry(entry, registry.getScheduler().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (eventSubscriptions.expire(entry)) {
+                        entry.close();
+                        Log.d(TAG, "Sticky values expired for event: " + entry.eventName);
+                    }
+                }
+            }, entry.sticky.retainMs, TimeUnit.MILLISECONDS));
+            Log.d(TAG, "Unsubscribed from event, keeping its sticky values: " + eventName);
+        } else {
+            entry.close();
             Log.d(TAG, "Unsubscribed from event: " + eventName);
         }
+        return eventSubscriptions.getSubscriberCount(eventName);
     }
 
-    private void handleReceivedEvent(String eventName, Object data) {
-        if (plugin != null) {
+    // The conversion and dispatch hot paths are package-private so the JVM benchmarks can drive them
+    void handleReceivedEvent(String eventName, String channel, Object data) {
+        handleReceivedEvent(eventName, channel, data, -1);
+    }
+
+    // bytes is the estimated size of data, or -1 when it has not been computed yet
+    private void handleReceivedEvent(String eventName, String channel, Object data, long bytes) {
+        // Nothing listens on the channel, skip conversion entirely
+        if (!hasListeners(channel)) return;
+
+        long seq = eventSeq.incrementAndGet();
+        BackgroundBuffer buffer = backgroundBuffer;
+        if (buffer != null && buffer.offer(seq, eventName, channel, data)) return;
+
+        deliverEvent(seq, eventName, channel, data, bytes, false);
+    }
+
+    private boolean hasListeners(String channel) {
+        // Batches always go out on onReceiveBatch, regardless of per-event channels
+        String listenerChannel = eventBatcher != null ? "onReceiveBatch" : channel;
+        return plugin != null && plugin.hasListenersFor(listenerChannel);
+    }
+
+    private void deliverEvent(long seq, String eventName, String channel, Object data, long bytes, boolean replayed) {
+        EventBatcher batcher = eventBatcher;
+        if (batcher != null) {
+            channel = "onReceiveBatch";
+        }
+
+        JSObject eventData = new JSObject();
+        eventData.put("handle", handle);
+        eventData.put("eventName", eventName);
+        eventData.put("seq", seq);
+        if (replayed) {
+            eventData.put("replayed", true);
+        }
+        putEventData(eventData, eventName, data, bytes);
+        
+        if (batcher != null) {
+            batcher.add(eventData);
+        } else {
+            notifyListeners(channel, eventData);
+        }
+    }
+
+    // The values a sticky event received so far, shaped like delivered events
+    private JSArray stickyEvents(StickyCache.Slot slot) {
+        JSArray events = new JSArray();
+        for (StickyCache.Value value : stickyCache.get(slot)) {
             JSObject eventData = new JSObject();
-            eventData.put("eventName", eventName);
-            
-            // Convert the received data to a format that can be sent to JavaScript
-            if (data != null) {
-                try {
-                    // Handle array data (like from ReceiveMessage with user and message parameters)
-                    if (data instanceof Object[]) {
-                        Object[] dataArray = (Object[]) data;
-                        JSArray jsArray = new JSArray();
-                        for (Object item : dataArray) {
-                            jsArray.put(convertToJSCompatible(item));
-                        }
-                        eventData.put("data", jsArray);
-                    } else {
-                        eventData.put("data", convertToJSCompatible(data));
+            eventData.put("handle", handle);
+            eventData.put("eventName", slot.eventName);
+            eventData.put("sticky", true);
+            eventData.put("receivedAt", value.receivedAt);
+            putEventData(eventData, slot.eventName, value.data, value.bytes);
+            events.put(eventData);
+        }
+        return events;
+    }
+
+    // Puts the received data converted for JS, or a file reference when it is above the
+    // largePayloads threshold
+    private void putEventData(JSObject eventData, String eventName, Object data, long bytes) {
+        PayloadStore store = payloadStore;
+        if (store != null && store.shouldSpill(data, bytes)) {
+            try {
+                eventData.put("payloadFile", store.write(data).toJSObject());
+                return;
+            } catch (Exception e) {
+                Log.w(TAG, "Error writing large event to a file, sending it inline", e);
+            }
+        }
+        
+        // Convert the received data to a format that can be sent to JavaScript
+        if (data != null) {
+            try {
+                // Handle array data from events declaring several arguments
+                if (data instanceof Object[]) {
+                    Object[] dataArray = (Object[]) data;
+                    JSArray jsArray = new JSArray();
+                    for (Object item : dataArray) {
+                        jsArray.put(convertToJSCompatible(item));
                     }
-                    
+                    eventData.put("data", jsArray);
+                } else {
+                    eventData.put("data", convertToJSCompatible(data));
+                }
+                
+                if (Log.isLoggable(TAG, Log.DEBUG)) {
                     Log.d(TAG, "Received SignalR event: " + eventName + " with data: " + eventData.toString());
-                } catch (Exception e) {
-                    Log.w(TAG, "Error converting event data", e);
-                    eventData.put("data", data.toString());
                 }
+            } catch (Exception e) {
+                Log.w(TAG, "Error converting event data", e);
+                eventData.put("data", data.toString());
             }
-            
-            plugin.notifyListenersPublic("onReceive", eventData);
         }
     }
 
-    private Object convertToJSCompatible(Object data) {
-        if (data == null) return null;
-        
-        // Handle common Java types that can be serialized to JSON
-        if (data instanceof String || data instanceof Number || data instanceof Boolean) {
-            return data;
+    // Called when the app goes to the background: switches to the background profile, unregisters
+    // the paused events and schedules the graceful disconnect, then holds back received events
+    public synchronized void enterBackground() {
+        inBackground = true;
+        PowerProfiles power = powerProfiles;
+        if (power != null) {
+            applyPowerProfile(hubConnection);
+            for (String eventName : power.pausedEvents) {
+                EventSubscriptions.Entry entry = eventSubscriptions.get(eventName);
+                Subscription handler = entry != null ? entry.handler : null;
+                if (handler != null) {
+                    entry.handler = null;
+                    handler.unsubscribe();
+                }
+            }
+            if (power.disconnectAfterMs >= 0 && suspendTask == null) {
+                suspendTask = registry.getScheduler().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        suspendConnection();
+                    }
+                }, power.disconnectAfterMs, TimeUnit.MILLISECONDS);
+            }
         }
-        
-        // For complex objects, try to serialize with Gson and then parse as JSON
+        pauseDelivery();
+    }
+
+    // Called when the app returns: replays held events, restores the foreground profile and the
+    // paused events, and reopens a suspended connection right away instead of on the retry schedule
+    public synchronized void enterForeground() {
+        inBackground = false;
+        if (suspendTask != null) {
+            suspendTask.cancel(false);
+            suspendTask = null;
+        }
+        resumeDelivery();
+        if (powerProfiles == null) return;
+
+        if (suspended) {
+            suspended = false;
+            stopRequested = false;
+            reconnecting = true;
+            reconnectAttempt = 0;
+            JSObject stateData = new JSObject();
+            stateData.put("state", "reconnecting");
+            notifyListeners("onConnectionStateChanged", stateData);
+            Log.d(TAG, "Resuming suspended connection");
+            // Rebuilding registers every event again
+            registry.getScheduler().execute(new Runnable() {
+                @Override
+                public void run() {
+                    attemptReconnect();
+                }
+            });
+            return;
+        }
+
+        applyPowerProfile(hubConnection);
+        for (EventSubscriptions.Entry entry : eventSubscriptions.all()) {
+            if (entry.handler == null) {
+                entry.handler = registerHandler(entry);
+            }
+        }
+    }
+
+    // Stops a connection that stayed in the background for the grace period. Calls still waiting
+    // for a response keep it open until the next check.
+    private synchronized void suspendConnection() {
+        suspendTask = null;
+        PowerProfiles power = powerProfiles;
+        if (!inBackground || power == null || stopRequested || reconnecting || hubConnection == null) return;
+
+        if (invocations != null && invocations.getInFlightCount() > 0) {
+            suspendTask = registry.getScheduler().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    suspendConnection();
+                }
+            }, Math.max(1000, power.disconnectAfterMs / 4), TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        suspended = true;
+        stopRequested = true;
         try {
-            Gson gson = new Gson();
-            String jsonString = gson.toJson(data);
-            
-            if (jsonString.startsWith("{")) {
-                return new JSONObject(jsonString);
-            } else if (jsonString.startsWith("[")) {
-                return new JSONArray(jsonString);
-            } else {
-                return jsonString;
+            hubConnection.stop();
+            metrics.recordSuspend();
+        } catch (Exception e) {
+            Log.w(TAG, "Error suspending connection", e);
+        }
+    }
+
+    private void applyPowerProfile(HubConnection connection) {
+        PowerProfiles power = powerProfiles;
+        if (power == null || connection == null) return;
+        (inBackground ? power.background : power.foreground).apply(connection);
+    }
+
+    private boolean isEventPaused(String eventName) {
+        PowerProfiles power = powerProfiles;
+        return inBackground && power != null && power.pausedEvents.contains(eventName);
+    }
+
+    // Received events are buffered instead of delivered
+    private void pauseDelivery() {
+        BackgroundBuffer buffer = backgroundBuffer;
+        if (buffer == null) return;
+
+        if (eventBatcher != null) {
+            eventBatcher.flush();
+        }
+        buffer.pause();
+    }
+
+    // Replays the buffered events in order on the dispatch executor, a chunk per run, then reports
+    // the pause with onReplayComplete. The scheduler only paces the chunks: converting them on it
+    // would hold up the reconnects, timeouts and flushes of every connection.
+    private void resumeDelivery() {
+        final BackgroundBuffer buffer = backgroundBuffer;
+        if (buffer == null) return;
+
+        final JSObject summary = buffer.resume();
+        if (summary == null) return;
+        final Runnable replayChunk = new Runnable() {
+            @Override
+            public void run() {
+                if (backgroundBuffer != buffer) return;
+
+                List<BackgroundBuffer.Event> events = buffer.drain(REPLAY_CHUNK_SIZE);
+                if (events.isEmpty()) {
+                    // Still paused means the app went back to the background mid-replay
+                    if (!buffer.isPaused()) {
+                        notifyListeners("onReplayComplete", summary);
+                    }
+                    return;
+                }
+                for (BackgroundBuffer.Event event : events) {
+                    try {
+                        deliverEvent(event.seq, event.eventName, event.channel, event.data, -1, true);
+                    } catch (Exception e) {
+                        Log.w(TAG, "Error replaying event: " + event.eventName, e);
+                    }
+                }
+                final Runnable next = this;
+                registry.getScheduler().schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        registry.getDispatchExecutor().execute(next);
+                    }
+                }, REPLAY_CHUNK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            }
+        };
+        registry.getDispatchExecutor().execute(replayChunk);
+    }
+
+    // Every event emitted to JS carries the handle of the connection it came from
+    private void notifyListeners(String eventName, JSObject data) {
+        if (plugin != null) {
+            data.put("handle", handle);
+            long startedAt = System.nanoTime();
+            plugin.notifyListenersPublic(eventName, data);
+            metrics.recordBridge(System.nanoTime() - startedAt);
+        }
+    }
+
+    public JSObject getMetrics() {
+        JSObject result = metrics.snapshot();
+        result.put("handle", handle);
+        EventDispatcher dispatcher = eventDispatcher;
+        if (dispatcher != null) {
+            result.put("dispatch", dispatcher.getStatus());
+        }
+        if (invocations != null) {
+            result.put("pendingInvocations", invocations.getStatus());
+        }
+        if (invocationCache != null) {
+            result.put("cache", invocationCache.getStats());
+        }
+        JSObject sticky = new JSObject();
+        sticky.put("bytes", stickyCache.getBytes());
+        sticky.put("evicted", stickyCache.getEvictedCount());
+        result.put("sticky", sticky);
+        return result;
+    }
+
+    // Under JSON, decoding to the raw Gson tree lets PayloadConverter walk it once.
+    // MessagePack values are decoded to plain maps, lists and primitives instead.
+    @SuppressWarnings("unchecked")
+    private Class<Object> getPayloadType() {
+        return (Class<Object>) (Class<?>) (useMessagePack ? Object.class : JsonElement.class);
+    }
+
+    // Completes with the converted result on the dispatch executor; converting a large result, or
+    // writing it to a file, would otherwise hold up the transport thread delivering it
+    private void completeConverted(final CompletableFuture<Object> future, final Object result) {
+        registry.getDispatchExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    future.complete(convertResult(result));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            }
+        });
+    }
+
+    // Converts an invocation result, or writes it to a file when it is above the largePayloads threshold
+    private Object convertResult(Object result) {
+        PayloadStore store = payloadStore;
+        if (store != null && store.shouldSpill(result, -1)) {
+            try {
+                return store.write(result);
+            } catch (Exception e) {
+                Log.w(TAG, "Error writing large result to a file, sending it inline", e);
             }
+        }
+        return convertToJSCompatible(result);
+    }
+
+    // Puts a converted result into a response: a file reference as "payloadFile", anything else as "result"
+    static void putResult(JSObject response, Object result) {
+        if (result instanceof PayloadStore.PayloadFile) {
+            response.put("payloadFile", ((PayloadStore.PayloadFile) result).toJSObject());
+        } else {
+            response.put("result", result);
+        }
+    }
+
+    public boolean releasePayloadFile(String fileId) {
+        PayloadStore store = payloadStore;
+        return store != null && store.release(fileId);
+    }
+
+    Object convertToJSCompatible(Object data) {
+        if (data == null) return null;
+
+        long startedAt = System.nanoTime();
+        try {
+            return PayloadConverter.toJS(data);
         } catch (Exception e) {
-            Log.w(TAG, "Failed to serialize data, returning string representation", e);
+            Log.w(TAG, "Failed to convert data, returning string representation", e);
             return data.toString();
+        } finally {
+            metrics.recordConversion(System.nanoTime() - startedAt);
         }
     }
 
@@ -385,13 +1717,14 @@ public class CapacitorSignalR {
         }
     }
 
-    private Object[] convertJSONArrayToObjectArray(JSONArray jsonArray) {
+    Object[] convertJSONArrayToObjectArray(JSONArray jsonArray) {
         if (jsonArray == null) return new Object[0];
         
         try {
+            // Plain maps and lists encode the same way under the JSON and MessagePack protocols
             Object[] result = new Object[jsonArray.length()];
             for (int i = 0; i < jsonArray.length(); i++) {
-                result[i] = jsonArray.get(i);
+                result[i] = PayloadConverter.toJava(jsonArray.get(i));
             }
             return result;
         } catch (Exception e) {
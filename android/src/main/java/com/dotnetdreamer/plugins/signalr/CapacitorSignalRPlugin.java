@@ -1,53 +1,208 @@
 package com.dotnetdreamer.plugins.signalr;
 
+import android.util.Log;
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
+import java.io.File;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONObject;
 
 @CapacitorPlugin(name = "CapacitorSignalR")
 public class CapacitorSignalRPlugin extends Plugin {
+    private static final String TAG = "CapacitorSignalR";
 
-    private CapacitorSignalR implementation = new CapacitorSignalR();
+    private final ConnectionRegistry connections = new ConnectionRegistry();
+    private final Map<String, AtomicInteger> listenerCounts = new ConcurrentHashMap<>();
 
     @Override
     public void load() {
-        implementation.setPlugin(this);
+        super.load();
+        if (getContext() != null) {
+            connections.getNegotiateCache().setFile(new File(new File(getContext().getFilesDir(), "capacitor-signalr"), "negotiate-cache.json"));
+        }
+        warmUp();
+    }
+
+    // Pre-starts the connection described by plugins.CapacitorSignalR.warmup in the Capacitor config,
+    // so it is already connecting while the web app loads. A later create() for the same handle and
+    // URL adopts it instead of connecting again.
+    private void warmUp() {
+        try {
+            JSONObject warmup = getConfig() != null ? getConfig().getObject("warmup") : null;
+            if (warmup == null || !warmup.has("url")) return;
+
+            JSObject options = JSObject.fromJSONObject(warmup);
+            String handle = options.getString("handle", ConnectionRegistry.DEFAULT_HANDLE);
+            CapacitorSignalR implementation = new CapacitorSignalR(handle, connections);
+            implementation.setPlugin(this);
+            implementation.create(options);
+            connections.put(handle, implementation);
+            implementation.prestart();
+            Log.d(TAG, "Warming up connection " + handle);
+        } catch (Exception e) {
+            Log.w(TAG, "Error warming up connection", e);
+        }
+    }
+
+    // While the WebView is paused, connections buffer received events instead of delivering them
+    // and switch to their background power profile
+    @Override
+    protected void handleOnPause() {
+        super.handleOnPause();
+        for (CapacitorSignalR connection : connections.all()) {
+            connection.enterBackground();
+        }
+    }
+
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+        for (CapacitorSignalR connection : connections.all()) {
+            connection.enterForeground();
+        }
     }
 
     public void notifyListenersPublic(String eventName, JSObject data) {
         notifyListeners(eventName, data);
     }
 
+    // Lets connections skip converting events nobody listens to
+    public boolean hasListenersFor(String eventName) {
+        AtomicInteger count = listenerCounts.get(eventName);
+        return count != null && count.get() > 0;
+    }
+
+    @Override
+    @PluginMethod(returnType = PluginMethod.RETURN_NONE)
+    public void addListener(PluginCall call) {
+        super.addListener(call);
+        String eventName = call.getString("eventName");
+        if (eventName != null) {
+            AtomicInteger count = listenerCounts.get(eventName);
+            if (count == null) {
+                listenerCounts.putIfAbsent(eventName, new AtomicInteger());
+                count = listenerCounts.get(eventName);
+            }
+            count.incrementAndGet();
+        }
+    }
+
+    @Override
+    @PluginMethod(returnType = PluginMethod.RETURN_NONE)
+    public void removeListener(PluginCall call) {
+        String eventName = call.getString("eventName");
+        String callbackId = call.getString("callbackId");
+        boolean registered = callbackId != null && getBridge().getSavedCall(callbackId) != null;
+        super.removeListener(call);
+        if (registered && eventName != null) {
+            AtomicInteger count = listenerCounts.get(eventName);
+            if (count != null && count.decrementAndGet() <= 0) {
+                listenerCounts.remove(eventName, count);
+            }
+        }
+    }
+
+    @Override
+    @PluginMethod(returnType = PluginMethod.RETURN_PROMISE)
+    public void removeAllListeners(PluginCall call) {
+        listenerCounts.clear();
+        super.removeAllListeners(call);
+    }
+
+    @PluginMethod
+    public void getListenerCounts(PluginCall call) {
+        JSObject counts = new JSObject();
+        for (Map.Entry<String, AtomicInteger> entry : listenerCounts.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        JSObject result = new JSObject();
+        result.put("counts", counts);
+        call.resolve(result);
+    }
+
+    // Resolves the connection addressed by the call's "handle", falling back to the default one
+    private CapacitorSignalR getConnection(PluginCall call) {
+        CapacitorSignalR connection = connections.get(call.getString("handle"));
+        if (connection == null) {
+            throw new RuntimeException("Connection not initialized");
+        }
+        return connection;
+    }
+
     @PluginMethod
     public void create(PluginCall call) {
         try {
             JSObject options = call.getData();
-            implementation.create(options);
-            
-            // Start the connection
-            CompletableFuture<JSObject> startFuture = implementation.start();
-            
-            startFuture.whenComplete((result, throwable) -> {
-                if (throwable != null) {
-                    call.reject("Failed to create connection: " + throwable.getMessage());
-                } else {
-                    call.resolve(result);
-                }
-            });
-            
+            String handle = call.getString("handle", ConnectionRegistry.DEFAULT_HANDLE);
+
+            // Reuse a connection pre-started by the warm-up when it matches
+            CapacitorSignalR warm = connections.get(handle);
+            if (warm != null && warm.isWarmFor(options)) {
+                adoptWarmConnection(call, handle, warm, options);
+                return;
+            }
+
+            createConnection(call, handle, options);
         } catch (Exception e) {
             call.reject("Error creating SignalR connection: " + e.getMessage());
         }
     }
 
+    private void adoptWarmConnection(final PluginCall call, final String handle, final CapacitorSignalR warm, final JSObject options) {
+        warm.adopt(options).whenComplete((result, throwable) -> {
+            if (throwable == null) {
+                call.resolve(result);
+                return;
+            }
+            Log.w(TAG, "Warm-up connection failed, connecting again", throwable);
+            try {
+                createConnection(call, handle, options);
+            } catch (Exception e) {
+                call.reject("Error creating SignalR connection: " + e.getMessage());
+            }
+        });
+    }
+
+    private void createConnection(final PluginCall call, String handle, JSObject options) {
+        // Creating a handle again replaces the connection registered under it
+        CapacitorSignalR previous = connections.remove(handle);
+        if (previous != null) {
+            previous.dispose();
+        }
+
+        CapacitorSignalR implementation = new CapacitorSignalR(handle, connections);
+        implementation.setPlugin(this);
+        implementation.create(options);
+        connections.put(handle, implementation);
+        
+        // Start the connection
+        CompletableFuture<JSObject> startFuture = implementation.start();
+        
+        startFuture.whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                call.reject("Failed to create connection: " + throwable.getMessage());
+            } else {
+                call.resolve(result);
+            }
+        });
+    }
+
     @PluginMethod
     public void disconnect(PluginCall call) {
         try {
-            implementation.disconnect();
+            CapacitorSignalR implementation = connections.get(call.getString("handle"));
+            if (implementation != null) {
+                implementation.disconnect();
+            }
             call.resolve();
         } catch (Exception e) {
             call.reject("Error disconnecting: " + e.getMessage());
@@ -57,7 +212,8 @@ public class CapacitorSignalRPlugin extends Plugin {
     @PluginMethod
     public void getConnectionId(PluginCall call) {
         try {
-            String connectionId = implementation.getConnectionId();
+            CapacitorSignalR implementation = connections.get(call.getString("handle"));
+            String connectionId = implementation != null ? implementation.getConnectionId() : null;
             JSObject result = new JSObject();
             result.put("connectionId", connectionId);
             call.resolve(result);
@@ -69,7 +225,8 @@ public class CapacitorSignalRPlugin extends Plugin {
     @PluginMethod
     public void getConnectionState(PluginCall call) {
         try {
-            String state = implementation.getConnectionState();
+            CapacitorSignalR implementation = connections.get(call.getString("handle"));
+            String state = implementation != null ? implementation.getConnectionState() : "disconnected";
             JSObject result = new JSObject();
             result.put("state", state);
             call.resolve(result);
@@ -78,6 +235,26 @@ public class CapacitorSignalRPlugin extends Plugin {
         }
     }
 
+    @PluginMethod
+    public void getOutboxStatus(PluginCall call) {
+        try {
+            CapacitorSignalR implementation = connections.get(call.getString("handle"));
+            JSObject status = implementation != null ? implementation.getOutboxStatus() : new JSObject();
+            call.resolve(status);
+        } catch (Exception e) {
+            call.reject("Error getting outbox status: " + e.getMessage(), e);
+        }
+    }
+
+    @PluginMethod
+    public void getMetrics(PluginCall call) {
+        try {
+            call.resolve(getConnection(call).getMetrics());
+        } catch (Exception e) {
+            call.reject("Error getting metrics: " + e.getMessage(), e);
+        }
+    }
+
     @PluginMethod
     public void invoke(PluginCall call) {
         try {
@@ -87,8 +264,13 @@ public class CapacitorSignalRPlugin extends Plugin {
                 return;
             }
             
-            implementation.invoke(methodName, call.getData().getJSONArray("args"));
-            call.resolve();
+            getConnection(call).invoke(methodName, call.getData().getJSONArray("args")).whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    call.reject("Error invoking method: " + throwable.getMessage());
+                } else {
+                    call.resolve();
+                }
+            });
         } catch (Exception e) {
             call.reject("Error invoking method: " + e.getMessage(), e);
         }
@@ -103,14 +285,22 @@ public class CapacitorSignalRPlugin extends Plugin {
                 return;
             }
             
-            CompletableFuture<Object> invokeFuture = implementation.invokeWithResult(methodName, call.getData().getJSONArray("args"));
+            Long timeoutMs = call.getData().has("timeoutMs") ? call.getData().optLong("timeoutMs") : null;
+            CompletableFuture<Object> invokeFuture = getConnection(call).invokeWithResult(
+                methodName,
+                call.getData().getJSONArray("args"),
+                call.getString("invocationId"),
+                timeoutMs
+            );
             
             invokeFuture.whenComplete((result, throwable) -> {
-                if (throwable != null) {
+                if (throwable instanceof InvocationTable.InvocationException) {
+                    call.reject("Error invoking method: " + throwable.getMessage(), ((InvocationTable.InvocationException) throwable).code);
+                } else if (throwable != null) {
                     call.reject("Error invoking method: " + throwable.getMessage());
                 } else {
                     JSObject response = new JSObject();
-                    response.put("result", result);
+                    CapacitorSignalR.putResult(response, result);
                     call.resolve(response);
                 }
             });
@@ -120,6 +310,197 @@ public class CapacitorSignalRPlugin extends Plugin {
         }
     }
 
+    @PluginMethod
+    public void cancelInvocation(PluginCall call) {
+        try {
+            String invocationId = call.getString("invocationId");
+            if (invocationId == null) {
+                call.reject("Invocation id is required");
+                return;
+            }
+
+            JSObject result = new JSObject();
+            result.put("canceled", getConnection(call).cancelInvocation(invocationId));
+            call.resolve(result);
+        } catch (Exception e) {
+            call.reject("Error canceling invocation: " + e.getMessage(), e);
+        }
+    }
+
+    @PluginMethod
+    public void invokeBatch(PluginCall call) {
+        try {
+            JSArray calls = call.getArray("calls");
+            if (calls == null) {
+                call.reject("Calls are required");
+                return;
+            }
+
+            getConnection(call).invokeBatch(calls).whenComplete((results, throwable) -> {
+                if (throwable != null) {
+                    call.reject("Error invoking batch: " + throwable.getMessage());
+                } else {
+                    JSObject response = new JSObject();
+                    response.put("results", results);
+                    call.resolve(response);
+                }
+            });
+        } catch (Exception e) {
+            call.reject("Error invoking batch: " + e.getMessage(), e);
+        }
+    }
+
+    @PluginMethod
+    public void releasePayloadFile(PluginCall call) {
+        try {
+            String fileId = call.getString("fileId");
+            if (fileId == null) {
+                call.reject("File id is required");
+                return;
+            }
+
+            CapacitorSignalR implementation = connections.get(call.getString("handle"));
+            JSObject result = new JSObject();
+            result.put("released", implementation != null && implementation.releasePayloadFile(fileId));
+            call.resolve(result);
+        } catch (Exception e) {
+            call.reject("Error releasing payload file: " + e.getMessage(), e);
+        }
+    }
+
+    @PluginMethod
+    public void invalidateCache(PluginCall call) {
+        try {
+            CapacitorSignalR implementation = connections.get(call.getString("handle"));
+            if (implementation != null) {
+                implementation.invalidateCache(call.getString("methodName"));
+            }
+            call.resolve();
+        } catch (Exception e) {
+            call.reject("Error invalidating cache: " + e.getMessage(), e);
+        }
+    }
+
+    @PluginMethod
+    public void stream(PluginCall call) {
+        try {
+            String methodName = call.getString("methodName");
+            if (methodName == null) {
+                call.reject("Method name is required");
+                return;
+            }
+
+            String streamId = getConnection(call).stream(
+                call.getString("streamId"),
+                methodName,
+                call.getData().optJSONArray("args"),
+                call.getInt("window", 64),
+                call.getInt("bufferSize", 1024)
+            );
+            JSObject result = new JSObject();
+            result.put("streamId", streamId);
+            call.resolve(result);
+        } catch (Exception e) {
+            call.reject("Error starting stream: " + e.getMessage(), e);
+        }
+    }
+
+    @PluginMethod
+    public void streamRequest(PluginCall call) {
+        try {
+            String streamId = call.getString("streamId");
+            if (streamId == null) {
+                call.reject("Stream ID is required");
+                return;
+            }
+
+            getConnection(call).requestStreamItems(streamId, call.getInt("count", 1));
+            call.resolve();
+        } catch (Exception e) {
+            call.reject("Error requesting stream items: " + e.getMessage(), e);
+        }
+    }
+
+    @PluginMethod
+    public void cancelStream(PluginCall call) {
+        try {
+            String streamId = call.getString("streamId");
+            if (streamId == null) {
+                call.reject("Stream ID is required");
+                return;
+            }
+
+            getConnection(call).cancelStream(streamId);
+            call.resolve();
+        } catch (Exception e) {
+            call.reject("Error cancelling stream: " + e.getMessage(), e);
+        }
+    }
+
+    @PluginMethod
+    public void startUpload(PluginCall call) {
+        try {
+            String methodName = call.getString("methodName");
+            if (methodName == null) {
+                call.reject("Method name is required");
+                return;
+            }
+
+            String streamId = getConnection(call).startUpload(
+                call.getString("streamId"),
+                methodName,
+                call.getData().optJSONArray("args"),
+                call.getBoolean("expectResult", false)
+            );
+            JSObject result = new JSObject();
+            result.put("streamId", streamId);
+            call.resolve(result);
+        } catch (Exception e) {
+            call.reject("Error starting upload: " + e.getMessage(), e);
+        }
+    }
+
+    @PluginMethod
+    public void uploadChunks(PluginCall call) {
+        try {
+            String streamId = call.getString("streamId");
+            if (streamId == null) {
+                call.reject("Stream ID is required");
+                return;
+            }
+
+            getConnection(call).uploadChunks(streamId, call.getData().optJSONArray("chunks"));
+            call.resolve();
+        } catch (Exception e) {
+            call.reject("Error uploading chunks: " + e.getMessage(), e);
+        }
+    }
+
+    @PluginMethod
+    public void completeUpload(PluginCall call) {
+        try {
+            String streamId = call.getString("streamId");
+            if (streamId == null) {
+                call.reject("Stream ID is required");
+                return;
+            }
+
+            CompletableFuture<Object> uploadFuture = getConnection(call).completeUpload(streamId, call.getString("error"));
+
+            uploadFuture.whenComplete((result, throwable) -> {
+                if (throwable != null) {
+                    call.reject("Error completing upload: " + throwable.getMessage());
+                } else {
+                    JSObject response = new JSObject();
+                    CapacitorSignalR.putResult(response, result);
+                    call.resolve(response);
+                }
+            });
+        } catch (Exception e) {
+            call.reject("Error completing upload: " + e.getMessage(), e);
+        }
+    }
+
     @PluginMethod
     public void on(PluginCall call) {
         try {
@@ -129,8 +510,8 @@ public class CapacitorSignalRPlugin extends Plugin {
                 return;
             }
             
-            implementation.on(eventName);
-            call.resolve();
+            call.resolve(getConnection(call).on(eventName, call.getData().optJSONArray("args"),
+                call.getData().optJSONObject("filter"), call.getData().optJSONObject("conflate"), call.getData().opt("sticky")));
         } catch (Exception e) {
             call.reject("Error subscribing to event: " + e.getMessage(), e);
         }
@@ -145,8 +526,15 @@ public class CapacitorSignalRPlugin extends Plugin {
                 return;
             }
             
-            implementation.off(eventName);
-            call.resolve();
+            CapacitorSignalR implementation = connections.get(call.getString("handle"));
+            int subscribers = 0;
+            if (implementation != null) {
+                subscribers = implementation.off(eventName, call.getString("subscriptionId"),
+                    call.getBoolean("releaseSticky", false));
+            }
+            JSObject result = new JSObject();
+            result.put("subscribers", subscribers);
+            call.resolve(result);
         } catch (Exception e) {
             call.reject("Error unsubscribing from event: " + e.getMessage(), e);
         }
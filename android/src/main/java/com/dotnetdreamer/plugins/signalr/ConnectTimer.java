@@ -0,0 +1,63 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// Interceptor on a connection's HTTP client that times the steps of start(): negotiate (including
+// a redirected second negotiate) and the WebSocket upgrade. The handshake is what remains of the
+// total. Successful negotiate responses are handed to the NegotiateCache when caching is enabled.
+class ConnectTimer implements Interceptor {
+    private static final String NEGOTIATE_PATH = "/negotiate";
+    private static final long MAX_NEGOTIATE_BYTES = 64 * 1024;
+
+    private final NegotiateCache negotiateCache;
+    private final long negotiateCacheTtlMs;
+    private final AtomicLong negotiateNanos = new AtomicLong();
+    private final AtomicLong transportOpenNanos = new AtomicLong();
+
+    ConnectTimer(NegotiateCache negotiateCache, long negotiateCacheTtlMs) {
+        this.negotiateCache = negotiateCache;
+        this.negotiateCacheTtlMs = negotiateCacheTtlMs;
+    }
+
+    // Called before each start so the timings describe that start only
+    void reset() {
+        negotiateNanos.set(0);
+        transportOpenNanos.set(0);
+    }
+
+    long getNegotiateNanos() {
+        return negotiateNanos.get();
+    }
+
+    long getTransportOpenNanos() {
+        return transportOpenNanos.get();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        long startedAt = System.nanoTime();
+        Response response = chain.proceed(request);
+        long elapsed = System.nanoTime() - startedAt;
+
+        String path = request.url().encodedPath();
+        if (path.endsWith(NEGOTIATE_PATH)) {
+            negotiateNanos.addAndGet(elapsed);
+            if (negotiateCacheTtlMs > 0 && response.isSuccessful()) {
+                // Keyed by the URL negotiate was sent to, so a redirect target never overwrites the hub's entry
+                String url = request.url().toString();
+                String hubUrl = NegotiateCache.keyOf(url);
+                hubUrl = hubUrl.substring(0, hubUrl.length() - NEGOTIATE_PATH.length());
+                negotiateCache.record(hubUrl, response.peekBody(MAX_NEGOTIATE_BYTES).string(), negotiateCacheTtlMs);
+            }
+        } else if ("websocket".equalsIgnoreCase(request.header("Upgrade"))) {
+            transportOpenNanos.set(elapsed);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,125 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import com.microsoft.signalr.Action1;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.SocketFactory;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+// Hub connections keyed by the handle returned from create(), plus the resources they share:
+// OkHttp connection pools, socket factories and one dispatcher (so TCP/TLS sessions and threads
+// are reused across hubs), one scheduler for timers, one pool of threads converting and
+// delivering received messages and the cache of negotiate results. Hubs
+// created with the same "http" pool and socket settings share the same instances.
+class ConnectionRegistry {
+    static final String DEFAULT_HANDLE = "default";
+
+    private final ConcurrentHashMap<String, CapacitorSignalR> connections = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConnectionPool> connectionPools = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SocketFactory> socketFactories = new ConcurrentHashMap<>();
+    private final Dispatcher dispatcher = new Dispatcher();
+    private final NegotiateCache negotiateCache = new NegotiateCache();
+    private ScheduledExecutorService scheduler;
+    private ExecutorService dispatchExecutor;
+
+    CapacitorSignalR get(String handle) {
+        return connections.get(handle != null ? handle : DEFAULT_HANDLE);
+    }
+
+    // Returns the connection previously registered under the same handle, if any
+    CapacitorSignalR put(String handle, CapacitorSignalR connection) {
+        return connections.put(handle, connection);
+    }
+
+    CapacitorSignalR remove(String handle) {
+        return connections.remove(handle);
+    }
+
+    Collection<CapacitorSignalR> all() {
+        return connections.values();
+    }
+
+    Action1<OkHttpClient.Builder> httpClientConfigurer(final HttpClientOptions http) {
+        return new Action1<OkHttpClient.Builder>() {
+            @Override
+            public void invoke(OkHttpClient.Builder builder) {
+                builder.connectionPool(getConnectionPool(http));
+                builder.dispatcher(dispatcher);
+                if (http.hasSocketSettings()) {
+                    builder.socketFactory(getSocketFactory(http));
+                }
+                http.apply(builder);
+            }
+        };
+    }
+
+    private ConnectionPool getConnectionPool(HttpClientOptions http) {
+        String key = http.poolKey();
+        ConnectionPool pool = connectionPools.get(key);
+        if (pool == null) {
+            connectionPools.putIfAbsent(key, new ConnectionPool(http.maxIdleConnections, http.keepAliveMs, TimeUnit.MILLISECONDS));
+            pool = connectionPools.get(key);
+        }
+        return pool;
+    }
+
+    private SocketFactory getSocketFactory(HttpClientOptions http) {
+        String key = http.socketKey();
+        SocketFactory factory = socketFactories.get(key);
+        if (factory == null) {
+            socketFactories.putIfAbsent(key, new TunedSocketFactory(http.sendBufferSize, http.receiveBufferSize, http.tcpNoDelay));
+            factory = socketFactories.get(key);
+        }
+        return factory;
+    }
+
+    NegotiateCache getNegotiateCache() {
+        return negotiateCache;
+    }
+
+    synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "CapacitorSignalR-scheduler-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return scheduler;
+    }
+
+    // Runs the drains of every connection's EventDispatcher and DownloadStreams. Idle threads wait
+    // on the task queue, so connections without traffic cost no thread and no wake-ups.
+    synchronized ExecutorService getDispatchExecutor() {
+        if (dispatchExecutor == null) {
+            int threads = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+            dispatchExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "CapacitorSignalR-dispatch-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return dispatchExecutor;
+    }
+}
@@ -0,0 +1,197 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import io.reactivex.rxjava3.disposables.Disposable;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+// A server-to-client stream delivered to JS with credit-based flow control. JS starts with
+// `window` credits and grants more through streamRequest(); items beyond the granted credit wait
+// in a bounded buffer. The transport thread only buffers the decoded item: conversion and bridge
+// calls run on the dispatch executor, one drain per stream at a time so batches keep their order.
+// A stream whose buffer overflows is cancelled on the server and ends with an error, rather than
+// holding up the socket shared with every other stream and event of the connection.
+class DownloadStream {
+    private static final String TAG = "CapacitorSignalR";
+
+    interface Sink {
+        void deliverItems(String streamId, JSArray items);
+
+        void complete(String streamId, Throwable error);
+    }
+
+    interface Converter {
+        Object convert(Object item);
+    }
+
+    private final String streamId;
+    private final int bufferSize;
+    private final Executor executor;
+    private final Sink sink;
+    private final Converter converter;
+    private final ArrayDeque<Object> buffer = new ArrayDeque<>();
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                drain();
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+    };
+    private Disposable disposable;
+    private long credit;
+    private boolean completed;
+    private Throwable error;
+    private boolean finished;
+    private boolean drainScheduled;
+
+    DownloadStream(String streamId, int window, int bufferSize, Executor executor, Converter converter, Sink sink) {
+        this.streamId = streamId;
+        this.credit = Math.max(1, window);
+        this.bufferSize = Math.max(1, bufferSize);
+        this.executor = executor;
+        this.converter = converter;
+        this.sink = sink;
+    }
+
+    synchronized void attach(Disposable disposable) {
+        this.disposable = disposable;
+        if (finished || completed) {
+            disposable.dispose();
+        }
+    }
+
+    // Called from the transport thread; never waits
+    void onItem(Object item) {
+        Disposable toDispose = null;
+        synchronized (this) {
+            if (finished || completed) return;
+            if (buffer.size() >= bufferSize) {
+                buffer.clear();
+                completed = true;
+                error = new RuntimeException("Stream buffer overflow: more than " + bufferSize
+                    + " items waiting for credit");
+                toDispose = disposable;
+            } else {
+                buffer.addLast(item);
+            }
+        }
+        if (toDispose != null) {
+            toDispose.dispose();
+        }
+        scheduleDrain();
+    }
+
+    void onComplete() {
+        synchronized (this) {
+            completed = true;
+        }
+        scheduleDrain();
+    }
+
+    // Items already taken for delivery still reach JS before the error
+    void onError(Throwable error) {
+        synchronized (this) {
+            if (finished || completed) return;
+            completed = true;
+            this.error = error;
+            buffer.clear();
+        }
+        scheduleDrain();
+    }
+
+    void request(long count) {
+        synchronized (this) {
+            credit += Math.max(0, count);
+        }
+        scheduleDrain();
+    }
+
+    void cancel() {
+        Disposable toDispose;
+        synchronized (this) {
+            if (finished) return;
+            finished = true;
+            buffer.clear();
+            toDispose = disposable;
+        }
+        if (toDispose != null) {
+            toDispose.dispose();
+        }
+    }
+
+    // A conversion or bridge call that threw ends the stream with its error; left as is, the
+    // drain would stay marked as scheduled and the stream would never deliver again
+    private void fail(RuntimeException error) {
+        Disposable toDispose;
+        synchronized (this) {
+            drainScheduled = false;
+            if (finished) return;
+            finished = true;
+            buffer.clear();
+            toDispose = disposable;
+        }
+        if (toDispose != null) {
+            toDispose.dispose();
+        }
+        try {
+            sink.complete(streamId, error);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Error ending stream " + streamId, e);
+        }
+    }
+
+    private void scheduleDrain() {
+        synchronized (this) {
+            if (finished || drainScheduled) return;
+            drainScheduled = true;
+        }
+        executor.execute(drainTask);
+    }
+
+    // Hands every item covered by the current credit to JS in one bridge call per pass. Items are
+    // taken under the lock and converted outside it, so onItem() never waits on a conversion.
+    private void drain() {
+        while (true) {
+            Object[] batch;
+            Throwable failure = null;
+            synchronized (this) {
+                int count = finished ? 0 : (int) Math.min(credit, buffer.size());
+                if (count == 0) {
+                    drainScheduled = false;
+                    if (finished || !completed || !buffer.isEmpty()) return;
+                    finished = true;
+                    failure = error;
+                    batch = null;
+                } else {
+                    batch = new Object[count];
+                    for (int i = 0; i < count; i++) {
+                        batch[i] = buffer.pollFirst();
+                    }
+                    credit -= count;
+                }
+            }
+
+            if (batch == null) {
+                sink.complete(streamId, failure);
+                return;
+            }
+
+            JSArray items = new JSArray();
+            for (Object item : batch) {
+                items.put(converter.convert(item));
+            }
+            synchronized (this) {
+                if (finished) {
+                    drainScheduled = false;
+                    return;
+                }
+            }
+            sink.deliverItems(streamId, items);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Accumulates converted hub events and hands them to the bridge as one array.
+// The first event after an idle window is delivered right away so sparse traffic
+// gets no extra latency; bursts are coalesced into at most one delivery per window.
+class EventBatcher {
+    interface Sink {
+        void deliver(JSArray events);
+    }
+
+    private final int maxBatchSize;
+    private final long maxDelayMs;
+    private final ScheduledExecutorService scheduler;
+    private final Sink sink;
+    private final Object lock = new Object();
+
+    private JSArray pending = new JSArray();
+    private ScheduledFuture<?> scheduledFlush;
+    private long lastFlushAt;
+
+    EventBatcher(int maxBatchSize, long maxDelayMs, ScheduledExecutorService scheduler, Sink sink) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayMs = Math.max(0, maxDelayMs);
+        this.scheduler = scheduler;
+        this.sink = sink;
+    }
+
+    void add(JSObject event) {
+        synchronized (lock) {
+            pending.put(event);
+
+            if (pending.length() >= maxBatchSize) {
+                flushLocked();
+                return;
+            }
+
+            if (scheduledFlush == null) {
+                long elapsed = System.currentTimeMillis() - lastFlushAt;
+                if (elapsed >= maxDelayMs) {
+                    // Idle long enough, deliver without waiting
+                    flushLocked();
+                } else {
+                    scheduledFlush = scheduler.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            flush();
+                        }
+                    }, maxDelayMs - elapsed, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    void flush() {
+        synchronized (lock) {
+            flushLocked();
+        }
+    }
+
+    // Delivery happens under the lock so that timer and inline flushes keep arrival order
+    private void flushLocked() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        lastFlushAt = System.currentTimeMillis();
+        if (pending.length() == 0) return;
+
+        JSArray batch = pending;
+        pending = new JSArray();
+        sink.deliver(batch);
+    }
+}
@@ -0,0 +1,128 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Latest-value-wins conflation for high-frequency events. Values are keyed by a field path (or
+// share a single slot without one) and emitted at most once per key every minIntervalMs; values
+// superseded in between are dropped before they are ever converted. An event arriving after a
+// quiet period is emitted right away.
+// Values are taken out under the lock and emitted after releasing it, so a sink that waits (or
+// hands the value to a thread that calls offer()) never holds up the thread receiving events.
+class EventConflator {
+    interface Sink {
+        void emit(Object data);
+    }
+
+    private static final Object SINGLE_KEY = new Object();
+
+    private final ValuePath keyPath;
+    private final long minIntervalMs;
+    private final ScheduledExecutorService scheduler;
+    private final Sink sink;
+    private final LinkedHashMap<Object, Object> pending = new LinkedHashMap<>();
+    // Flushed values not yet handed to the sink, in flush order
+    private final ArrayDeque<Object> ready = new ArrayDeque<>();
+    private boolean emitting;
+    private ScheduledFuture<?> scheduledFlush;
+    private long lastEmitAt;
+
+    EventConflator(ValuePath keyPath, long minIntervalMs, ScheduledExecutorService scheduler, Sink sink) {
+        this.keyPath = keyPath;
+        this.minIntervalMs = Math.max(0, minIntervalMs);
+        this.scheduler = scheduler;
+        this.sink = sink;
+    }
+
+    // Returns true when the value replaced one still pending for its key
+    boolean offer(Object data) {
+        boolean superseded;
+        synchronized (this) {
+            Object key = keyOf(data);
+            // Re-insert so emission order follows the latest arrival of each key
+            superseded = pending.remove(key) != null;
+            pending.put(key, data);
+
+            if (scheduledFlush != null) return superseded;
+
+            long elapsed = System.currentTimeMillis() - lastEmitAt;
+            if (elapsed < minIntervalMs) {
+                scheduledFlush = scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, minIntervalMs - elapsed, TimeUnit.MILLISECONDS);
+                return superseded;
+            }
+            takePending();
+        }
+        emitReady();
+        return superseded;
+    }
+
+    void flush() {
+        synchronized (this) {
+            takePending();
+        }
+        emitReady();
+    }
+
+    synchronized void cancel() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        pending.clear();
+        ready.clear();
+    }
+
+    private void takePending() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        lastEmitAt = System.currentTimeMillis();
+        ready.addAll(pending.values());
+        pending.clear();
+    }
+
+    // Hands ready values to the sink outside the lock. Whichever thread gets here first emits
+    // everything, including values flushed meanwhile by other threads, so timer and inline
+    // flushes keep their order.
+    private void emitReady() {
+        synchronized (this) {
+            if (emitting) return;
+            emitting = true;
+        }
+        try {
+            for (;;) {
+                Object data;
+                synchronized (this) {
+                    data = ready.pollFirst();
+                    if (data == null) {
+                        emitting = false;
+                        return;
+                    }
+                }
+                sink.emit(data);
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                emitting = false;
+            }
+            throw e;
+        }
+    }
+
+    private Object keyOf(Object data) {
+        if (keyPath == null) {
+            return SINGLE_KEY;
+        }
+        Object key = ValuePath.scalar(keyPath.resolve(data));
+        return key != null ? key : SINGLE_KEY;
+    }
+}
@@ -0,0 +1,220 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import android.util.Log;
+import com.getcapacitor.JSObject;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Moves event processing and bridge delivery off the transport reader thread. Handlers only put
+// the decoded message into an EventRing; a drain task on the executor shared by all connections
+// sizes, filters, converts and delivers messages in arrival order, so socket reads no longer wait
+// on the payload walks or the bridge.
+// At most one drain of a connection is queued or running at a time, and none while the ring is
+// empty, so an idle connection costs no thread and no wake-ups.
+// Only the transport thread is ever held by the BLOCK policy. Messages emitted from other threads
+// (a conflator flushing on the shared scheduler) go through a separate handoff queue that never
+// waits: the drain they would wait for may itself be waiting on the emitting thread.
+class EventDispatcher {
+    private static final String TAG = "CapacitorSignalR";
+    // Messages delivered before a drain yields the thread to other connections
+    private static final int DRAIN_BATCH = 256;
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    enum OverflowPolicy {
+        // Hold the transport thread until there is room, which pushes back on the server
+        BLOCK,
+        // Discard the oldest queued message to make room
+        DROP_OLDEST,
+        // Discard the incoming message
+        DROP_NEWEST
+    }
+
+    interface Sink {
+        // A message as decoded for a subscription, not yet filtered, kept or conflated
+        void receive(EventSubscriptions.Entry entry, String channel, Object data);
+
+        // A message already through its subscription, e.g. emitted by a conflator
+        void deliver(String eventName, String channel, Object data);
+    }
+
+    private static final class Message {
+        final EventSubscriptions.Entry entry;
+        final String eventName;
+        final String channel;
+        final Object data;
+
+        Message(EventSubscriptions.Entry entry, String eventName, String channel, Object data) {
+            this.entry = entry;
+            this.eventName = eventName;
+            this.channel = channel;
+            this.data = data;
+        }
+    }
+
+    private final EventRing<Message> ring;
+    // Emitted messages, delivered ahead of the ring; bounded by the ring's capacity
+    private final ConcurrentLinkedQueue<Message> handoff = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger handoffSize = new AtomicInteger();
+    private final OverflowPolicy overflowPolicy;
+    private final Sink sink;
+    private final Executor executor;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong highWatermark = new AtomicLong();
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+    // The thread running the current drain, if any
+    private volatile Thread drainer;
+    private volatile boolean closed;
+
+    EventDispatcher(Executor executor, int capacity, OverflowPolicy overflowPolicy, Sink sink) {
+        this.ring = new EventRing<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.sink = sink;
+        this.executor = executor;
+    }
+
+    // Parses the "dispatch" option of create(), e.g. { queueSize: 4096, overflow: 'drop-oldest' }
+    static EventDispatcher fromOptions(Executor executor, JSObject options, Sink sink) {
+        int queueSize = 1024;
+        OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+        if (options != null) {
+            queueSize = options.getInteger("queueSize", queueSize);
+            String overflow = options.getString("overflow", "block");
+            if ("drop-oldest".equals(overflow)) {
+                overflowPolicy = OverflowPolicy.DROP_OLDEST;
+            } else if ("drop-newest".equals(overflow)) {
+                overflowPolicy = OverflowPolicy.DROP_NEWEST;
+            }
+        }
+        return new EventDispatcher(executor, queueSize, overflowPolicy, sink);
+    }
+
+    // Called from the transport thread; does no work on the payload
+    void receive(EventSubscriptions.Entry entry, String channel, Object data) {
+        enqueue(new Message(entry, entry.eventName, channel, data));
+    }
+
+    // Called from any thread with an already processed message; never waits, whatever the
+    // overflow policy. When the handoff queue is full the message is dropped and counted.
+    void dispatch(String eventName, String channel, Object data) {
+        if (Thread.currentThread() == drainer) {
+            // Emitted while processing a message of this dispatcher (a conflator flushing inline):
+            // deliver in place, ahead of anything still queued
+            deliver(new Message(null, eventName, channel, data));
+            return;
+        }
+        if (closed) return;
+
+        if (handoffSize.incrementAndGet() > ring.capacity()) {
+            handoffSize.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        handoff.offer(new Message(null, eventName, channel, data));
+        scheduleDrain();
+    }
+
+    private void enqueue(Message message) {
+        if (closed) return;
+
+        while (!ring.offer(message)) {
+            if (closed) return;
+            switch (overflowPolicy) {
+                case DROP_NEWEST:
+                    dropped.incrementAndGet();
+                    return;
+                case DROP_OLDEST:
+                    if (ring.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                    break;
+                case BLOCK:
+                default:
+                    scheduleDrain();
+                    LockSupport.parkNanos(FULL_PARK_NANOS);
+                    break;
+            }
+        }
+
+        long depth = ring.size();
+        long watermark;
+        while (depth > (watermark = highWatermark.get())) {
+            if (highWatermark.compareAndSet(watermark, depth)) break;
+        }
+        scheduleDrain();
+    }
+
+    JSObject getStatus() {
+        JSObject status = new JSObject();
+        status.put("depth", ring.size() + handoffSize.get());
+        status.put("capacity", ring.capacity());
+        status.put("highWatermark", highWatermark.get());
+        status.put("dropped", dropped.get());
+        return status;
+    }
+
+    // Stops delivery; messages still queued are discarded
+    void close() {
+        closed = true;
+    }
+
+    private void scheduleDrain() {
+        if (closed || !drainScheduled.compareAndSet(false, true)) return;
+        try {
+            executor.execute(drainTask);
+        } catch (RejectedExecutionException e) {
+            drainScheduled.set(false);
+            Log.w(TAG, "Event delivery rejected", e);
+        }
+    }
+
+    private void drain() {
+        drainer = Thread.currentThread();
+        int delivered = 0;
+        Message message;
+        while (!closed && delivered < DRAIN_BATCH && (message = poll()) != null) {
+            delivered++;
+            deliver(message);
+        }
+        drainer = null;
+        drainScheduled.set(false);
+        // Re-check after clearing the flag: a dispatch() that found it still set relies on this
+        // drain to pick up its message, and a full batch leaves more behind
+        if (ring.size() > 0 || !handoff.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private Message poll() {
+        Message message = handoff.poll();
+        if (message != null) {
+            handoffSize.decrementAndGet();
+            return message;
+        }
+        return ring.poll();
+    }
+
+    private void deliver(Message message) {
+        try {
+            if (message.entry != null) {
+                sink.receive(message.entry, message.channel, message.data);
+            } else {
+                sink.deliver(message.eventName, message.channel, message.data);
+            }
+        } catch (Throwable t) {
+            Log.w(TAG, "Error delivering event: " + message.eventName, t);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// The "filter" option of on(): a predicate over dotted paths, e.g.
+// "status == 'active' and (price >= 10 or featured)", and a projection such as "id, price, quote.bid".
+// Both are compiled once when subscribing and run on the decoded value before conversion, so
+// rejected events never reach the bridge and projected ones only carry the selected fields.
+final class EventFilter {
+    interface Condition {
+        boolean test(Object data);
+    }
+
+    private final Condition where;
+    private final List<ValuePath> select;
+
+    private EventFilter(Condition where, List<ValuePath> select) {
+        this.where = where;
+        this.select = select;
+    }
+
+    // e.g. { where: "status == 'active'", select: ['id', 'price'] }; select also takes "id, price"
+    static EventFilter fromOptions(JSONObject options) {
+        Condition where = null;
+        String expression = options.optString("where", "").trim();
+        if (!expression.isEmpty()) {
+            where = new Parser(expression).parse();
+        }
+
+        List<ValuePath> select = new ArrayList<>();
+        Object selectOption = options.opt("select");
+        if (selectOption instanceof JSONArray) {
+            JSONArray paths = (JSONArray) selectOption;
+            for (int i = 0; i < paths.length(); i++) {
+                addPath(select, paths.optString(i));
+            }
+        } else if (selectOption instanceof String) {
+            for (String path : ((String) selectOption).split(",")) {
+                addPath(select, path);
+            }
+        }
+
+        if (where == null && select.isEmpty()) return null;
+        return new EventFilter(where, select.isEmpty() ? null : select);
+    }
+
+    private static void addPath(List<ValuePath> select, String path) {
+        ValuePath parsed = ValuePath.parse(path);
+        if (parsed != null) {
+            select.add(parsed);
+        }
+    }
+
+    boolean accepts(Object data) {
+        return where == null || where.test(data);
+    }
+
+    // Copies the selected fields into an object with the same nesting; missing fields are left out
+    Object project(Object data) {
+        if (select == null) return data;
+
+        Projection result = new Projection();
+        for (ValuePath path : select) {
+            Object value = path.resolve(data);
+            if (value == null) continue;
+
+            String[] segments = path.getSegments();
+            Projection target = result;
+            for (int i = 0; i < segments.length - 1; i++) {
+                // Only objects created here are extended, never maps of the received payload
+                Object nested = target.get(segments[i]);
+                if (!(nested instanceof Projection)) {
+                    nested = new Projection();
+                    target.put(segments[i], nested);
+                }
+                target = (Projection) nested;
+            }
+            target.put(segments[segments.length - 1], value);
+        }
+        return result;
+    }
+
+    private static final class Projection extends LinkedHashMap<String, Object> {
+    }
+
+    // Values compare after ValuePath.scalar(): numbers as doubles, strings, booleans and null.
+    // Returns null for values of different types, which are not ordered.
+    private static Integer compare(Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) {
+            return Double.compare((Double) left, (Double) right);
+        }
+        if (left instanceof String && right instanceof String) {
+            return ((String) left).compareTo((String) right);
+        }
+        return null;
+    }
+
+    private static boolean equal(Object left, Object right) {
+        return left == null ? right == null : left.equals(right);
+    }
+
+    private static boolean truthy(Object value) {
+        if (value == null) return false;
+        if (value instanceof Boolean) return (Boolean) value;
+        if (value instanceof Double) return (Double) value != 0;
+        if (value instanceof String) return !((String) value).isEmpty();
+        return true;
+    }
+
+    // Recursive descent over: or := and ('or' and)*, and := unary ('and' unary)*,
+    // unary := 'not' unary | '(' or ')' | path (op literal)?
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Condition parse() {
+            Condition condition = parseOr();
+            skipSpaces();
+            if (position < text.length()) {
+                throw error("unexpected '" + text.charAt(position) + "'");
+            }
+            return condition;
+        }
+
+        private Condition parseOr() {
+            Condition condition = parseAnd();
+            while (keyword("or")) {
+                final Condition left = condition;
+                final Condition right = parseAnd();
+                condition = data -> left.test(data) || right.test(data);
+            }
+            return condition;
+        }
+
+        private Condition parseAnd() {
+            Condition condition = parseUnary();
+            while (keyword("and")) {
+                final Condition left = condition;
+                final Condition right = parseUnary();
+                condition = data -> left.test(data) && right.test(data);
+            }
+            return condition;
+        }
+
+        private Condition parseUnary() {
+            if (keyword("not")) {
+                final Condition operand = parseUnary();
+                return data -> !operand.test(data);
+            }
+            if (symbol("(")) {
+                Condition condition = parseOr();
+                if (!symbol(")")) {
+                    throw error("expected ')'");
+                }
+                return condition;
+            }
+            return parseComparison();
+        }
+
+        private Condition parseComparison() {
+            final ValuePath path = ValuePath.parse(readPath());
+            final String operator = readOperator();
+            if (operator == null) {
+                return data -> truthy(ValuePath.scalar(path.resolve(data)));
+            }
+            final Object literal = readLiteral();
+            switch (operator) {
+                case "==":
+                    return data -> equal(ValuePath.scalar(path.resolve(data)), literal);
+                case "!=":
+                    return data -> !equal(ValuePath.scalar(path.resolve(data)), literal);
+                default:
+                    return data -> {
+                        Integer order = compare(ValuePath.scalar(path.resolve(data)), literal);
+                        if (order == null) return false;
+                        switch (operator) {
+                            case "<": return order < 0;
+                            case "<=": return order <= 0;
+                            case ">": return order > 0;
+                            default: return order >= 0;
+                        }
+                    };
+            }
+        }
+
+        private String readPath() {
+            skipSpaces();
+            int start = position;
+            while (position < text.length() && isPathChar(text.charAt(position))) {
+                position++;
+            }
+            if (start == position) {
+                throw error("expected a path");
+            }
+            return text.substring(start, position);
+        }
+
+        private String readOperator() {
+            skipSpaces();
+            for (String operator : new String[] { "==", "!=", "<=", ">=", "<", ">" }) {
+                if (text.startsWith(operator, position)) {
+                    position += operator.length();
+                    return operator;
+                }
+            }
+            return null;
+        }
+
+        private Object readLiteral() {
+            skipSpaces();
+            if (position >= text.length()) {
+                throw error("expected a value");
+            }
+            char c = text.charAt(position);
+            if (c == '\'' || c == '"') {
+                return readString(c);
+            }
+            if (keyword("true")) return true;
+            if (keyword("false")) return false;
+            if (keyword("null")) return null;
+
+            int start = position;
+            while (position < text.length() && "+-.eE0123456789".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            try {
+                return Double.parseDouble(text.substring(start, position));
+            } catch (NumberFormatException e) {
+                position = start;
+                throw error("expected a string, number, true, false or null");
+            }
+        }
+
+        private String readString(char quote) {
+            StringBuilder value = new StringBuilder();
+            position++;
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == quote) {
+                    return value.toString();
+                }
+                if (c == '\\' && position < text.length()) {
+                    c = text.charAt(position++);
+                }
+                value.append(c);
+            }
+            throw error("unterminated string");
+        }
+
+        private boolean keyword(String word) {
+            skipSpaces();
+            int end = position + word.length();
+            if (!text.regionMatches(true, position, word, 0, word.length())) return false;
+            // A keyword followed by more of a path is the start of that path, e.g. "not.flag"
+            if (end < text.length() && isPathChar(text.charAt(end))) return false;
+            position = end;
+            return true;
+        }
+
+        private static boolean isPathChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '$';
+        }
+
+        private boolean symbol(String symbol) {
+            skipSpaces();
+            if (!text.startsWith(symbol, position)) return false;
+            position += symbol.length();
+            return true;
+        }
+
+        private void skipSpaces() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid where expression at " + position + ": " + message);
+        }
+    }
+}
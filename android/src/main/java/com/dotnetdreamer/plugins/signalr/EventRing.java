@@ -0,0 +1,77 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Bounded lock-free multi-producer/multi-consumer queue (Vyukov's sequence-per-slot ring).
+// offer() and poll() never block and never allocate; a full ring makes offer() return false.
+final class EventRing<T> {
+    private final int mask;
+    private final AtomicReferenceArray<T> items;
+    // Each slot's sequence tells producers and consumers whose turn it is
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    EventRing(int requestedCapacity) {
+        int capacity = 1;
+        while (capacity < Math.max(2, requestedCapacity)) {
+            capacity <<= 1;
+        }
+        mask = capacity - 1;
+        items = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(T item) {
+        long position = tail.get();
+        for (;;) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.lazySet(index, item);
+                    // Publishes the item to consumers
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;
+            }
+            position = tail.get();
+        }
+    }
+
+    T poll() {
+        long position = head.get();
+        for (;;) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    T item = items.get(index);
+                    items.lazySet(index, null);
+                    // Hands the slot back to producers one lap later
+                    sequences.set(index, position + mask + 1);
+                    return item;
+                }
+            } else if (difference < 0) {
+                return null;
+            }
+            position = head.get();
+        }
+    }
+
+    int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,113 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import com.microsoft.signalr.HubConnection;
+import com.microsoft.signalr.Subscription;
+
+import org.json.JSONArray;
+
+// Argument layout of a hub event as declared in on(). The handler is registered with exactly that
+// many parameters, each decoded by the hub protocol straight into its final type: strings,
+// numbers and booleans need no further conversion, only "json" arguments are walked.
+final class EventSchema {
+    static final int MAX_ARITY = 8;
+
+    interface Receiver {
+        void receive(Object[] args);
+    }
+
+    enum ArgType {
+        STRING,
+        NUMBER,
+        BOOLEAN,
+        JSON
+    }
+
+    private static final EventSchema SINGLE_JSON = new EventSchema(new ArgType[] { ArgType.JSON });
+    // Kept for apps written against the ChatHub sample, which predate argument schemas
+    private static final EventSchema LEGACY_RECEIVE_MESSAGE = new EventSchema(new ArgType[] { ArgType.STRING, ArgType.STRING });
+
+    private final ArgType[] types;
+
+    private EventSchema(ArgType[] types) {
+        this.types = types;
+    }
+
+    // Parses the "args" option of on(), e.g. ["string", "json"]; falls back to the default layout when absent
+    static EventSchema fromOptions(String eventName, JSONArray args) {
+        if (args == null) {
+            return "ReceiveMessage".equals(eventName) ? LEGACY_RECEIVE_MESSAGE : SINGLE_JSON;
+        }
+        if (args.length() > MAX_ARITY) {
+            throw new IllegalArgumentException("Events can declare at most " + MAX_ARITY + " arguments");
+        }
+
+        ArgType[] types = new ArgType[args.length()];
+        for (int i = 0; i < types.length; i++) {
+            String type = args.optString(i);
+            if ("string".equals(type)) {
+                types[i] = ArgType.STRING;
+            } else if ("number".equals(type)) {
+                types[i] = ArgType.NUMBER;
+            } else if ("boolean".equals(type)) {
+                types[i] = ArgType.BOOLEAN;
+            } else if ("json".equals(type)) {
+                types[i] = ArgType.JSON;
+            } else {
+                throw new IllegalArgumentException("Unknown argument type '" + type + "' at index " + i);
+            }
+        }
+        return new EventSchema(types);
+    }
+
+    Subscription register(HubConnection connection, String eventName, Class<Object> jsonType, final Receiver receiver) {
+        Class<Object>[] t = resolveClasses(jsonType);
+        switch (types.length) {
+            case 0:
+                return connection.on(eventName, () -> receiver.receive(new Object[0]));
+            case 1:
+                return connection.on(eventName, (a) -> receiver.receive(new Object[] { a }), t[0]);
+            case 2:
+                return connection.on(eventName, (a, b) -> receiver.receive(new Object[] { a, b }), t[0], t[1]);
+            case 3:
+                return connection.on(eventName, (a, b, c) -> receiver.receive(new Object[] { a, b, c }), t[0], t[1], t[2]);
+            case 4:
+                return connection.on(eventName, (a, b, c, d) -> receiver.receive(new Object[] { a, b, c, d }), t[0], t[1], t[2], t[3]);
+            case 5:
+                return connection.on(eventName, (a, b, c, d, e) -> receiver.receive(new Object[] { a, b, c, d, e }),
+                    t[0], t[1], t[2], t[3], t[4]);
+            case 6:
+                return connection.on(eventName, (a, b, c, d, e, f) -> receiver.receive(new Object[] { a, b, c, d, e, f }),
+                    t[0], t[1], t[2], t[3], t[4], t[5]);
+            case 7:
+                return connection.on(eventName, (a, b, c, d, e, f, g) -> receiver.receive(new Object[] { a, b, c, d, e, f, g }),
+                    t[0], t[1], t[2], t[3], t[4], t[5], t[6]);
+            case 8:
+            default:
+                return connection.on(eventName, (a, b, c, d, e, f, g, h) -> receiver.receive(new Object[] { a, b, c, d, e, f, g, h }),
+                    t[0], t[1], t[2], t[3], t[4], t[5], t[6], t[7]);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Class<Object>[] resolveClasses(Class<Object> jsonType) {
+        Class<Object>[] classes = new Class[types.length];
+        for (int i = 0; i < types.length; i++) {
+            switch (types[i]) {
+                case STRING:
+                    classes[i] = (Class<Object>) (Class<?>) String.class;
+                    break;
+                case NUMBER:
+                    classes[i] = (Class<Object>) (Class<?>) Double.class;
+                    break;
+                case BOOLEAN:
+                    classes[i] = (Class<Object>) (Class<?>) Boolean.class;
+                    break;
+                case JSON:
+                default:
+                    classes[i] = jsonType;
+                    break;
+            }
+        }
+        return classes;
+    }
+}
@@ -0,0 +1,172 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import com.microsoft.signalr.Subscription;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Subscribed events of one connection. An event has one native hub handler however many times JS
+// subscribes to it: every on() adds a subscriber, and the handler only goes away when the last one
+// leaves. The first subscriber's options (argument layout, filter, conflation, sticky values) stay in
+// effect until then. A sticky event outlives its last subscriber: it stays idle, still collecting
+// values for the next one, until it expires or is released.
+// Lookups are lock-free for the transport threads; changes are serialized.
+class EventSubscriptions {
+    interface Factory {
+        Entry create(String eventName);
+    }
+
+    static final class Entry {
+        final String eventName;
+        final EventSchema schema;
+        final EventFilter filter;
+        final EventConflator conflator;
+        final StickyCache.Slot sticky;
+        // Replaced when the connection is rebuilt
+        volatile Subscription handler;
+        // Set while a sticky event has no subscribers; values are kept but not delivered
+        volatile boolean idle;
+        // Set once closed; messages still queued for the entry are dropped
+        volatile boolean closed;
+        // Guarded by the owning EventSubscriptions
+        private final List<String> subscribers = new ArrayList<>();
+        private ScheduledFuture<?> expiry;
+
+        Entry(String eventName, EventSchema schema, EventFilter filter, EventConflator conflator, StickyCache.Slot sticky) {
+            this.eventName = eventName;
+            this.schema = schema;
+            this.filter = filter;
+            this.conflator = conflator;
+            this.sticky = sticky;
+        }
+
+        // Unregisters the hub handler and drops pending conflated and sticky values
+        void close() {
+            closed = true;
+            if (conflator != null) {
+                conflator.cancel();
+            }
+            if (sticky != null) {
+                sticky.close();
+            }
+            Subscription subscription = handler;
+            handler = null;
+            if (subscription != null) {
+                subscription.unsubscribe();
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong idCounter = new AtomicLong();
+
+    // Adds a subscriber, creating the event's entry through the factory for the first one.
+    // Returns the subscriber's id.
+    synchronized String add(String eventName, Factory factory) {
+        Entry entry = entries.get(eventName);
+        if (entry == null) {
+            entry = factory.create(eventName);
+            entries.put(eventName, entry);
+        } else if (entry.idle) {
+            entry.idle = false;
+            if (entry.expiry != null) {
+                entry.expiry.cancel(false);
+                entry.expiry = null;
+            }
+        }
+        String subscriptionId = "subscription-" + idCounter.incrementAndGet();
+        entry.subscribers.add(subscriptionId);
+        return subscriptionId;
+    }
+
+    // Removes a subscriber, or the most recent one when subscriptionId is null. Returns the
+    // event's entry once its last subscriber has left, for the caller to close; null otherwise.
+    // A sticky event is kept idle instead unless released, and then returned with idle set, for
+    // the caller to schedule its expiry. Releasing an idle event removes it.
+    synchronized Entry remove(String eventName, String subscriptionId, boolean release) {
+        Entry entry = entries.get(eventName);
+        if (entry == null) return null;
+
+        if (subscriptionId == null) {
+            if (!entry.subscribers.isEmpty()) {
+                entry.subscribers.remove(entry.subscribers.size() - 1);
+            }
+        } else if (!entry.subscribers.remove(subscriptionId) && !(release && entry.idle)) {
+            // Unknown or already released id
+            return null;
+        }
+
+        if (!entry.subscribers.isEmpty()) return null;
+        if (!release && entry.sticky != null && entry.sticky.retainMs > 0) {
+            entry.idle = true;
+            return entry;
+        }
+        entries.remove(eventName);
+        entry.idle = false;
+        return entry;
+    }
+
+    synchronized void setExpiry(Entry entry, ScheduledFuture<?> expiry) {
+        if (entry.idle && entries.get(entry.eventName) == entry) {
+            entry.expiry = expiry;
+        } else {
+            expiry.cancel(false);
+        }
+    }
+
+    // Removes the entry if it is still idle, returning whether the caller should close it
+    synchronized boolean expire(Entry entry) {
+        if (!entry.idle || entries.get(entry.eventName) != entry) return false;
+        entries.remove(entry.eventName);
+        entry.expiry = null;
+        return true;
+    }
+
+    // Removes every idle event, returning the entries for the caller to close
+    synchronized List<Entry> clearIdle() {
+        List<Entry> removed = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.idle) {
+                removed.add(entry);
+            }
+        }
+        for (Entry entry : removed) {
+            entries.remove(entry.eventName);
+            if (entry.expiry != null) {
+                entry.expiry.cancel(false);
+                entry.expiry = null;
+            }
+        }
+        return removed;
+    }
+
+    Entry get(String eventName) {
+        return entries.get(eventName);
+    }
+
+    synchronized int getSubscriberCount(String eventName) {
+        Entry entry = entries.get(eventName);
+        return entry != null ? entry.subscribers.size() : 0;
+    }
+
+    Collection<Entry> all() {
+        return entries.values();
+    }
+
+    // Removes every event, returning the entries for the caller to close
+    synchronized List<Entry> clear() {
+        List<Entry> removed = new ArrayList<>(entries.values());
+        for (Entry entry : removed) {
+            if (entry.expiry != null) {
+                entry.expiry.cancel(false);
+                entry.expiry = null;
+            }
+        }
+        entries.clear();
+        return removed;
+    }
+}
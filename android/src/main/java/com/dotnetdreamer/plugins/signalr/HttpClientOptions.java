@@ -0,0 +1,104 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import com.getcapacitor.JSObject;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import org.json.JSONObject;
+
+// The "http" option of create(): settings for the OkHttp client the hub connection is built on.
+// Pool and socket settings select shared instances from the ConnectionRegistry, because OkHttp
+// only reuses a pooled connection for a client with the same pool and socket factory.
+final class HttpClientOptions {
+    private static final String EXTENSIONS_HEADER = "Sec-WebSocket-Extensions";
+
+    // Defaults of OkHttp's own ConnectionPool
+    int maxIdleConnections = 5;
+    long keepAliveMs = TimeUnit.MINUTES.toMillis(5);
+    long connectTimeoutMs = -1;
+    long readTimeoutMs = -1;
+    long writeTimeoutMs = -1;
+    long callTimeoutMs = -1;
+    long pingIntervalMs = -1;
+    int sendBufferSize;
+    int receiveBufferSize;
+    boolean tcpNoDelay;
+    boolean webSocketCompression = true;
+    long minCompressSize = -1;
+
+    // e.g. { pingIntervalMs: 15000, connectTimeoutMs: 5000, pool: { maxIdleConnections: 2 } }
+    static HttpClientOptions fromOptions(JSObject options) {
+        HttpClientOptions http = new HttpClientOptions();
+        if (options == null) return http;
+
+        JSONObject pool = options.optJSONObject("pool");
+        if (pool != null) {
+            http.maxIdleConnections = Math.max(0, pool.optInt("maxIdleConnections", http.maxIdleConnections));
+            http.keepAliveMs = Math.max(1, pool.optLong("keepAliveMs", http.keepAliveMs));
+        }
+        http.connectTimeoutMs = options.optLong("connectTimeoutMs", -1);
+        http.readTimeoutMs = options.optLong("readTimeoutMs", -1);
+        http.writeTimeoutMs = options.optLong("writeTimeoutMs", -1);
+        http.callTimeoutMs = options.optLong("callTimeoutMs", -1);
+        http.pingIntervalMs = options.optLong("pingIntervalMs", -1);
+        http.sendBufferSize = Math.max(0, options.optInt("sendBufferSize", 0));
+        http.receiveBufferSize = Math.max(0, options.optInt("receiveBufferSize", 0));
+        http.tcpNoDelay = options.optBoolean("tcpNoDelay", false);
+        http.webSocketCompression = options.optBoolean("webSocketCompression", true);
+        http.minCompressSize = options.optLong("minCompressSize", -1);
+        return http;
+    }
+
+    boolean hasSocketSettings() {
+        return sendBufferSize > 0 || receiveBufferSize > 0 || tcpNoDelay;
+    }
+
+    String poolKey() {
+        return maxIdleConnections + "/" + keepAliveMs;
+    }
+
+    String socketKey() {
+        return sendBufferSize + "/" + receiveBufferSize + "/" + tcpNoDelay;
+    }
+
+    // Applies the per-connection settings; a negative value keeps OkHttp's default
+    void apply(OkHttpClient.Builder builder) {
+        if (connectTimeoutMs >= 0) {
+            builder.connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        if (readTimeoutMs >= 0) {
+            builder.readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        if (writeTimeoutMs >= 0) {
+            builder.writeTimeout(writeTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        if (callTimeoutMs >= 0) {
+            builder.callTimeout(callTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        if (pingIntervalMs >= 0) {
+            builder.pingInterval(pingIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        if (minCompressSize >= 0) {
+            builder.minWebSocketMessageToCompress(minCompressSize);
+        }
+        if (!webSocketCompression) {
+            // OkHttp always offers permessage-deflate; withdrawing the offer keeps frames uncompressed
+            builder.addInterceptor(new Interceptor() {
+                @Override
+                public Response intercept(Chain chain) throws IOException {
+                    Request request = chain.request();
+                    if (request.header(EXTENSIONS_HEADER) == null) {
+                        return chain.proceed(request);
+                    }
+                    return chain.proceed(request.newBuilder().removeHeader(EXTENSIONS_HEADER).build());
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import com.getcapacitor.JSObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Opt-in result cache for read-only hub methods. Calls are keyed by method name and canonical
+// arguments (object keys sorted); identical calls made while one is on its way share its server
+// round trip, and successful results are kept for the method's TTL in a bounded LRU. Callers
+// sharing a round trip each keep their own invocation id and deadline; the shared call is only
+// abandoned once every one of them has timed out or been canceled.
+class InvocationCache {
+    interface Loader {
+        CompletableFuture<Object> load();
+    }
+
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private static final class CachedResult {
+        final Object value;
+        final long expiresAt;
+
+        CachedResult(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Long> ttlByMethod;
+    private final LinkedHashMap<String, CachedResult> entries;
+    // A server round trip shared by identical calls
+    private static final class Flight {
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        CompletableFuture<Object> loaded;
+        // Callers still waiting for the result
+        int callers = 1;
+    }
+
+    private final Map<String, Flight> inFlight = new HashMap<>();
+    // Bumped on invalidation so results of calls started before it are not stored
+    private long generation;
+    private long hits;
+    private long misses;
+    private long coalesced;
+
+    InvocationCache(Map<String, Long> ttlByMethod, final int maxEntries) {
+        this.ttlByMethod = ttlByMethod;
+        this.entries = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    // Parses the "cache" option of create(), e.g. { maxEntries: 256, methods: { GetConfig: 60000 } }
+    static InvocationCache fromOptions(JSObject options) {
+        Map<String, Long> ttlByMethod = new HashMap<>();
+        JSONObject methods = options.optJSONObject("methods");
+        if (methods != null) {
+            Iterator<String> names = methods.keys();
+            while (names.hasNext()) {
+                String name = names.next();
+                long ttlMs = methods.optLong(name, 0);
+                if (ttlMs > 0) {
+                    ttlByMethod.put(name, ttlMs);
+                }
+            }
+        }
+        return new InvocationCache(ttlByMethod, Math.max(1, options.optInt("maxEntries", 256)));
+    }
+
+    boolean isCached(String methodName) {
+        return ttlByMethod.containsKey(methodName);
+    }
+
+    // Returns the cached result of the call, or null when it has to go to the server
+    synchronized CompletableFuture<Object> lookup(String methodName, JSONArray args) {
+        return lookup(canonicalKey(methodName, args));
+    }
+
+    // Returns the cached result, joins an identical call on its way, or starts the call through
+    // the loader. Canceling the returned future leaves the shared call.
+    CompletableFuture<Object> get(String methodName, JSONArray args, Loader loader) {
+        final String key = canonicalKey(methodName, args);
+        final long ttlMs = ttlByMethod.get(methodName);
+        final Flight flight;
+        final long startedGeneration;
+
+        synchronized (this) {
+            CompletableFuture<Object> cached = lookup(key);
+            if (cached != null) {
+                return cached;
+            }
+
+            Flight shared = inFlight.get(key);
+            if (shared != null) {
+                coalesced++;
+                shared.callers++;
+                return join(key, shared);
+            }
+
+            misses++;
+            flight = new Flight();
+            inFlight.put(key, flight);
+            startedGeneration = generation;
+        }
+
+        CompletableFuture<Object> loaded;
+        try {
+            loaded = loader.load();
+        } catch (Exception e) {
+            loaded = new CompletableFuture<>();
+            loaded.completeExceptionally(e);
+        }
+        boolean abandoned;
+        synchronized (this) {
+            flight.loaded = loaded;
+            abandoned = flight.callers == 0;
+        }
+        if (abandoned) {
+            // Every caller left while the call was being started
+            loaded.cancel(false);
+        }
+        loaded.whenComplete((value, throwable) -> {
+            synchronized (InvocationCache.this) {
+                if (inFlight.get(key) == flight) {
+                    inFlight.remove(key);
+                }
+                // Failures are never cached, nor file references JS may release
+                if (throwable == null && startedGeneration == generation && !(value instanceof PayloadStore.PayloadFile)) {
+                    entries.put(key, new CachedResult(value, System.currentTimeMillis() + ttlMs));
+                }
+            }
+            if (throwable != null) {
+                flight.result.completeExceptionally(throwable);
+            } else {
+                flight.result.complete(value);
+            }
+        });
+        return join(key, flight);
+    }
+
+    // Drops cached results of one method, or of every method when methodName is null
+    synchronized void invalidate(String methodName) {
+        generation++;
+        if (methodName == null) {
+            entries.clear();
+            return;
+        }
+        String prefix = methodName + KEY_SEPARATOR;
+        Iterator<String> keys = entries.keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().startsWith(prefix)) {
+                keys.remove();
+            }
+        }
+    }
+
+    synchronized JSObject getStats() {
+        JSObject stats = new JSObject();
+        stats.put("entries", entries.size());
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("coalesced", coalesced);
+        return stats;
+    }
+
+    private CompletableFuture<Object> lookup(String key) {
+        CachedResult entry = entries.get(key);
+        if (entry == null) return null;
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        hits++;
+        return CompletableFuture.completedFuture(entry.value);
+    }
+
+    // Each caller gets its own future so one caller settling it cannot affect the others; a
+    // caller canceling its future leaves the flight
+    private CompletableFuture<Object> join(final String key, final Flight flight) {
+        final CompletableFuture<Object> copy = new CompletableFuture<>();
+        flight.result.whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                copy.completeExceptionally(throwable);
+            } else {
+                copy.complete(value);
+            }
+        });
+        copy.whenComplete((value, throwable) -> {
+            if (copy.isCancelled()) {
+                leave(key, flight);
+            }
+        });
+        return copy;
+    }
+
+    // Abandons the shared call once its last caller has left; a later identical call starts anew
+    private void leave(String key, Flight flight) {
+        CompletableFuture<Object> loaded;
+        synchronized (this) {
+            if (--flight.callers > 0 || flight.result.isDone()) return;
+            if (inFlight.get(key) == flight) {
+                inFlight.remove(key);
+            }
+            loaded = flight.loaded;
+        }
+        if (loaded != null) {
+            loaded.cancel(false);
+        }
+    }
+
+    static String canonicalKey(String methodName, JSONArray args) {
+        StringBuilder key = new StringBuilder(methodName).append(KEY_SEPARATOR);
+        appendCanonical(key, args);
+        return key.toString();
+    }
+
+    private static void appendCanonical(StringBuilder out, Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            out.append("null");
+        } else if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            List<String> names = new ArrayList<>();
+            Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                names.add(keys.next());
+            }
+            Collections.sort(names);
+            out.append('{');
+            for (int i = 0; i < names.size(); i++) {
+                if (i > 0) out.append(',');
+                out.append(JSONObject.quote(names.get(i))).append(':');
+                appendCanonical(out, object.opt(names.get(i)));
+            }
+            out.append('}');
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            out.append('[');
+            for (int i = 0; i < array.length(); i++) {
+                if (i > 0) out.append(',');
+                appendCanonical(out, array.opt(i));
+            }
+            out.append(']');
+        } else if (value instanceof Number) {
+            // 1, 1L and 1.0 arrive depending on how the bridge parsed them; they are the same argument
+            double d = ((Number) value).doubleValue();
+            if (d == Math.rint(d) && !Double.isInfinite(d) && Math.abs(d) < 1e15) {
+                out.append((long) d);
+            } else {
+                out.append(d);
+            }
+        } else if (value instanceof String) {
+            out.append(JSONObject.quote((String) value));
+        } else {
+            out.append(value);
+        }
+    }
+}
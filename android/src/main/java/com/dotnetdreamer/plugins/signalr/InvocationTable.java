@@ -0,0 +1,262 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import com.getcapacitor.JSObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONArray;
+
+// Pending invokeWithResult calls of one connection. At most maxInFlight calls are outstanding at
+// once, further calls wait in a bounded queue. Every call can be given a deadline and canceled by
+// id; either way its promise settles right away and the underlying invocation is abandoned.
+class InvocationTable {
+    interface Starter {
+        CompletableFuture<Object> start(String methodName, JSONArray args);
+    }
+
+    // Failure with a code JS can branch on: TIMEOUT, CANCELED, CLOSED or OVERLOADED
+    static final class InvocationException extends RuntimeException {
+        final String code;
+
+        InvocationException(String code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+
+    private static final class Call {
+        final String id;
+        final String methodName;
+        final JSONArray args;
+        final Starter starter;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        CompletableFuture<Object> underlying;
+        ScheduledFuture<?> timeoutTask;
+        boolean started;
+
+        Call(String id, String methodName, JSONArray args, Starter starter) {
+            this.id = id;
+            this.methodName = methodName;
+            this.args = args;
+            this.starter = starter;
+        }
+    }
+
+    private final Map<String, Call> calls = new HashMap<>();
+    private final ArrayDeque<Call> waiting = new ArrayDeque<>();
+    private final AtomicLong idCounter = new AtomicLong();
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final long defaultTimeoutMs;
+    private final ScheduledExecutorService scheduler;
+    private final Starter starter;
+    private final ArrayDeque<Call> starting = new ArrayDeque<>();
+    private boolean startingDrain;
+    private int inFlight;
+
+    InvocationTable(int maxInFlight, int maxQueued, long defaultTimeoutMs, ScheduledExecutorService scheduler, Starter starter) {
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : Integer.MAX_VALUE;
+        this.maxQueued = Math.max(0, maxQueued);
+        this.defaultTimeoutMs = Math.max(0, defaultTimeoutMs);
+        this.scheduler = scheduler;
+        this.starter = starter;
+    }
+
+    // Parses the "invocations" option of create(), e.g. { timeoutMs: 15000, maxInFlight: 8 }
+    static InvocationTable fromOptions(JSObject options, ScheduledExecutorService scheduler, Starter starter) {
+        int maxInFlight = 0;
+        int maxQueued = 1000;
+        long timeoutMs = 0;
+        if (options != null) {
+            maxInFlight = options.optInt("maxInFlight", maxInFlight);
+            maxQueued = options.optInt("maxQueued", maxQueued);
+            timeoutMs = options.optLong("timeoutMs", timeoutMs);
+        }
+        return new InvocationTable(maxInFlight, maxQueued, timeoutMs, scheduler, starter);
+    }
+
+    // Registers a call and starts it when an in-flight slot is free. A null timeout uses the default,
+    // 0 waits forever; the deadline covers time spent queued.
+    CompletableFuture<Object> submit(String invocationId, String methodName, JSONArray args, Long timeoutMs) {
+        return submit(invocationId, methodName, args, timeoutMs, starter);
+    }
+
+    // Same, with the call started by the given starter instead of the table's own, e.g. to join a
+    // call already on its way
+    CompletableFuture<Object> submit(String invocationId, String methodName, JSONArray args, Long timeoutMs, Starter starter) {
+        final Call call;
+        boolean startNow;
+        synchronized (this) {
+            String id = invocationId != null ? invocationId : "invocation-" + idCounter.incrementAndGet();
+            if (calls.containsKey(id)) {
+                throw new IllegalArgumentException("Invocation id already in use: " + id);
+            }
+
+            call = new Call(id, methodName, args, starter);
+            startNow = inFlight < maxInFlight;
+            if (startNow) {
+                inFlight++;
+                call.started = true;
+            } else if (waiting.size() >= maxQueued) {
+                call.result.completeExceptionally(new InvocationException("OVERLOADED",
+                    "Too many pending invocations (" + inFlight + " in flight, " + waiting.size() + " queued)"));
+                return call.result;
+            } else {
+                waiting.addLast(call);
+            }
+            calls.put(id, call);
+
+            long timeout = timeoutMs != null ? timeoutMs : defaultTimeoutMs;
+            if (timeout > 0) {
+                final long deadline = timeout;
+                call.timeoutTask = scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        fail(call, new InvocationException("TIMEOUT", "Invocation of " + call.methodName + " timed out after " + deadline + "ms"));
+                    }
+                }, timeout, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (startNow) {
+            startInOrder(call);
+        }
+        return call.result;
+    }
+
+    boolean cancel(String invocationId) {
+        Call call;
+        synchronized (this) {
+            call = calls.get(invocationId);
+        }
+        return call != null && fail(call, new InvocationException("CANCELED", "Invocation of " + call.methodName + " was canceled"));
+    }
+
+    // Fails every pending call, used when the connection closes or is disposed
+    void failAll(String code, String message) {
+        List<Call> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(calls.values());
+        }
+        for (Call call : pending) {
+            fail(call, new InvocationException(code, message));
+        }
+    }
+
+    synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    synchronized JSObject getStatus() {
+        JSObject status = new JSObject();
+        status.put("inFlight", inFlight);
+        status.put("queued", waiting.size());
+        return status;
+    }
+
+    // Starts calls one after another on whichever thread got here first, so a run of calls failing
+    // synchronously hands slots on iteratively instead of recursing
+    private void startInOrder(Call call) {
+        synchronized (this) {
+            starting.addLast(call);
+            if (startingDrain) return;
+            startingDrain = true;
+        }
+        for (;;) {
+            Call next;
+            synchronized (this) {
+                next = starting.pollFirst();
+                if (next == null) {
+                    startingDrain = false;
+                    return;
+                }
+            }
+            start(next);
+        }
+    }
+
+    private void start(final Call call) {
+        CompletableFuture<Object> underlying;
+        try {
+            underlying = call.starter.start(call.methodName, call.args);
+        } catch (Exception e) {
+            underlying = new CompletableFuture<>();
+            underlying.completeExceptionally(e);
+        }
+
+        synchronized (this) {
+            if (calls.get(call.id) != call) {
+                // Timed out or canceled while starting
+                underlying.cancel(false);
+                return;
+            }
+            call.underlying = underlying;
+        }
+        underlying.whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                fail(call, throwable);
+            } else {
+                complete(call, value);
+            }
+        });
+    }
+
+    private void complete(Call call, Object value) {
+        if (release(call)) {
+            call.result.complete(value);
+        }
+    }
+
+    private boolean fail(Call call, Throwable error) {
+        if (!release(call)) {
+            return false;
+        }
+        CompletableFuture<Object> underlying;
+        synchronized (this) {
+            underlying = call.underlying;
+        }
+        if (underlying != null) {
+            underlying.cancel(false);
+        }
+        call.result.completeExceptionally(error);
+        return true;
+    }
+
+    // Removes the call from the table and hands its slot to the next queued call. Returns false
+    // when the call had already been settled.
+    private boolean release(Call call) {
+        Call next = null;
+        synchronized (this) {
+            if (calls.get(call.id) != call) {
+                return false;
+            }
+            calls.remove(call.id);
+            if (call.timeoutTask != null) {
+                call.timeoutTask.cancel(false);
+            }
+            if (call.started) {
+                inFlight--;
+                next = waiting.pollFirst();
+                if (next != null) {
+                    inFlight++;
+                    next.started = true;
+                }
+            } else {
+                waiting.remove(call);
+            }
+        }
+        if (next != null) {
+            startInOrder(next);
+        }
+        return true;
+    }
+}
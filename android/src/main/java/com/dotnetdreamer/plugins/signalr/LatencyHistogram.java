@@ -0,0 +1,91 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import com.getcapacitor.JSObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed-size log-linear histogram of durations in microseconds. Every power of two is split into
+// four sub-buckets, which keeps percentiles within 25% of the true value from 1us to beyond an
+// hour. Recording is a handful of atomic increments, no locks and no allocation.
+final class LatencyHistogram {
+    private static final int SUB_BUCKETS = 4;
+    private static final int MAX_EXPONENT = 42;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - 1) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        buckets.incrementAndGet(bucketIndex(micros));
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+
+        long max;
+        while (micros > (max = maxMicros.get())) {
+            if (maxMicros.compareAndSet(max, micros)) break;
+        }
+    }
+
+    long getCount() {
+        return count.get();
+    }
+
+    // Percentiles are reported as the upper bound of the bucket they fall in, in milliseconds
+    JSObject toJSObject() {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+
+        JSObject result = new JSObject();
+        result.put("count", total);
+        if (total == 0) {
+            return result;
+        }
+        result.put("meanMs", totalMicros.get() / 1000.0 / Math.max(1, count.get()));
+        result.put("p50Ms", percentile(snapshot, total, 0.50));
+        result.put("p95Ms", percentile(snapshot, total, 0.95));
+        result.put("p99Ms", percentile(snapshot, total, 0.99));
+        result.put("maxMs", maxMicros.get() / 1000.0);
+        return result;
+    }
+
+    private static double percentile(long[] snapshot, long total, double quantile) {
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return bucketUpperBound(i) / 1000.0;
+            }
+        }
+        return bucketUpperBound(snapshot.length - 1) / 1000.0;
+    }
+
+    private static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) ((micros >> (exponent - 2)) & (SUB_BUCKETS - 1));
+        return (exponent - 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + 1;
+        int sub = index % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 2)) - 1;
+    }
+}
@@ -0,0 +1,198 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import com.getcapacitor.JSObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Counters and latency histograms for one connection. Everything on the message path is an
+// atomic update on an entry looked up by name; entries are only allocated the first time a hub
+// method or event is seen, so recording can stay enabled in production.
+class Metrics {
+    static final class Counter {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        // Received events rejected by the filter of on()
+        final AtomicLong filtered = new AtomicLong();
+        // Received events superseded by a later value of their key before being delivered
+        final AtomicLong conflated = new AtomicLong();
+        // Only touched while taking a snapshot
+        long lastCount;
+        long lastSnapshotAt;
+
+        void record(long size) {
+            count.incrementAndGet();
+            bytes.addAndGet(size);
+        }
+    }
+
+    static final class Invocation {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+    }
+
+    private final long createdAt = System.currentTimeMillis();
+    private final ConcurrentHashMap<String, Invocation> invocations = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> sends = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> receives = new ConcurrentHashMap<>();
+    private final LatencyHistogram conversion = new LatencyHistogram();
+    private final LatencyHistogram bridge = new LatencyHistogram();
+    private final LatencyHistogram start = new LatencyHistogram();
+    private final LatencyHistogram negotiate = new LatencyHistogram();
+    private final LatencyHistogram transportOpen = new LatencyHistogram();
+    private final LatencyHistogram handshake = new LatencyHistogram();
+    private final AtomicLong negotiateCacheHits = new AtomicLong();
+    private final AtomicLong startFailures = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong reconnectAttempts = new AtomicLong();
+    private final AtomicLong closes = new AtomicLong();
+    private final AtomicLong suspends = new AtomicLong();
+
+    void recordInvocation(String methodName, long nanos, boolean failed) {
+        Invocation invocation = invocations.get(methodName);
+        if (invocation == null) {
+            Invocation created = new Invocation();
+            invocation = invocations.putIfAbsent(methodName, created);
+            if (invocation == null) invocation = created;
+        }
+        invocation.latency.recordNanos(nanos);
+        if (failed) {
+            invocation.errors.incrementAndGet();
+        }
+    }
+
+    void recordSend(String methodName, long bytes) {
+        counter(sends, methodName).record(bytes);
+    }
+
+    void recordReceive(String eventName, long bytes) {
+        counter(receives, eventName).record(bytes);
+    }
+
+    void recordFiltered(String eventName) {
+        counter(receives, eventName).filtered.incrementAndGet();
+    }
+
+    void recordConflated(String eventName) {
+        counter(receives, eventName).conflated.incrementAndGet();
+    }
+
+    void recordConversion(long nanos) {
+        conversion.recordNanos(nanos);
+    }
+
+    void recordBridge(long nanos) {
+        bridge.recordNanos(nanos);
+    }
+
+    void recordStart(long nanos, boolean failed) {
+        if (failed) {
+            startFailures.incrementAndGet();
+        } else {
+            start.recordNanos(nanos);
+        }
+    }
+
+    // Steps of a successful start; negotiate is not recorded when a cached result let it be skipped
+    void recordConnectSteps(long negotiateNanos, long transportOpenNanos, long handshakeNanos, boolean negotiateCached) {
+        if (negotiateCached) {
+            negotiateCacheHits.incrementAndGet();
+        }
+        if (negotiateNanos > 0) {
+            negotiate.recordNanos(negotiateNanos);
+        }
+        if (transportOpenNanos > 0) {
+            transportOpen.recordNanos(transportOpenNanos);
+        }
+        handshake.recordNanos(handshakeNanos);
+    }
+
+    void recordReconnectAttempt() {
+        reconnectAttempts.incrementAndGet();
+    }
+
+    void recordReconnect() {
+        reconnects.incrementAndGet();
+    }
+
+    void recordClose() {
+        closes.incrementAndGet();
+    }
+
+    void recordSuspend() {
+        suspends.incrementAndGet();
+    }
+
+    // Rates are computed over the time since the previous snapshot
+    synchronized JSObject snapshot() {
+        long now = System.currentTimeMillis();
+
+        JSObject connection = new JSObject();
+        connection.put("start", start.toJSObject());
+        connection.put("negotiate", negotiate.toJSObject());
+        connection.put("transportOpen", transportOpen.toJSObject());
+        connection.put("handshake", handshake.toJSObject());
+        connection.put("negotiateCacheHits", negotiateCacheHits.get());
+        connection.put("startFailures", startFailures.get());
+        connection.put("reconnects", reconnects.get());
+        connection.put("reconnectAttempts", reconnectAttempts.get());
+        connection.put("closes", closes.get());
+        connection.put("suspends", suspends.get());
+
+        JSObject invocationData = new JSObject();
+        for (Map.Entry<String, Invocation> entry : invocations.entrySet()) {
+            JSObject item = entry.getValue().latency.toJSObject();
+            item.put("errors", entry.getValue().errors.get());
+            invocationData.put(entry.getKey(), item);
+        }
+
+        JSObject result = new JSObject();
+        result.put("uptimeMs", now - createdAt);
+        result.put("connection", connection);
+        result.put("invocations", invocationData);
+        result.put("sends", counters(sends, now));
+        result.put("events", counters(receives, now));
+        result.put("conversion", conversion.toJSObject());
+        result.put("bridge", bridge.toJSObject());
+        return result;
+    }
+
+    private JSObject counters(Map<String, Counter> counters, long now) {
+        JSObject result = new JSObject();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            long count = counter.count.get();
+            long since = counter.lastSnapshotAt > 0 ? counter.lastSnapshotAt : createdAt;
+            long elapsedMs = Math.max(1, now - since);
+
+            JSObject item = new JSObject();
+            item.put("count", count);
+            item.put("bytes", counter.bytes.get());
+            item.put("ratePerSecond", (count - counter.lastCount) * 1000.0 / elapsedMs);
+            long filtered = counter.filtered.get();
+            if (filtered > 0) {
+                item.put("filtered", filtered);
+            }
+            long conflated = counter.conflated.get();
+            if (conflated > 0) {
+                item.put("conflated", conflated);
+            }
+            result.put(entry.getKey(), item);
+
+            counter.lastCount = count;
+            counter.lastSnapshotAt = now;
+        }
+        return result;
+    }
+
+    private static Counter counter(ConcurrentHashMap<String, Counter> counters, String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            Counter created = new Counter();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) counter = created;
+        }
+        return counter;
+    }
+}
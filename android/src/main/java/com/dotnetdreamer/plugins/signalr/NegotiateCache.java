@@ -0,0 +1,169 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// What the last negotiate of each hub URL said about how to connect: whether the server offers
+// WebSockets (so the next start can skip negotiate and open the socket directly) or which service
+// URL and access token it redirected to. Entries expire, and are persisted so the first start after
+// a cold launch benefits too. Access tokens are secrets and only ever kept in memory: a redirect
+// that comes with one is not written to disk, and is negotiated again after a cold launch.
+class NegotiateCache {
+    private static final String TAG = "CapacitorSignalR";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static final class Entry {
+        final boolean webSockets;
+        final String redirectUrl;
+        final String accessToken;
+        final long expiresAt;
+
+        Entry(boolean webSockets, String redirectUrl, String accessToken, long expiresAt) {
+            this.webSockets = webSockets;
+            this.redirectUrl = redirectUrl;
+            this.accessToken = accessToken;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private File file;
+    private boolean loaded;
+
+    synchronized void setFile(File file) {
+        this.file = file;
+        this.loaded = false;
+    }
+
+    synchronized Entry get(String hubUrl) {
+        load();
+        String key = keyOf(hubUrl);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            save();
+            return null;
+        }
+        return entry;
+    }
+
+    // Records a negotiate response body for the hub it was sent to
+    synchronized void record(String hubUrl, String negotiateResponse, long ttlMs) {
+        try {
+            JSONObject json = new JSONObject(negotiateResponse);
+            Entry entry;
+            if (json.has("url")) {
+                entry = new Entry(false, json.getString("url"), json.optString("accessToken", null), System.currentTimeMillis() + ttlMs);
+            } else {
+                boolean webSockets = false;
+                JSONArray transports = json.optJSONArray("availableTransports");
+                for (int i = 0; transports != null && i < transports.length(); i++) {
+                    JSONObject transport = transports.optJSONObject(i);
+                    if (transport != null && "WebSockets".equals(transport.optString("transport"))) {
+                        webSockets = true;
+                    }
+                }
+                if (!webSockets) {
+                    // Nothing to skip without WebSockets; negotiate is needed to pick a transport
+                    entries.remove(keyOf(hubUrl));
+                    return;
+                }
+                entry = new Entry(true, null, null, System.currentTimeMillis() + ttlMs);
+            }
+            load();
+            entries.put(keyOf(hubUrl), entry);
+            save();
+        } catch (Exception e) {
+            Log.w(TAG, "Error reading negotiate response", e);
+        }
+    }
+
+    synchronized void invalidate(String hubUrl) {
+        load();
+        if (entries.remove(keyOf(hubUrl)) != null) {
+            save();
+        }
+    }
+
+    // Hub URLs are compared without their query string, which negotiate adds parameters to
+    static String keyOf(String url) {
+        int query = url.indexOf('?');
+        String key = query >= 0 ? url.substring(0, query) : url;
+        return key.endsWith("/") ? key.substring(0, key.length() - 1) : key;
+    }
+
+    private void load() {
+        if (loaded) return;
+        loaded = true;
+        if (file == null || !file.exists()) return;
+
+        boolean scrub = false;
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] bytes = new byte[(int) file.length()];
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) break;
+                read += n;
+            }
+            JSONObject json = new JSONObject(new String(bytes, 0, read, UTF8));
+            long now = System.currentTimeMillis();
+            Iterator<String> keys = json.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                JSONObject item = json.getJSONObject(key);
+                long expiresAt = item.optLong("expiresAt");
+                if (item.has("accessToken")) {
+                    // Written by an earlier version; dropped, and scrubbed from the file below
+                    scrub = true;
+                } else if (expiresAt > now) {
+                    entries.put(key, new Entry(item.optBoolean("webSockets"), item.optString("redirectUrl", null),
+                        null, expiresAt));
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Error loading negotiate cache", e);
+        }
+        if (scrub) {
+            save();
+        }
+    }
+
+    private void save() {
+        if (file == null) return;
+
+        try {
+            JSONObject json = new JSONObject();
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                if (entry.getValue().accessToken != null) continue;
+
+                JSONObject item = new JSONObject();
+                item.put("webSockets", entry.getValue().webSockets);
+                item.put("redirectUrl", entry.getValue().redirectUrl);
+                item.put("expiresAt", entry.getValue().expiresAt);
+                json.put(entry.getKey(), item);
+            }
+            File parent = file.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            try (OutputStream out = new FileOutputStream(file)) {
+                out.write(json.toString().getBytes(UTF8));
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Error saving negotiate cache", e);
+        }
+    }
+}
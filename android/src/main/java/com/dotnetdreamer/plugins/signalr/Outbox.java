@@ -0,0 +1,350 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import android.util.Log;
+import com.getcapacitor.JSObject;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Bounded queue of hub calls made while the connection is not usable, flushed in order once it is.
+// Fire-and-forget sends are also appended to a journal file so they survive process death:
+// each line is either a queued call {"seq","method","args"} or an acknowledgement {"ack"} that
+// retires every call up to that sequence number. The file is truncated whenever the queue drains.
+// With the "block" overflow policy, calls arriving while it is full wait in line without blocking
+// their thread; their futures complete once they get a slot or fail after blockTimeoutMs.
+class Outbox {
+    private static final String TAG = "CapacitorSignalR";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    enum OverflowPolicy {
+        DROP_OLDEST,
+        REJECT,
+        BLOCK
+    }
+
+    static final class Entry {
+        final long seq;
+        final String methodName;
+        final JSONArray args;
+        // Set for invokeWithResult calls, which only live in memory since their caller can't outlive the process
+        final CompletableFuture<Object> result;
+
+        Entry(long seq, String methodName, JSONArray args, CompletableFuture<Object> result) {
+            this.seq = seq;
+            this.methodName = methodName;
+            this.args = args;
+            this.result = result;
+        }
+    }
+
+    // A call waiting for a slot in a full outbox
+    private static final class Waiter {
+        final String methodName;
+        final JSONArray args;
+        final CompletableFuture<Object> result;
+        // Completes once the call is in the queue
+        final CompletableFuture<Void> queued = new CompletableFuture<>();
+        ScheduledFuture<?> timeout;
+
+        Waiter(String methodName, JSONArray args, CompletableFuture<Object> result) {
+            this.methodName = methodName;
+            this.args = args;
+            this.result = result;
+        }
+    }
+
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMs;
+    private final ScheduledExecutorService scheduler;
+    private final File journalFile;
+    private Writer journal;
+    private long nextSeq = 1;
+    private long droppedCount;
+    private int lastFlushCount;
+    private long lastFlushDurationMs;
+
+    Outbox(int capacity, OverflowPolicy overflowPolicy, long blockTimeoutMs, ScheduledExecutorService scheduler, File journalFile) {
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.scheduler = scheduler;
+        this.journalFile = journalFile;
+    }
+
+    static Outbox fromOptions(JSObject outboxOptions, ScheduledExecutorService scheduler, File journalFile) {
+        int capacity = outboxOptions.optInt("maxSize", 1000);
+        long blockTimeoutMs = outboxOptions.optLong("blockTimeoutMs", 5000);
+        OverflowPolicy policy = OverflowPolicy.DROP_OLDEST;
+        String overflow = outboxOptions.optString("overflow", "drop-oldest");
+        if ("reject".equals(overflow)) {
+            policy = OverflowPolicy.REJECT;
+        } else if ("block".equals(overflow)) {
+            policy = OverflowPolicy.BLOCK;
+        }
+        boolean persist = outboxOptions.optBoolean("persist", true);
+
+        Outbox outbox = new Outbox(capacity, policy, blockTimeoutMs, scheduler, persist ? journalFile : null);
+        outbox.restore();
+        return outbox;
+    }
+
+    // Queues a send; the future completes once it is in the queue, which may be later when full
+    synchronized CompletableFuture<Void> enqueue(String methodName, JSONArray args) {
+        if (!reserveSlot()) {
+            return waitForSlot(methodName, args, null).queued;
+        }
+        add(methodName, args, null);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    synchronized CompletableFuture<Object> enqueueWithResult(String methodName, JSONArray args) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        if (!reserveSlot()) {
+            waitForSlot(methodName, args, result);
+            return result;
+        }
+        add(methodName, args, result);
+        return result;
+    }
+
+    private void add(String methodName, JSONArray args, CompletableFuture<Object> result) {
+        Entry entry = new Entry(nextSeq++, methodName, args, result);
+        queue.addLast(entry);
+        appendToJournal(entry);
+    }
+
+    synchronized Entry peek() {
+        return queue.peekFirst();
+    }
+
+    // Retires the head of the queue once it has been handed to the connection
+    synchronized void remove(Entry entry) {
+        if (queue.peekFirst() == entry) {
+            queue.pollFirst();
+            admitWaiters();
+        }
+    }
+
+    synchronized void acknowledge(long seq) {
+        if (queue.isEmpty()) {
+            truncateJournal();
+        } else if (journal != null) {
+            writeJournalLine("{\"ack\":" + seq + "}");
+        }
+    }
+
+    synchronized void recordFlush(int count, long durationMs) {
+        lastFlushCount = count;
+        lastFlushDurationMs = durationMs;
+    }
+
+    synchronized boolean isEmpty() {
+        return queue.isEmpty() && waiters.isEmpty();
+    }
+
+    synchronized JSObject getStatus() {
+        JSObject status = new JSObject();
+        status.put("depth", queue.size());
+        status.put("waiting", waiters.size());
+        status.put("capacity", capacity);
+        status.put("dropped", droppedCount);
+        status.put("lastFlushCount", lastFlushCount);
+        status.put("lastFlushMs", lastFlushDurationMs);
+        return status;
+    }
+
+    // Fails queued invokeWithResult calls and every waiting call; journaled sends stay for the next connection
+    synchronized void close() {
+        for (Entry entry : queue) {
+            if (entry.result != null) {
+                entry.result.completeExceptionally(new RuntimeException("Connection disposed before the call was sent"));
+            }
+        }
+        for (Waiter waiter : waiters) {
+            fail(waiter, "Connection disposed before the call was queued");
+        }
+        waiters.clear();
+        closeJournal();
+    }
+
+    // Makes room for one more call. Returns false when the call has to wait for a slot, which is
+    // also the case while earlier calls are waiting, so they keep their order.
+    private boolean reserveSlot() {
+        if (queue.size() < capacity && waiters.isEmpty()) return true;
+
+        switch (overflowPolicy) {
+            case REJECT:
+                throw new RuntimeException("Outbox is full");
+            case BLOCK:
+                return false;
+            case DROP_OLDEST:
+            default:
+                Entry dropped = queue.pollFirst();
+                droppedCount++;
+                if (dropped.result != null) {
+                    dropped.result.completeExceptionally(new RuntimeException("Dropped from full outbox"));
+                }
+                acknowledge(dropped.seq);
+                return true;
+        }
+    }
+
+    private Waiter waitForSlot(String methodName, JSONArray args, CompletableFuture<Object> result) {
+        final Waiter waiter = new Waiter(methodName, args, result);
+        waiters.addLast(waiter);
+        waiter.timeout = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (Outbox.this) {
+                    if (!waiters.remove(waiter)) return;
+                }
+                fail(waiter, "Timed out waiting for outbox space");
+            }
+        }, blockTimeoutMs, TimeUnit.MILLISECONDS);
+        return waiter;
+    }
+
+    // Moves waiting calls into the slots that have become free, oldest first
+    private void admitWaiters() {
+        while (queue.size() < capacity && !waiters.isEmpty()) {
+            Waiter waiter = waiters.pollFirst();
+            waiter.timeout.cancel(false);
+            add(waiter.methodName, waiter.args, waiter.result);
+            waiter.queued.complete(null);
+        }
+    }
+
+    private static void fail(Waiter waiter, String message) {
+        if (waiter.timeout != null) {
+            waiter.timeout.cancel(false);
+        }
+        RuntimeException error = new RuntimeException(message);
+        waiter.queued.completeExceptionally(error);
+        if (waiter.result != null) {
+            waiter.result.completeExceptionally(error);
+        }
+    }
+
+    // Reloads sends journaled by a previous process and compacts the journal down to them
+    private void restore() {
+        if (journalFile == null) return;
+
+        List<Entry> restored = new ArrayList<>();
+        if (journalFile.exists()) {
+            BufferedReader reader = null;
+            try {
+                reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), UTF8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        JSONObject record = new JSONObject(line);
+                        if (record.has("ack")) {
+                            long ack = record.getLong("ack");
+                            while (!restored.isEmpty() && restored.get(0).seq <= ack) {
+                                restored.remove(0);
+                            }
+                        } else {
+                            restored.add(new Entry(record.getLong("seq"), record.getString("method"), record.getJSONArray("args"), null));
+                        }
+                    } catch (Exception e) {
+                        // A torn last line from a crash mid-write, skip it
+                        Log.w(TAG, "Skipping unreadable outbox journal line", e);
+                    }
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Error reading outbox journal", e);
+            } finally {
+                closeQuietly(reader);
+            }
+        }
+
+        for (Entry entry : restored) {
+            if (queue.size() >= capacity) break;
+            Entry renumbered = new Entry(nextSeq++, entry.methodName, entry.args, null);
+            queue.addLast(renumbered);
+        }
+
+        truncateJournal();
+        for (Entry entry : queue) {
+            appendToJournal(entry);
+        }
+        if (!queue.isEmpty()) {
+            Log.d(TAG, "Restored " + queue.size() + " queued calls from outbox journal");
+        }
+    }
+
+    private void appendToJournal(Entry entry) {
+        if (journalFile == null || entry.result != null) return;
+
+        try {
+            JSONObject record = new JSONObject();
+            record.put("seq", entry.seq);
+            record.put("method", entry.methodName);
+            record.put("args", entry.args != null ? entry.args : new JSONArray());
+            writeJournalLine(record.toString());
+        } catch (Exception e) {
+            Log.w(TAG, "Error writing outbox journal", e);
+        }
+    }
+
+    private void writeJournalLine(String line) {
+        try {
+            if (journal == null) {
+                File parent = journalFile.getParentFile();
+                if (parent != null && !parent.exists()) {
+                    parent.mkdirs();
+                }
+                journal = new OutputStreamWriter(new FileOutputStream(journalFile, true), UTF8);
+            }
+            journal.write(line);
+            journal.write('\n');
+            journal.flush();
+        } catch (IOException e) {
+            Log.w(TAG, "Error writing outbox journal", e);
+        }
+    }
+
+    private void truncateJournal() {
+        if (journalFile == null) return;
+
+        closeJournal();
+        if (journalFile.exists() && !journalFile.delete()) {
+            Log.w(TAG, "Could not truncate outbox journal " + journalFile);
+        }
+    }
+
+    private void closeJournal() {
+        closeQuietly(journal);
+        journal = null;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // nothing to do
+        }
+    }
+}
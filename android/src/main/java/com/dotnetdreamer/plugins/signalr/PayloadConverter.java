@@ -0,0 +1,330 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import android.util.Base64;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Converts values decoded by the SignalR client into bridge payloads in a single walk.
+// Maps, lists, arrays and Gson trees are copied straight into JSObject/JSArray instead of
+// being serialized to a JSON string and parsed back. In the other direction, bridge arguments
+// become plain maps and lists that both the JSON and MessagePack hub protocols can encode.
+final class PayloadConverter {
+    // Only used for values that are neither JSON-like containers nor primitives
+    private static final Gson GSON = new Gson();
+
+    private PayloadConverter() {}
+
+    static Object toJS(Object value) {
+        if (value == null) return null;
+
+        if (value instanceof String || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Number) {
+            return toJSNumber((Number) value);
+        }
+        if (value instanceof Character) {
+            return value.toString();
+        }
+        if (value instanceof byte[]) {
+            // MessagePack binary has no bridge representation, hand it over as base64
+            return Base64.encodeToString((byte[]) value, Base64.NO_WRAP);
+        }
+        if (value instanceof JsonElement) {
+            return fromJsonElement((JsonElement) value);
+        }
+        if (value instanceof Map) {
+            return fromMap((Map<?, ?>) value);
+        }
+        if (value instanceof Collection) {
+            return fromCollection((Collection<?>) value);
+        }
+        if (value.getClass().isArray()) {
+            return fromArray(value);
+        }
+        if (value instanceof JSONObject || value instanceof JSONArray) {
+            return value;
+        }
+
+        // Arbitrary objects go through a shared Gson tree, never through a JSON string
+        return fromJsonElement(GSON.toJsonTree(value));
+    }
+
+    // Turns a value received from the bridge into maps, lists and primitives
+    static Object toJava(Object value) throws JSONException {
+        if (value == null || value == JSONObject.NULL) {
+            return null;
+        }
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            Map<String, Object> result = new LinkedHashMap<>();
+            Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                result.put(key, toJava(object.get(key)));
+            }
+            return result;
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            List<Object> result = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                result.add(toJava(array.get(i)));
+            }
+            return result;
+        }
+        return value;
+    }
+
+    // Approximate JSON-encoded size of a value, used for byte counters without serializing it
+    static long estimateSize(Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            return 4;
+        }
+        if (value instanceof String) {
+            return ((String) value).length() + 2;
+        }
+        if (value instanceof Boolean) {
+            return ((Boolean) value) ? 4 : 5;
+        }
+        if (value instanceof Number) {
+            return 8;
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof JsonElement) {
+            return estimateJsonElementSize((JsonElement) value);
+        }
+        long size = 2;
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += String.valueOf(entry.getKey()).length() + 4 + estimateSize(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof Collection) {
+            for (Object item : (Collection<?>) value) {
+                size += estimateSize(item) + 1;
+            }
+            return size;
+        }
+        if (value instanceof Object[]) {
+            for (Object item : (Object[]) value) {
+                size += estimateSize(item) + 1;
+            }
+            return size;
+        }
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                size += key.length() + 4 + estimateSize(object.opt(key));
+            }
+            return size;
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            for (int i = 0; i < array.length(); i++) {
+                size += estimateSize(array.opt(i)) + 1;
+            }
+            return size;
+        }
+        return 8;
+    }
+
+    // Writes a value as JSON token by token, so large payloads can go to a file without first
+    // being built as one string or JSObject
+    static void writeJson(Object value, JsonWriter out) throws IOException {
+        if (value == null || value == JSONObject.NULL) {
+            out.nullValue();
+        } else if (value instanceof String) {
+            out.value((String) value);
+        } else if (value instanceof Boolean) {
+            out.value((Boolean) value);
+        } else if (value instanceof Number) {
+            Object number = toJSNumber((Number) value);
+            if (number == null) {
+                out.nullValue();
+            } else {
+                out.value((Number) number);
+            }
+        } else if (value instanceof Character) {
+            out.value(value.toString());
+        } else if (value instanceof byte[]) {
+            out.value(Base64.encodeToString((byte[]) value, Base64.NO_WRAP));
+        } else if (value instanceof JsonElement) {
+            GSON.toJson((JsonElement) value, out);
+        } else if (value instanceof Map) {
+            out.beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                out.name(String.valueOf(entry.getKey()));
+                writeJson(entry.getValue(), out);
+            }
+            out.endObject();
+        } else if (value instanceof Collection) {
+            out.beginArray();
+            for (Object item : (Collection<?>) value) {
+                writeJson(item, out);
+            }
+            out.endArray();
+        } else if (value.getClass().isArray()) {
+            out.beginArray();
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                writeJson(Array.get(value, i), out);
+            }
+            out.endArray();
+        } else if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            out.beginObject();
+            Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                out.name(key);
+                writeJson(object.opt(key), out);
+            }
+            out.endObject();
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            out.beginArray();
+            for (int i = 0; i < array.length(); i++) {
+                writeJson(array.opt(i), out);
+            }
+            out.endArray();
+        } else {
+            GSON.toJson(GSON.toJsonTree(value), out);
+        }
+    }
+
+    private static long estimateJsonElementSize(JsonElement element) {
+        if (element.isJsonNull()) {
+            return 4;
+        }
+        long size = 2;
+        if (element.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> entry : ((JsonObject) element).entrySet()) {
+                size += entry.getKey().length() + 4 + estimateJsonElementSize(entry.getValue());
+            }
+            return size;
+        }
+        if (element.isJsonArray()) {
+            for (JsonElement item : (JsonArray) element) {
+                size += estimateJsonElementSize(item) + 1;
+            }
+            return size;
+        }
+
+        JsonPrimitive primitive = (JsonPrimitive) element;
+        if (primitive.isString()) {
+            return primitive.getAsString().length() + 2;
+        }
+        return primitive.isBoolean() ? 5 : 8;
+    }
+
+    private static JSObject fromMap(Map<?, ?> map) {
+        JSObject result = new JSObject();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            result.put(String.valueOf(entry.getKey()), toJSValue(entry.getValue()));
+        }
+        return result;
+    }
+
+    private static JSArray fromCollection(Collection<?> collection) {
+        JSArray result = new JSArray();
+        for (Object item : collection) {
+            result.put(toJSValue(item));
+        }
+        return result;
+    }
+
+    private static JSArray fromArray(Object array) {
+        JSArray result = new JSArray();
+        int length = Array.getLength(array);
+        for (int i = 0; i < length; i++) {
+            result.put(toJSValue(Array.get(array, i)));
+        }
+        return result;
+    }
+
+    private static Object fromJsonElement(JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            return null;
+        }
+        if (element.isJsonObject()) {
+            JSObject result = new JSObject();
+            for (Map.Entry<String, JsonElement> entry : ((JsonObject) element).entrySet()) {
+                result.put(entry.getKey(), nullToJSON(fromJsonElement(entry.getValue())));
+            }
+            return result;
+        }
+        if (element.isJsonArray()) {
+            JSArray result = new JSArray();
+            for (JsonElement item : (JsonArray) element) {
+                result.put(nullToJSON(fromJsonElement(item)));
+            }
+            return result;
+        }
+
+        JsonPrimitive primitive = (JsonPrimitive) element;
+        if (primitive.isBoolean()) {
+            return primitive.getAsBoolean();
+        }
+        if (primitive.isNumber()) {
+            return toJSNumber(primitive.getAsNumber());
+        }
+        return primitive.getAsString();
+    }
+
+    // Nested nulls are kept as JSON null so object keys and array positions survive
+    private static Object toJSValue(Object value) {
+        return nullToJSON(toJS(value));
+    }
+
+    private static Object nullToJSON(Object value) {
+        return value == null ? JSONObject.NULL : value;
+    }
+
+    private static Object toJSNumber(Number number) {
+        if (number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte) {
+            return number;
+        }
+        if (number instanceof Double || number instanceof Float) {
+            double d = number.doubleValue();
+            return Double.isNaN(d) || Double.isInfinite(d) ? null : number;
+        }
+
+        // Lazily parsed or big numbers: keep integers exact where they fit
+        String text = number.toString();
+        if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) {
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException ignored) {
+                // fall through to double
+            }
+        }
+        double d = number.doubleValue();
+        return Double.isNaN(d) || Double.isInfinite(d) ? null : d;
+    }
+}
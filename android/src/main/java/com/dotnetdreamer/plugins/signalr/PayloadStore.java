@@ -0,0 +1,137 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Received payloads above a size threshold are streamed as JSON from their decoded form into a file
+// in the cache directory, and JS gets a reference to it instead of the value. That saves the copies
+// a large message would otherwise cost on top of the decoded value: the JSObject conversion, the
+// string the bridge serializes it into and the copy handed to the WebView. Writes run on the
+// dispatch executor, never on the transport thread. Files are deleted when JS releases them or once
+// their TTL has passed, including files left behind by a previous process.
+class PayloadStore {
+    private static final String TAG = "CapacitorSignalR";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final long MAX_SWEEP_INTERVAL_MS = 60000;
+
+    // Reference handed to JS in place of a spilled payload
+    static final class PayloadFile {
+        final String fileId;
+        final String path;
+        final long bytes;
+        final long expiresAt;
+
+        PayloadFile(String fileId, String path, long bytes, long expiresAt) {
+            this.fileId = fileId;
+            this.path = path;
+            this.bytes = bytes;
+            this.expiresAt = expiresAt;
+        }
+
+        JSObject toJSObject() {
+            JSObject file = new JSObject();
+            file.put("fileId", fileId);
+            file.put("path", path);
+            file.put("bytes", bytes);
+            file.put("contentType", "application/json");
+            file.put("expiresAt", expiresAt);
+            return file;
+        }
+    }
+
+    private final File directory;
+    private final long thresholdBytes;
+    private final long ttlMs;
+    private final AtomicLong fileCounter = new AtomicLong();
+    private final ScheduledFuture<?> sweepTask;
+
+    PayloadStore(File directory, long thresholdBytes, long ttlMs, ScheduledExecutorService scheduler) {
+        this.directory = directory;
+        this.thresholdBytes = thresholdBytes;
+        this.ttlMs = ttlMs;
+        long sweepIntervalMs = Math.min(ttlMs, MAX_SWEEP_INTERVAL_MS);
+        this.sweepTask = scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                sweep();
+            }
+        }, 0, sweepIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Parses the "largePayloads" option of create(), e.g. { thresholdBytes: 1048576, ttlMs: 300000 }.
+    // Each connection gets its own directory.
+    static PayloadStore fromOptions(JSObject options, File directory, ScheduledExecutorService scheduler) {
+        long thresholdBytes = options.optLong("thresholdBytes", 1024 * 1024);
+        long ttlMs = Math.max(1000, options.optLong("ttlMs", 5 * 60 * 1000));
+        return new PayloadStore(directory, thresholdBytes, ttlMs, scheduler);
+    }
+
+    // bytes is the estimated size of data when the caller already has it, or -1
+    boolean shouldSpill(Object data, long bytes) {
+        if (data == null) return false;
+        return (bytes >= 0 ? bytes : PayloadConverter.estimateSize(data)) > thresholdBytes;
+    }
+
+    PayloadFile write(Object data) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        String fileId = System.currentTimeMillis() + "-" + fileCounter.incrementAndGet() + ".json";
+        File file = new File(directory, fileId);
+        JsonWriter out = new JsonWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), UTF8)));
+        try {
+            PayloadConverter.writeJson(data, out);
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            file.delete();
+            throw e;
+        }
+        out.close();
+        return new PayloadFile(fileId, file.getAbsolutePath(), file.length(), System.currentTimeMillis() + ttlMs);
+    }
+
+    // Deletes a file once JS has read it; returns false for unknown or already deleted files
+    boolean release(String fileId) {
+        if (fileId == null || !fileId.endsWith(".json") || fileId.indexOf('/') >= 0 || fileId.indexOf(File.separatorChar) >= 0) {
+            return false;
+        }
+        File file = new File(directory, fileId);
+        return file.exists() && file.delete();
+    }
+
+    // Deletes expired files
+    void sweep() {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+
+        long expiredBefore = System.currentTimeMillis() - ttlMs;
+        for (File file : files) {
+            if (file.lastModified() < expiredBefore && !file.delete()) {
+                Log.w(TAG, "Could not delete expired payload file " + file);
+            }
+        }
+    }
+
+    // Stops sweeping and deletes every file of this connection
+    void close() {
+        sweepTask.cancel(false);
+        File[] files = directory.listFiles();
+        if (files == null) return;
+
+        for (File file : files) {
+            file.delete();
+        }
+    }
+}
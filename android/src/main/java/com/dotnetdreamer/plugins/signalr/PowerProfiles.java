@@ -0,0 +1,90 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import com.getcapacitor.JSObject;
+import com.microsoft.signalr.HubConnection;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// The "power" option of create(): keep-alive settings for the foreground and for the background,
+// events only needed while the app is visible, and how long a backgrounded connection stays open.
+// A HubConnection reads its keep-alive interval and server timeout each time it resets the
+// timers, so switching profiles needs no reconnect.
+final class PowerProfiles {
+    // Defaults of the SignalR client
+    private static final long DEFAULT_KEEP_ALIVE_INTERVAL = 15000;
+    private static final long DEFAULT_SERVER_TIMEOUT = 30000;
+
+    static final class Profile {
+        final long keepAliveInterval;
+        final long serverTimeout;
+
+        Profile(long keepAliveInterval, long serverTimeout) {
+            this.keepAliveInterval = keepAliveInterval;
+            this.serverTimeout = serverTimeout;
+        }
+
+        void apply(HubConnection connection) {
+            connection.setKeepAliveInterval(keepAliveInterval);
+            connection.setServerTimeout(serverTimeout);
+        }
+    }
+
+    final Profile foreground;
+    final Profile background;
+    final Set<String> pausedEvents;
+    // Negative when a backgrounded connection stays open
+    final long disconnectAfterMs;
+
+    private PowerProfiles(Profile foreground, Profile background, Set<String> pausedEvents, long disconnectAfterMs) {
+        this.foreground = foreground;
+        this.background = background;
+        this.pausedEvents = pausedEvents;
+        this.disconnectAfterMs = disconnectAfterMs;
+    }
+
+    // e.g. { background: { keepAliveInterval: 25000, serverTimeout: 120000, pauseEvents: ['Typing'],
+    // disconnectAfterMs: 300000 } }. The foreground profile defaults to the keepAliveInterval and
+    // serverTimeout options of create(). Returns null when the option is missing.
+    static PowerProfiles fromOptions(JSObject options) {
+        JSObject power = options.getJSObject("power");
+        if (power == null) return null;
+
+        JSONObject foregroundOptions = power.optJSONObject("foreground");
+        Profile foreground = profile(foregroundOptions,
+            options.optLong("keepAliveInterval", DEFAULT_KEEP_ALIVE_INTERVAL),
+            options.optLong("serverTimeout", DEFAULT_SERVER_TIMEOUT));
+
+        JSONObject backgroundOptions = power.optJSONObject("background");
+        Profile background = profile(backgroundOptions, foreground.keepAliveInterval, foreground.serverTimeout);
+
+        Set<String> pausedEvents = new HashSet<>();
+        long disconnectAfterMs = -1;
+        if (backgroundOptions != null) {
+            JSONArray names = backgroundOptions.optJSONArray("pauseEvents");
+            if (names != null) {
+                for (int i = 0; i < names.length(); i++) {
+                    pausedEvents.add(names.optString(i));
+                }
+            }
+            disconnectAfterMs = backgroundOptions.optLong("disconnectAfterMs", -1);
+        }
+        return new PowerProfiles(foreground, background, Collections.unmodifiableSet(pausedEvents), disconnectAfterMs);
+    }
+
+    // A server timeout left out follows a longer keep-alive interval, staying at least twice as
+    // long as SignalR recommends
+    private static Profile profile(JSONObject options, long keepAliveInterval, long serverTimeout) {
+        if (options == null) return new Profile(keepAliveInterval, serverTimeout);
+
+        long keepAlive = Math.max(1, options.optLong("keepAliveInterval", keepAliveInterval));
+        long timeout = options.has("serverTimeout")
+            ? options.optLong("serverTimeout", serverTimeout)
+            : Math.max(serverTimeout, 2 * keepAlive);
+        return new Profile(keepAlive, Math.max(keepAlive, timeout));
+    }
+}
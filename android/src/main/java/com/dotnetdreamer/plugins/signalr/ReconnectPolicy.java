@@ -0,0 +1,62 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import com.getcapacitor.JSObject;
+
+import java.util.Random;
+
+import org.json.JSONArray;
+
+// Retry schedule for the native reconnect engine. Every configured delay is spread by a random
+// jitter so that clients dropped at the same moment (e.g. by a server deploy) don't all retry
+// at the same instant. A delay of 0 has no size to spread, so it gets an additive window of up to
+// jitter seconds instead (0..300ms by default); only a jitter of 0 keeps it an immediate retry.
+class ReconnectPolicy {
+    private static final long[] DEFAULT_DELAYS = { 0, 2000, 10000, 30000 };
+    private static final double DEFAULT_JITTER = 0.3;
+    // Length of the window a zero delay is spread over at a jitter of 1
+    private static final long ZERO_DELAY_WINDOW_MS = 1000;
+
+    private final long[] delays;
+    private final double jitter;
+    private final Random random = new Random();
+
+    ReconnectPolicy(long[] delays, double jitter) {
+        this.delays = delays;
+        this.jitter = Math.max(0, Math.min(1, jitter));
+    }
+
+    // Returns null when automatic reconnect is not enabled in the create() options
+    static ReconnectPolicy fromOptions(JSObject options) {
+        if (!options.optBoolean("enableAutoReconnect", false)) {
+            return null;
+        }
+
+        long[] delays = DEFAULT_DELAYS;
+        JSONArray delaysJson = options.optJSONArray("autoReconnectRetryDelays");
+        if (delaysJson != null && delaysJson.length() > 0) {
+            delays = new long[delaysJson.length()];
+            for (int i = 0; i < delaysJson.length(); i++) {
+                delays[i] = Math.max(0, delaysJson.optLong(i));
+            }
+        }
+
+        return new ReconnectPolicy(delays, options.optDouble("autoReconnectJitter", DEFAULT_JITTER));
+    }
+
+    // Delay in milliseconds before the given zero-based retry, or -1 once retries are exhausted
+    long nextDelay(int attempt) {
+        if (attempt >= delays.length) {
+            return -1;
+        }
+
+        long delay = delays[attempt];
+        if (jitter == 0) {
+            return delay;
+        }
+        if (delay == 0) {
+            return Math.round(random.nextDouble() * jitter * ZERO_DELAY_WINDOW_MS);
+        }
+        double spread = delay * jitter;
+        return Math.max(0, Math.round(delay - spread + random.nextDouble() * 2 * spread));
+    }
+}
@@ -0,0 +1,168 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.json.JSONObject;
+
+// Last received values of events subscribed with the "sticky" option of on(), handed to later
+// subscribers so they start from the current state instead of waiting for the next push. Each
+// event keeps its last N values, or its last value per key. All events of a connection share one
+// memory budget (estimated JSON bytes); when it is exceeded the least recently received or read
+// values go first, whichever event they belong to. Values are kept decoded and only converted
+// when a subscriber reads them. An event's values outlive its last subscriber for retainMs, so a
+// screen mounting again finds them.
+class StickyCache {
+    private static final Object SINGLE_KEY = new Object();
+    private static final long DEFAULT_RETAIN_MS = 5 * 60 * 1000;
+
+    static final class Value {
+        final Slot slot;
+        final Object key;
+        final Object data;
+        final long bytes;
+        final long receivedAt;
+
+        Value(Slot slot, Object key, Object data, long bytes, long receivedAt) {
+            this.slot = slot;
+            this.key = key;
+            this.data = data;
+            this.bytes = bytes;
+            this.receivedAt = receivedAt;
+        }
+    }
+
+    // The values of one event, in order of arrival
+    final class Slot {
+        final String eventName;
+        private final ValuePath keyPath;
+        private final int maxValues;
+        // How long the values are kept once the last subscriber has left
+        final long retainMs;
+        private final LinkedHashMap<Object, Value> values = new LinkedHashMap<>();
+        private long counter;
+        private boolean closed;
+
+        private Slot(String eventName, ValuePath keyPath, int maxValues, long retainMs) {
+            this.eventName = eventName;
+            this.keyPath = keyPath;
+            this.maxValues = maxValues;
+            this.retainMs = retainMs;
+        }
+
+        // bytes is the estimated size of data, computed once by the caller
+        void put(Object data, long bytes) {
+            StickyCache.this.put(this, data, bytes);
+        }
+
+        // Drops the event's values, called once the event expires or is released
+        void close() {
+            StickyCache.this.close(this);
+        }
+    }
+
+    // Every value of every event, least recently used first
+    private final LinkedHashMap<Value, Value> lru = new LinkedHashMap<>(16, 0.75f, true);
+    private long maxBytes;
+    private long bytes;
+    private long evicted;
+
+    StickyCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    // Parses the "sticky" option of on(): true for the last value, { count: 10 } for the last 10,
+    // { keyPath: "symbol", count: 500 } for the last value of up to 500 keys, and retainMs for how
+    // long they outlive the last subscriber (default 5 minutes). Returns null for false.
+    Slot open(String eventName, Object option) {
+        if (option == null || Boolean.FALSE.equals(option)) return null;
+
+        ValuePath keyPath = null;
+        int maxValues = 1;
+        long retainMs = DEFAULT_RETAIN_MS;
+        if (option instanceof JSONObject) {
+            JSONObject sticky = (JSONObject) option;
+            keyPath = ValuePath.parse(sticky.optString("keyPath", null));
+            maxValues = Math.max(1, sticky.optInt("count", keyPath != null ? 100 : 1));
+            retainMs = Math.max(0, sticky.optLong("retainMs", DEFAULT_RETAIN_MS));
+        }
+        return new Slot(eventName, keyPath, maxValues, retainMs);
+    }
+
+    private synchronized void put(Slot slot, Object data, long size) {
+        if (slot.closed) return;
+
+        Object key;
+        if (slot.keyPath != null) {
+            key = ValuePath.scalar(slot.keyPath.resolve(data));
+            if (key == null) {
+                key = SINGLE_KEY;
+            }
+        } else {
+            key = slot.counter++;
+        }
+
+        Value value = new Value(slot, key, data, size, System.currentTimeMillis());
+        // Re-insert so a key updated last is also the last one handed out
+        removeValue(slot.values.remove(key));
+        slot.values.put(key, value);
+        lru.put(value, value);
+        bytes += value.bytes;
+
+        if (slot.values.size() > slot.maxValues) {
+            Iterator<Value> oldest = slot.values.values().iterator();
+            removeValue(oldest.next());
+            oldest.remove();
+        }
+        evict();
+    }
+
+    // Returns the event's values in order of arrival and marks them as recently used
+    synchronized List<Value> get(Slot slot) {
+        List<Value> result = new ArrayList<>(slot.values.values());
+        for (Value value : result) {
+            lru.get(value);
+        }
+        return result;
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    synchronized long getEvictedCount() {
+        return evicted;
+    }
+
+    private synchronized void close(Slot slot) {
+        slot.closed = true;
+        for (Value value : slot.values.values()) {
+            removeValue(value);
+        }
+        slot.values.clear();
+    }
+
+    private void evict() {
+        Iterator<Value> iterator = lru.keySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Value value = iterator.next();
+            iterator.remove();
+            bytes -= value.bytes;
+            value.slot.values.remove(value.key);
+            evicted++;
+        }
+    }
+
+    private void removeValue(Value value) {
+        if (value != null && lru.remove(value) != null) {
+            bytes -= value.bytes;
+        }
+    }
+}
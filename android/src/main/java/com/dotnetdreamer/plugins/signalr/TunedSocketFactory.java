@@ -0,0 +1,62 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+
+import javax.net.SocketFactory;
+
+// Creates plain sockets with the buffer sizes and TCP_NODELAY setting requested in the "http"
+// option of create(). OkHttp layers TLS on top of these sockets, so the settings apply to https too.
+class TunedSocketFactory extends SocketFactory {
+    private final SocketFactory delegate = SocketFactory.getDefault();
+    private final int sendBufferSize;
+    private final int receiveBufferSize;
+    private final boolean tcpNoDelay;
+
+    TunedSocketFactory(int sendBufferSize, int receiveBufferSize, boolean tcpNoDelay) {
+        this.sendBufferSize = sendBufferSize;
+        this.receiveBufferSize = receiveBufferSize;
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return tune(delegate.createSocket());
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return tune(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return tune(delegate.createSocket(host, port, localHost, localPort));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return tune(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        return tune(delegate.createSocket(address, port, localAddress, localPort));
+    }
+
+    private Socket tune(Socket socket) throws SocketException {
+        // Receive buffer sizes above 64 KiB only take effect when set before connecting
+        if (sendBufferSize > 0) {
+            socket.setSendBufferSize(sendBufferSize);
+        }
+        if (receiveBufferSize > 0) {
+            socket.setReceiveBufferSize(receiveBufferSize);
+        }
+        if (tcpNoDelay) {
+            socket.setTcpNoDelay(true);
+        }
+        return socket;
+    }
+}
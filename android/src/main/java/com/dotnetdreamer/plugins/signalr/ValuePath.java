@@ -0,0 +1,91 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.List;
+import java.util.Map;
+
+// A dotted path such as "quote.symbol" or "0.id", resolved against decoded event data before it
+// is converted for the bridge. Works on Gson trees (JSON protocol), plain maps and lists
+// (MessagePack) and the argument array of multi-argument events.
+final class ValuePath {
+    private final String[] segments;
+
+    private ValuePath(String path) {
+        this.segments = path.split("\\.");
+    }
+
+    static ValuePath parse(String path) {
+        if (path == null || path.trim().isEmpty()) {
+            return null;
+        }
+        return new ValuePath(path.trim());
+    }
+
+    String[] getSegments() {
+        return segments;
+    }
+
+    // Returns the value at the path, or null when any segment is missing
+    Object resolve(Object value) {
+        Object current = value;
+        for (String segment : segments) {
+            if (current == null) return null;
+            current = child(current, segment);
+        }
+        return current;
+    }
+
+    static Object child(Object value, String segment) {
+        if (value instanceof JsonObject) {
+            return ((JsonObject) value).get(segment);
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).get(segment);
+        }
+
+        int index = parseIndex(segment);
+        if (index < 0) return null;
+        if (value instanceof JsonArray) {
+            JsonArray array = (JsonArray) value;
+            return index < array.size() ? array.get(index) : null;
+        }
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            return index < list.size() ? list.get(index) : null;
+        }
+        if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            return index < array.length ? array[index] : null;
+        }
+        return null;
+    }
+
+    // Unwraps Gson primitives so resolved values compare like plain Java values
+    static Object scalar(Object value) {
+        if (value instanceof JsonPrimitive) {
+            JsonPrimitive primitive = (JsonPrimitive) value;
+            if (primitive.isBoolean()) return primitive.getAsBoolean();
+            if (primitive.isNumber()) return primitive.getAsDouble();
+            return primitive.getAsString();
+        }
+        if (value instanceof JsonElement && ((JsonElement) value).isJsonNull()) {
+            return null;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return value;
+    }
+
+    private static int parseIndex(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
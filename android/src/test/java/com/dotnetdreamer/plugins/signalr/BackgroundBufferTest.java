@@ -0,0 +1,203 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSObject;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BackgroundBufferTest {
+    private File spillFile;
+
+    @Before
+    public void setUp() throws Exception {
+        spillFile = File.createTempFile("background", ".log");
+        spillFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        spillFile.delete();
+    }
+
+    @Test
+    public void fromOptions_isOptIn() throws Exception {
+        assertNull(BackgroundBuffer.fromOptions(null, spillFile));
+        assertNull(BackgroundBuffer.fromOptions(Boolean.FALSE, spillFile));
+        assertNotNull(BackgroundBuffer.fromOptions(Boolean.TRUE, spillFile));
+        assertNotNull(BackgroundBuffer.fromOptions(new JSONObject().put("maxEvents", 10), spillFile));
+    }
+
+    @Test
+    public void offer_deliversRightAwayUnlessPaused() throws Exception {
+        BackgroundBuffer buffer = buffer(10, 100);
+        assertFalse(buffer.offer(1, "Event", "onReceive", json("1")));
+        assertNull(buffer.resume());
+    }
+
+    @Test
+    public void spilledEvents_replayInSequenceOrderAfterTheMemoryOnes() throws Exception {
+        BackgroundBuffer buffer = buffer(2, 100);
+        buffer.pause();
+        for (int seq = 1; seq <= 5; seq++) {
+            assertTrue(buffer.offer(seq, "Event", "onReceive", json("{\"n\":" + seq + "}")));
+        }
+        assertTrue(spillFile.exists());
+
+        JSObject summary = buffer.resume();
+        assertEquals(5, summary.getInt("buffered"));
+        assertEquals(3, summary.getInt("spilled"));
+        assertEquals(1, summary.getInt("fromSeq"));
+        assertEquals(5, summary.getInt("toSeq"));
+
+        List<BackgroundBuffer.Event> events = drainAll(buffer, 2);
+        assertEquals(listOf(1L, 2L, 3L, 4L, 5L), seqs(events));
+        // Spilled data comes back as a JsonElement
+        assertEquals(json("{\"n\":4}"), events.get(3).data);
+        assertEquals("onReceive", events.get(3).channel);
+        assertFalse(buffer.isPaused());
+        assertFalse(spillFile.exists());
+    }
+
+    @Test
+    public void eventsArrivingDuringReplay_queueBehindIt() throws Exception {
+        BackgroundBuffer buffer = buffer(1, 100);
+        buffer.pause();
+        buffer.offer(1, "Event", "onReceive", json("1"));
+        buffer.offer(2, "Event", "onReceive", json("2"));
+        buffer.offer(3, "Event", "onReceive", json("3"));
+        buffer.resume();
+
+        List<BackgroundBuffer.Event> events = new ArrayList<>(buffer.drain(2));
+        // Spilled while the replay is reading the same file
+        assertTrue(buffer.offer(4, "Event", "onReceive", json("4")));
+        events.addAll(drainAll(buffer, 2));
+
+        assertEquals(listOf(1L, 2L, 3L, 4L), seqs(events));
+        assertFalse(buffer.offer(5, "Event", "onReceive", json("5")));
+    }
+
+    @Test
+    public void coalescedEvents_keepTheirLatestValueInSequenceOrder() throws Exception {
+        BackgroundBuffer buffer = new BackgroundBuffer(10, 100, false, new HashSet<>(Collections.singletonList("Tick")), spillFile);
+        buffer.pause();
+        buffer.offer(1, "Tick", "onReceive", json("1"));
+        buffer.offer(2, "Other", "onReceive", json("2"));
+        buffer.offer(3, "Tick", "onReceive", json("3"));
+        buffer.offer(4, "Other", "onReceive", json("4"));
+
+        assertEquals(1, buffer.resume().getInt("coalesced"));
+        assertEquals(listOf(2L, 3L, 4L), seqs(drainAll(buffer, 10)));
+    }
+
+    @Test
+    public void maxEvents_dropsNewerEvents() throws Exception {
+        BackgroundBuffer buffer = buffer(2, 3);
+        buffer.pause();
+        for (int seq = 1; seq <= 5; seq++) {
+            buffer.offer(seq, "Event", "onReceive", json("" + seq));
+        }
+
+        JSObject summary = buffer.resume();
+        assertEquals(2, summary.getInt("dropped"));
+        assertEquals(listOf(1L, 2L, 3L), seqs(drainAll(buffer, 10)));
+    }
+
+    @Test
+    public void spillDisabled_keepsEverythingInMemory() throws Exception {
+        BackgroundBuffer buffer = BackgroundBuffer.fromOptions(new JSONObject()
+            .put("maxMemoryEvents", 1)
+            .put("spill", false)
+            .put("coalesce", new JSONArray()), spillFile);
+        buffer.pause();
+        for (int seq = 1; seq <= 3; seq++) {
+            buffer.offer(seq, "Event", "onReceive", json("" + seq));
+        }
+
+        assertFalse(spillFile.exists());
+        assertEquals(0, buffer.resume().getInt("spilled"));
+        assertEquals(listOf(1L, 2L, 3L), seqs(drainAll(buffer, 10)));
+    }
+
+    @Test
+    public void pausedAgainMidReplay_resumesWhereItLeftOff() throws Exception {
+        BackgroundBuffer buffer = buffer(1, 100);
+        buffer.pause();
+        for (int seq = 1; seq <= 4; seq++) {
+            buffer.offer(seq, "Event", "onReceive", json("" + seq));
+        }
+        buffer.resume();
+        List<BackgroundBuffer.Event> events = new ArrayList<>(buffer.drain(2));
+
+        buffer.pause();
+        assertTrue(buffer.drain(10).isEmpty());
+        assertTrue(buffer.isPaused());
+        buffer.offer(5, "Event", "onReceive", json("5"));
+
+        assertEquals(3, buffer.resume().getInt("buffered"));
+        events.addAll(drainAll(buffer, 10));
+        assertEquals(listOf(1L, 2L, 3L, 4L, 5L), seqs(events));
+    }
+
+    @Test
+    public void close_discardsTheSpillFile() throws Exception {
+        BackgroundBuffer buffer = buffer(0, 100);
+        buffer.pause();
+        buffer.offer(1, "Event", "onReceive", json("1"));
+        assertTrue(spillFile.exists());
+
+        buffer.close();
+        assertFalse(spillFile.exists());
+        assertFalse(buffer.isPaused());
+    }
+
+    private BackgroundBuffer buffer(int maxMemoryEvents, int maxEvents) {
+        return new BackgroundBuffer(maxMemoryEvents, maxEvents, false, new HashSet<String>(), spillFile);
+    }
+
+    private static List<BackgroundBuffer.Event> drainAll(BackgroundBuffer buffer, int chunk) {
+        List<BackgroundBuffer.Event> events = new ArrayList<>();
+        List<BackgroundBuffer.Event> batch;
+        while (!(batch = buffer.drain(chunk)).isEmpty()) {
+            assertTrue(batch.size() <= chunk);
+            events.addAll(batch);
+        }
+        return events;
+    }
+
+    private static List<Long> seqs(List<BackgroundBuffer.Event> events) {
+        List<Long> seqs = new ArrayList<>();
+        for (BackgroundBuffer.Event event : events) {
+            seqs.add(event.seq);
+        }
+        return seqs;
+    }
+
+    private static JsonElement json(String text) {
+        return JsonParser.parseString(text);
+    }
+
+    private static List<Long> listOf(Long... values) {
+        List<Long> list = new ArrayList<>();
+        for (Long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,51 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import java.util.Locale;
+
+// Minimal timing loop for the JVM benchmarks: a warm-up phase for the JIT, then a measured phase
+// reported as ns/op. Benchmarks only run with -PsignalrBench so the regular unit test run stays fast.
+final class Bench {
+    static final boolean ENABLED = Boolean.getBoolean("signalr.bench");
+
+    private static final long WARMUP_NANOS = Long.getLong("signalr.bench.warmupMs", 2000) * 1000000L;
+    private static final long MEASURE_NANOS = Long.getLong("signalr.bench.measureMs", 3000) * 1000000L;
+    private static final int BATCH = 64;
+
+    // Results are written here so the JIT cannot drop the measured work
+    static volatile Object blackhole;
+
+    interface Op {
+        Object run() throws Exception;
+    }
+
+    private Bench() {}
+
+    static double run(String name, Op op) throws Exception {
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < warmupEnd) {
+            for (int i = 0; i < BATCH; i++) {
+                blackhole = op.run();
+            }
+        }
+
+        long ops = 0;
+        long startedAt = System.nanoTime();
+        long measureEnd = startedAt + MEASURE_NANOS;
+        long now;
+        do {
+            for (int i = 0; i < BATCH; i++) {
+                blackhole = op.run();
+            }
+            ops += BATCH;
+            now = System.nanoTime();
+        } while (now < measureEnd);
+
+        double nanosPerOp = (now - startedAt) / (double) ops;
+        report(name, String.format(Locale.ROOT, "%12.1f ns/op %14.0f ops/s", nanosPerOp, 1e9 / nanosPerOp));
+        return nanosPerOp;
+    }
+
+    static void report(String name, String result) {
+        System.out.println(String.format(Locale.ROOT, "[bench] %-48s %s", name, result));
+    }
+}
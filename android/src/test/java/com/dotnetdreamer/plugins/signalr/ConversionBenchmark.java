@@ -0,0 +1,89 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSObject;
+import com.google.gson.JsonElement;
+
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+// Conversion and dispatch hot paths on small, medium and large payloads. Run with
+// ./gradlew testDebugUnitTest -PsignalrBench --tests '*Benchmark'
+public class ConversionBenchmark {
+    private static final int[] SIZES = { Payloads.SMALL, Payloads.MEDIUM, Payloads.LARGE };
+
+    private StubPlugin plugin;
+    private CapacitorSignalR connection;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Bench.ENABLED);
+
+        plugin = new StubPlugin();
+        connection = new CapacitorSignalR(ConnectionRegistry.DEFAULT_HANDLE, new ConnectionRegistry());
+        connection.setPlugin(plugin);
+        JSObject options = new JSObject();
+        options.put("url", "http://localhost/hub");
+        connection.create(options);
+    }
+
+    @Test
+    public void convertToJSCompatible_jsonTree() throws Exception {
+        for (int size : SIZES) {
+            final JsonElement tree = Payloads.quoteTree(size);
+            Bench.run("convertToJSCompatible json " + Payloads.sizeLabel(size), new Bench.Op() {
+                @Override
+                public Object run() {
+                    return connection.convertToJSCompatible(tree);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void convertToJSCompatible_messagePackMap() throws Exception {
+        for (int size : SIZES) {
+            final Map<?, ?> map = Payloads.quoteMap(size);
+            Bench.run("convertToJSCompatible map " + Payloads.sizeLabel(size), new Bench.Op() {
+                @Override
+                public Object run() {
+                    return connection.convertToJSCompatible(map);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void convertJSONArrayToObjectArray() throws Exception {
+        for (int size : SIZES) {
+            final JSONArray args = new JSONArray("[\"MSFT\"," + Payloads.quoteJson(size) + "]");
+            Bench.run("convertJSONArrayToObjectArray " + Payloads.sizeLabel(size), new Bench.Op() {
+                @Override
+                public Object run() {
+                    return connection.convertJSONArrayToObjectArray(args);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void handleReceivedEvent() throws Exception {
+        for (int size : SIZES) {
+            final JsonElement tree = Payloads.quoteTree(size);
+            long deliveredBefore = plugin.getDelivered();
+            Bench.run("handleReceivedEvent " + Payloads.sizeLabel(size), new Bench.Op() {
+                @Override
+                public Object run() {
+                    connection.handleReceivedEvent("QuoteUpdated", "onReceive", tree);
+                    return null;
+                }
+            });
+            assertTrue(plugin.getDelivered() > deliveredBefore);
+        }
+    }
+}
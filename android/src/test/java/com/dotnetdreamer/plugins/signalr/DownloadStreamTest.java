@@ -0,0 +1,225 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSArray;
+import io.reactivex.rxjava3.disposables.Disposable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+
+public class DownloadStreamTest {
+    private final ManualExecutor executor = new ManualExecutor();
+    private final RecordingSink sink = new RecordingSink();
+    private final TrackedDisposable subscription = new TrackedDisposable();
+    private final DownloadStream.Converter converter = new DownloadStream.Converter() {
+        @Override
+        public Object convert(Object item) {
+            return "item-" + item;
+        }
+    };
+
+    @Test
+    public void window_limitsItemsUntilMoreCreditIsRequested() throws Exception {
+        DownloadStream stream = stream(2, 10);
+        for (int i = 0; i < 5; i++) {
+            stream.onItem(i);
+        }
+        executor.runAll();
+        assertEquals(listOf("item-0", "item-1"), sink.items());
+
+        stream.request(2);
+        executor.runAll();
+        assertEquals(listOf("item-0", "item-1", "item-2", "item-3"), sink.items());
+
+        stream.request(10);
+        executor.runAll();
+        assertEquals(5, sink.items().size());
+        assertFalse(sink.completed);
+    }
+
+    @Test
+    public void itemsCoveredByCredit_goOutInOneBridgeCall() throws Exception {
+        DownloadStream stream = stream(10, 10);
+        stream.onItem(0);
+        stream.onItem(1);
+        stream.onItem(2);
+        executor.runAll();
+
+        assertEquals(1, sink.batches.size());
+        assertEquals(3, sink.batches.get(0).length());
+    }
+
+    @Test
+    public void complete_followsTheLastDeliveredItem() throws Exception {
+        DownloadStream stream = stream(1, 10);
+        stream.onItem(0);
+        stream.onItem(1);
+        stream.onComplete();
+        executor.runAll();
+        assertFalse(sink.completed);
+
+        stream.request(1);
+        executor.runAll();
+        assertEquals(listOf("item-0", "item-1"), sink.items());
+        assertTrue(sink.completed);
+        assertNull(sink.error);
+    }
+
+    @Test
+    public void overflow_cancelsTheStreamWithAnError() throws Exception {
+        DownloadStream stream = stream(1, 2);
+        stream.onItem(0);
+        executor.runAll();
+        stream.onItem(1);
+        stream.onItem(2);
+        // A third item waiting for credit overflows the buffer
+        stream.onItem(3);
+        stream.onItem(4);
+        executor.runAll();
+
+        assertTrue(subscription.disposed);
+        assertEquals(listOf("item-0"), sink.items());
+        assertTrue(sink.completed);
+        assertEquals("Stream buffer overflow: more than 2 items waiting for credit", sink.error.getMessage());
+    }
+
+    @Test
+    public void error_endsTheStreamAfterItemsAlreadyDelivered() throws Exception {
+        DownloadStream stream = stream(10, 10);
+        stream.onItem(0);
+        executor.runAll();
+        stream.onError(new RuntimeException("Hub failed"));
+        executor.runAll();
+
+        assertEquals(listOf("item-0"), sink.items());
+        assertEquals("Hub failed", sink.error.getMessage());
+    }
+
+    @Test
+    public void cancel_disposesAndDeliversNothingMore() throws Exception {
+        DownloadStream stream = stream(10, 10);
+        stream.onItem(0);
+        stream.cancel();
+        stream.onItem(1);
+        stream.onComplete();
+        executor.runAll();
+
+        assertTrue(subscription.disposed);
+        assertTrue(sink.items().isEmpty());
+        assertFalse(sink.completed);
+    }
+
+    @Test
+    public void attachAfterCancel_disposesRightAway() throws Exception {
+        DownloadStream stream = new DownloadStream("s1", 10, 10, executor, converter, sink);
+        stream.cancel();
+        stream.attach(subscription);
+        assertTrue(subscription.disposed);
+    }
+
+    @Test
+    public void throwingSink_failsTheStreamInsteadOfStallingIt() throws Exception {
+        sink.failNextDelivery = true;
+        DownloadStream stream = stream(10, 10);
+        stream.onItem(0);
+        executor.runAll();
+
+        assertTrue(subscription.disposed);
+        assertTrue(sink.completed);
+        assertEquals("Bridge gone", sink.error.getMessage());
+
+        // Nothing scheduled or delivered after the failure
+        stream.onItem(1);
+        stream.request(1);
+        executor.runAll();
+        assertTrue(sink.items().isEmpty());
+        assertEquals(1, sink.completions);
+    }
+
+    private DownloadStream stream(int window, int bufferSize) {
+        DownloadStream stream = new DownloadStream("s1", window, bufferSize, executor, converter, sink);
+        stream.attach(subscription);
+        return stream;
+    }
+
+    private static final class RecordingSink implements DownloadStream.Sink {
+        final List<JSArray> batches = new ArrayList<>();
+        boolean failNextDelivery;
+        boolean completed;
+        int completions;
+        Throwable error;
+
+        @Override
+        public void deliverItems(String streamId, JSArray items) {
+            if (failNextDelivery) {
+                failNextDelivery = false;
+                throw new IllegalStateException("Bridge gone");
+            }
+            batches.add(items);
+        }
+
+        @Override
+        public void complete(String streamId, Throwable error) {
+            completed = true;
+            completions++;
+            this.error = error;
+        }
+
+        List<Object> items() {
+            List<Object> items = new ArrayList<>();
+            for (JSArray batch : batches) {
+                for (int i = 0; i < batch.length(); i++) {
+                    items.add(batch.opt(i));
+                }
+            }
+            return items;
+        }
+    }
+
+    private static final class TrackedDisposable implements Disposable {
+        boolean disposed;
+
+        @Override
+        public void dispose() {
+            disposed = true;
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+
+    // Runs queued tasks only when asked, so a test decides when the drain happens
+    private static final class ManualExecutor implements Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.addLast(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.pollFirst()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private static List<Object> listOf(Object... values) {
+        List<Object> list = new ArrayList<>();
+        for (Object value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
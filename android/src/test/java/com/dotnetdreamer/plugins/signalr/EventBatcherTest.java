@@ -0,0 +1,115 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EventBatcherTest {
+    private final List<JSArray> batches = new ArrayList<>();
+    private final EventBatcher.Sink sink = new EventBatcher.Sink() {
+        @Override
+        public void deliver(JSArray events) {
+            synchronized (batches) {
+                batches.add(events);
+            }
+        }
+    };
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void firstEventAfterAnIdleWindow_isDeliveredRightAway() throws Exception {
+        EventBatcher batcher = new EventBatcher(100, 10000, scheduler, sink);
+        batcher.add(event(0));
+        assertEquals(listOf(listOf(0)), seqs());
+    }
+
+    @Test
+    public void burst_isCoalescedIntoOneDeliveryPerWindow() throws Exception {
+        EventBatcher batcher = new EventBatcher(100, 100, scheduler, sink);
+        for (int i = 0; i < 5; i++) {
+            batcher.add(event(i));
+        }
+        assertEquals(listOf(listOf(0)), seqs());
+
+        awaitBatches(2);
+        assertEquals(listOf(listOf(0), listOf(1, 2, 3, 4)), seqs());
+    }
+
+    @Test
+    public void fullBatch_isDeliveredWithoutWaiting() throws Exception {
+        EventBatcher batcher = new EventBatcher(3, 10000, scheduler, sink);
+        for (int i = 0; i < 7; i++) {
+            batcher.add(event(i));
+        }
+        assertEquals(listOf(listOf(0), listOf(1, 2, 3), listOf(4, 5, 6)), seqs());
+    }
+
+    @Test
+    public void flush_deliversWhateverIsPending() throws Exception {
+        EventBatcher batcher = new EventBatcher(100, 10000, scheduler, sink);
+        batcher.add(event(0));
+        batcher.add(event(1));
+        batcher.add(event(2));
+        batcher.flush();
+        batcher.flush();
+
+        assertEquals(listOf(listOf(0), listOf(1, 2)), seqs());
+    }
+
+    private static JSObject event(int seq) {
+        JSObject event = new JSObject();
+        event.put("seq", seq);
+        return event;
+    }
+
+    private List<Object> seqs() throws Exception {
+        List<Object> result = new ArrayList<>();
+        synchronized (batches) {
+            for (JSArray batch : batches) {
+                List<Object> seqs = new ArrayList<>();
+                for (int i = 0; i < batch.length(); i++) {
+                    seqs.add(batch.getJSONObject(i).getInt("seq"));
+                }
+                result.add(seqs);
+            }
+        }
+        return result;
+    }
+
+    private void awaitBatches(int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (seqs().size() < count) {
+            assertTrue("Only " + seqs() + " delivered", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static List<Object> listOf(Object... values) {
+        List<Object> list = new ArrayList<>();
+        for (Object value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
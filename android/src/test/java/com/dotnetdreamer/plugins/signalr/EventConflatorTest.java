@@ -0,0 +1,161 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EventConflatorTest {
+    private final List<Object> emitted = new ArrayList<>();
+    private final EventConflator.Sink sink = new EventConflator.Sink() {
+        @Override
+        public void emit(Object data) {
+            synchronized (emitted) {
+                emitted.add(data);
+            }
+        }
+    };
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void valueAfterAQuietPeriod_isEmittedRightAway() throws Exception {
+        EventConflator conflator = new EventConflator(null, 10000, scheduler, sink);
+        assertFalse(conflator.offer("a"));
+        assertEquals(listOf("a"), snapshot());
+    }
+
+    @Test
+    public void valuesWithinTheInterval_keepOnlyTheLatest() throws Exception {
+        EventConflator conflator = new EventConflator(null, 100, scheduler, sink);
+        conflator.offer("a");
+        assertFalse(conflator.offer("b"));
+        assertTrue(conflator.offer("c"));
+        assertTrue(conflator.offer("d"));
+        assertEquals(listOf("a"), snapshot());
+
+        awaitEmitted(2);
+        assertEquals(listOf("a", "d"), snapshot());
+    }
+
+    @Test
+    public void keyPath_keepsTheLatestValuePerKeyInOrderOfLastArrival() throws Exception {
+        EventConflator conflator = new EventConflator(ValuePath.parse("symbol"), 100, scheduler, sink);
+        conflator.offer(quote("MSFT", 1));
+        conflator.offer(quote("MSFT", 2));
+        conflator.offer(quote("AAPL", 3));
+        assertTrue(conflator.offer(quote("MSFT", 4)));
+
+        awaitEmitted(3);
+        assertEquals(listOf(quote("MSFT", 1), quote("AAPL", 3), quote("MSFT", 4)), snapshot());
+    }
+
+    @Test
+    public void flush_emitsPendingValuesAtOnce() throws Exception {
+        EventConflator conflator = new EventConflator(null, 10000, scheduler, sink);
+        conflator.offer("a");
+        conflator.offer("b");
+        conflator.flush();
+        assertEquals(listOf("a", "b"), snapshot());
+    }
+
+    @Test
+    public void cancel_dropsPendingValues() throws Exception {
+        EventConflator conflator = new EventConflator(null, 50, scheduler, sink);
+        conflator.offer("a");
+        conflator.offer("b");
+        conflator.cancel();
+
+        Thread.sleep(150);
+        assertEquals(listOf("a"), snapshot());
+    }
+
+    @Test
+    public void zeroInterval_emitsEveryValue() throws Exception {
+        EventConflator conflator = new EventConflator(null, 0, scheduler, sink);
+        for (int i = 0; i < 5; i++) {
+            assertFalse(conflator.offer(i));
+        }
+        assertEquals(listOf(0, 1, 2, 3, 4), snapshot());
+    }
+
+    // The sink runs without the lock: a sink waiting on a thread that offers to the same conflator
+    // must not deadlock, and the value offered meanwhile is emitted after the current one
+    @Test
+    public void sink_runsOutsideTheLock() throws Exception {
+        final EventConflator[] conflator = new EventConflator[1];
+        final CountDownLatch offered = new CountDownLatch(1);
+        conflator[0] = new EventConflator(null, 0, scheduler, new EventConflator.Sink() {
+            @Override
+            public void emit(Object data) {
+                sink.emit(data);
+                if ("a".equals(data)) {
+                    Thread other = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            conflator[0].offer("b");
+                            offered.countDown();
+                        }
+                    });
+                    other.start();
+                    try {
+                        assertTrue(offered.await(1, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+
+        conflator[0].offer("a");
+        assertEquals(listOf("a", "b"), snapshot());
+    }
+
+    private List<Object> snapshot() {
+        synchronized (emitted) {
+            return new ArrayList<>(emitted);
+        }
+    }
+
+    private void awaitEmitted(int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (snapshot().size() < count) {
+            assertTrue("Only " + snapshot() + " emitted", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static JsonElement quote(String symbol, int price) {
+        return JsonParser.parseString("{\"symbol\":\"" + symbol + "\",\"price\":" + price + "}");
+    }
+
+    private static List<Object> listOf(Object... values) {
+        List<Object> list = new ArrayList<>();
+        for (Object value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
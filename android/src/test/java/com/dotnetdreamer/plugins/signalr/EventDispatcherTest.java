@@ -0,0 +1,277 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EventDispatcherTest {
+    private final EventSubscriptions.Entry entry = new EventSubscriptions.Entry("Event", null, null, null, null);
+    // Every value reaching the sink, received and delivered alike, in order
+    private final List<Object> seen = new ArrayList<>();
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void drain_deliversInArrivalOrderOnTheExecutor() throws Exception {
+        ManualExecutor manual = new ManualExecutor();
+        EventDispatcher dispatcher = new EventDispatcher(manual, 8, EventDispatcher.OverflowPolicy.BLOCK, recordingSink());
+        for (int i = 0; i < 5; i++) {
+            dispatcher.receive(entry, "onReceive", i);
+        }
+        assertTrue(seen.isEmpty());
+        // One drain queued for the whole run
+        assertEquals(1, manual.tasks.size());
+
+        manual.runAll();
+        assertEquals(listOf(0, 1, 2, 3, 4), seen);
+        assertEquals(5, dispatcher.getStatus().getInt("highWatermark"));
+    }
+
+    @Test
+    public void dropNewest_discardsIncomingMessages() throws Exception {
+        ManualExecutor manual = new ManualExecutor();
+        EventDispatcher dispatcher = new EventDispatcher(manual, 2, EventDispatcher.OverflowPolicy.DROP_NEWEST, recordingSink());
+        for (int i = 0; i < 4; i++) {
+            dispatcher.receive(entry, "onReceive", i);
+        }
+
+        manual.runAll();
+        assertEquals(listOf(0, 1), seen);
+        assertEquals(2, dispatcher.getStatus().getInt("dropped"));
+    }
+
+    @Test
+    public void dropOldest_discardsQueuedMessages() throws Exception {
+        ManualExecutor manual = new ManualExecutor();
+        EventDispatcher dispatcher = new EventDispatcher(manual, 2, EventDispatcher.OverflowPolicy.DROP_OLDEST, recordingSink());
+        for (int i = 0; i < 4; i++) {
+            dispatcher.receive(entry, "onReceive", i);
+        }
+
+        manual.runAll();
+        assertEquals(listOf(2, 3), seen);
+        assertEquals(2, dispatcher.getStatus().getInt("dropped"));
+    }
+
+    @Test
+    public void block_holdsTheTransportThreadUntilThereIsRoom() throws Exception {
+        final CountDownLatch gate = new CountDownLatch(1);
+        final EventDispatcher dispatcher = new EventDispatcher(executor, 2, EventDispatcher.OverflowPolicy.BLOCK, new RecordingSink() {
+            @Override
+            public void receive(EventSubscriptions.Entry entry, String channel, Object data) {
+                await(gate);
+                super.receive(entry, channel, data);
+            }
+        });
+        final CountDownLatch sent = new CountDownLatch(1);
+        Thread transport = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10; i++) {
+                    dispatcher.receive(entry, "onReceive", i);
+                }
+                sent.countDown();
+            }
+        });
+        transport.start();
+
+        assertFalse(sent.await(100, TimeUnit.MILLISECONDS));
+        gate.countDown();
+        assertTrue(sent.await(2, TimeUnit.SECONDS));
+        awaitSeen(10);
+        assertEquals(listOf(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), snapshot());
+        assertEquals(0, dispatcher.getStatus().getInt("dropped"));
+    }
+
+    @Test
+    public void dispatchFromTheDrain_isDeliveredInline() throws Exception {
+        ManualExecutor manual = new ManualExecutor();
+        final EventDispatcher[] dispatcher = new EventDispatcher[1];
+        dispatcher[0] = new EventDispatcher(manual, 2, EventDispatcher.OverflowPolicy.BLOCK, new RecordingSink() {
+            @Override
+            public void receive(EventSubscriptions.Entry entry, String channel, Object data) {
+                super.receive(entry, channel, data);
+                // Re-entering a full ring from its own drain must not wait on itself
+                dispatcher[0].dispatch("Event", channel, "emitted-" + data);
+            }
+        });
+        dispatcher[0].receive(entry, "onReceive", 0);
+        dispatcher[0].receive(entry, "onReceive", 1);
+
+        manual.runAll();
+        assertEquals(listOf(0, "emitted-0", 1, "emitted-1"), seen);
+        assertTrue(manual.tasks.isEmpty());
+    }
+
+    @Test
+    public void dispatchFromAnotherThread_neverWaitsOnAFullRing() throws Exception {
+        ManualExecutor manual = new ManualExecutor();
+        EventDispatcher dispatcher = new EventDispatcher(manual, 2, EventDispatcher.OverflowPolicy.BLOCK, recordingSink());
+        dispatcher.receive(entry, "onReceive", 0);
+        dispatcher.receive(entry, "onReceive", 1);
+        // Ring full and nothing draining: emitted messages are handed off, then dropped
+        for (int i = 0; i < 4; i++) {
+            dispatcher.dispatch("Event", "onReceive", "emitted-" + i);
+        }
+        assertEquals(2, dispatcher.getStatus().getInt("dropped"));
+
+        manual.runAll();
+        assertEquals(listOf("emitted-0", "emitted-1", 0, 1), seen);
+    }
+
+    @Test
+    public void close_discardsQueuedMessages() throws Exception {
+        ManualExecutor manual = new ManualExecutor();
+        EventDispatcher dispatcher = new EventDispatcher(manual, 8, EventDispatcher.OverflowPolicy.BLOCK, recordingSink());
+        dispatcher.receive(entry, "onReceive", 0);
+        dispatcher.close();
+        dispatcher.receive(entry, "onReceive", 1);
+        dispatcher.dispatch("Event", "onReceive", 2);
+
+        manual.runAll();
+        assertTrue(seen.isEmpty());
+    }
+
+    // A conflator flushing on its timer while the ring is full and the drain is about to offer to
+    // the same conflator: neither the scheduler thread nor the drain may end up waiting on the other
+    @Test
+    public void timerFlushIntoAFullRing_doesNotDeadlock() throws Exception {
+        final CountDownLatch gate = new CountDownLatch(1);
+        final EventConflator[] conflator = new EventConflator[1];
+        final EventDispatcher dispatcher = new EventDispatcher(executor, 2, EventDispatcher.OverflowPolicy.BLOCK, new RecordingSink() {
+            @Override
+            public void receive(EventSubscriptions.Entry entry, String channel, Object data) {
+                if ("gate".equals(data)) {
+                    await(gate);
+                    return;
+                }
+                conflator[0].offer(data);
+            }
+        });
+        conflator[0] = new EventConflator(null, 300, scheduler, new EventConflator.Sink() {
+            @Override
+            public void emit(Object data) {
+                dispatcher.dispatch("Event", "onReceive", data);
+            }
+        });
+
+        // Emitted right away; the next value waits for the timer
+        conflator[0].offer("first");
+        awaitSeen(1);
+        conflator[0].offer("timer");
+        // Hold the drain and fill the ring behind it
+        dispatcher.receive(entry, "onReceive", "gate");
+        Thread.sleep(20);
+        dispatcher.receive(entry, "onReceive", "r1");
+        dispatcher.receive(entry, "onReceive", "r2");
+        // Let the timer flush run against the full ring
+        Thread.sleep(400);
+
+        final CountDownLatch schedulerFree = new CountDownLatch(1);
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                schedulerFree.countDown();
+            }
+        });
+        assertTrue(schedulerFree.await(1, TimeUnit.SECONDS));
+
+        gate.countDown();
+        awaitSeen(3);
+        // r1 was superseded by r2 within the interval
+        assertEquals(listOf("first", "timer", "r2"), snapshot());
+    }
+
+    private RecordingSink recordingSink() {
+        return new RecordingSink();
+    }
+
+    private class RecordingSink implements EventDispatcher.Sink {
+        @Override
+        public void receive(EventSubscriptions.Entry entry, String channel, Object data) {
+            synchronized (seen) {
+                seen.add(data);
+            }
+        }
+
+        @Override
+        public void deliver(String eventName, String channel, Object data) {
+            synchronized (seen) {
+                seen.add(data);
+            }
+        }
+    }
+
+    // Runs queued tasks only when asked, so a test decides when the drain happens
+    private static final class ManualExecutor implements Executor {
+        final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.addLast(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.pollFirst()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private List<Object> snapshot() {
+        synchronized (seen) {
+            return new ArrayList<>(seen);
+        }
+    }
+
+    private void awaitSeen(int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (snapshot().size() < count) {
+            assertTrue("Only " + snapshot() + " delivered", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<Object> listOf(Object... values) {
+        List<Object> list = new ArrayList<>();
+        for (Object value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,152 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class EventFilterTest {
+
+    @Test
+    public void fromOptions_returnsNullWithoutWhereOrSelect() throws Exception {
+        assertNull(EventFilter.fromOptions(new JSONObject()));
+        assertNull(EventFilter.fromOptions(new JSONObject().put("where", "  ").put("select", "")));
+    }
+
+    @Test
+    public void comparisons() throws Exception {
+        JsonElement quote = json("{\"symbol\":\"MSFT\",\"price\":12.5,\"volume\":0,\"active\":true}");
+        assertTrue(where("symbol == 'MSFT'").accepts(quote));
+        assertTrue(where("symbol == \"MSFT\"").accepts(quote));
+        assertFalse(where("symbol != 'MSFT'").accepts(quote));
+        assertTrue(where("price > 12").accepts(quote));
+        assertTrue(where("price >= 12.5").accepts(quote));
+        assertFalse(where("price < 12.5").accepts(quote));
+        assertTrue(where("price <= 1.25e1").accepts(quote));
+        assertTrue(where("active == true").accepts(quote));
+        assertFalse(where("volume").accepts(quote));
+        assertTrue(where("active").accepts(quote));
+    }
+
+    @Test
+    public void missingValues_areNullAndNeverOrdered() throws Exception {
+        JsonElement event = json("{\"name\":\"a\"}");
+        assertTrue(where("missing == null").accepts(event));
+        assertFalse(where("missing").accepts(event));
+        assertFalse(where("missing > 1").accepts(event));
+        assertFalse(where("missing < 1").accepts(event));
+        assertFalse(where("name > 1").accepts(event));
+    }
+
+    @Test
+    public void precedence_andBindsTighterThanOr() throws Exception {
+        JsonElement event = json("{\"a\":false,\"b\":true,\"c\":true}");
+        assertTrue(where("a and b or c").accepts(event));
+        assertFalse(where("a and (b or c)").accepts(event));
+        assertTrue(where("not a and b").accepts(event));
+        assertFalse(where("not (a or b)").accepts(event));
+        assertTrue(where("not not b").accepts(event));
+    }
+
+    @Test
+    public void keywords_areCaseInsensitive() throws Exception {
+        JsonElement event = json("{\"a\":false,\"b\":true}");
+        assertTrue(where("NOT a AND b").accepts(event));
+        assertTrue(where("a Or b").accepts(event));
+        assertTrue(where("b == TRUE").accepts(event));
+    }
+
+    @Test
+    public void keywords_insidePathsStayPaths() throws Exception {
+        assertTrue(where("order > 1").accepts(json("{\"order\":2}")));
+        assertTrue(where("android").accepts(json("{\"android\":true}")));
+        assertTrue(where("notes == 'x'").accepts(json("{\"notes\":\"x\"}")));
+        assertTrue(where("and_x").accepts(json("{\"and_x\":1}")));
+        assertTrue(where("nullable == 1").accepts(json("{\"nullable\":1}")));
+        assertFalse(where("not.flag").accepts(json("{\"not\":{\"flag\":false}}")));
+        assertTrue(where("not.flag").accepts(json("{\"not\":{\"flag\":true}}")));
+        assertFalse(where("not$x").accepts(json("{\"not$x\":false}")));
+        assertTrue(where("a or or.b").accepts(json("{\"a\":false,\"or\":{\"b\":true}}")));
+    }
+
+    @Test
+    public void paths_reachIntoNestedObjectsAndArrays() throws Exception {
+        JsonElement event = json("{\"items\":[{\"id\":3}],\"quote\":{\"bid\":1.5}}");
+        assertTrue(where("items.0.id == 3").accepts(event));
+        assertTrue(where("quote.bid < 2").accepts(event));
+        assertFalse(where("items.1.id == 3").accepts(event));
+    }
+
+    @Test
+    public void strings_supportEscapes() throws Exception {
+        assertTrue(where("name == 'it\\'s'").accepts(json("{\"name\":\"it's\"}")));
+    }
+
+    @Test
+    public void invalidExpressions_areRejectedWithPosition() throws Exception {
+        assertInvalid("a ==", "expected a value");
+        assertInvalid("a == 'x", "unterminated string");
+        assertInvalid("(a", "expected ')'");
+        assertInvalid("a == 1 b", "unexpected 'b'");
+        assertInvalid("== 1", "expected a path");
+        assertInvalid("a == x", "expected a string, number, true, false or null");
+        assertInvalid("a and", "expected a path");
+    }
+
+    @Test
+    public void project_keepsSelectedFieldsWithTheirNesting() throws Exception {
+        EventFilter filter = EventFilter.fromOptions(new JSONObject().put("select", "id, quote.bid, missing"));
+        Object projected = filter.project(json("{\"id\":1,\"name\":\"x\",\"quote\":{\"bid\":1.5,\"ask\":2}}"));
+
+        Map<?, ?> result = (Map<?, ?>) projected;
+        assertEquals(2, result.size());
+        assertEquals(1, ((JsonElement) result.get("id")).getAsInt());
+        Map<?, ?> quote = (Map<?, ?>) result.get("quote");
+        assertEquals(1, quote.size());
+        assertEquals(1.5, ((JsonElement) quote.get("bid")).getAsDouble(), 0);
+    }
+
+    @Test
+    public void project_returnsDataUnchangedWithoutSelect() throws Exception {
+        EventFilter filter = EventFilter.fromOptions(new JSONObject().put("where", "id"));
+        JsonElement data = json("{\"id\":1}");
+        assertSame(data, filter.project(data));
+    }
+
+    @Test
+    public void select_acceptsAnArray() throws Exception {
+        EventFilter filter = EventFilter.fromOptions(new JSONObject().put("select", new JSONArray().put("id")));
+        Map<?, ?> result = (Map<?, ?>) filter.project(json("{\"id\":1,\"name\":\"x\"}"));
+        assertEquals(1, result.size());
+        assertTrue(filter.accepts(json("{}")));
+    }
+
+    private static EventFilter where(String expression) throws Exception {
+        return EventFilter.fromOptions(new JSONObject().put("where", expression));
+    }
+
+    private static JsonElement json(String text) {
+        return JsonParser.parseString(text);
+    }
+
+    private static void assertInvalid(String expression, String message) throws Exception {
+        try {
+            where(expression);
+            fail("Expected " + expression + " to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid where expression at "));
+            assertTrue(e.getMessage(), e.getMessage().endsWith(message));
+        }
+    }
+}
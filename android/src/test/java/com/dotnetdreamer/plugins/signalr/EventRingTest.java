@@ -0,0 +1,131 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class EventRingTest {
+
+    @Test
+    public void capacity_roundsUpToPowerOfTwo() throws Exception {
+        assertEquals(2, new EventRing<Integer>(0).capacity());
+        assertEquals(8, new EventRing<Integer>(5).capacity());
+        assertEquals(1024, new EventRing<Integer>(1024).capacity());
+    }
+
+    @Test
+    public void offerAndPoll_keepFifoOrder() throws Exception {
+        EventRing<Integer> ring = new EventRing<>(8);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertEquals(5, ring.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Integer.valueOf(i), ring.poll());
+        }
+        assertNull(ring.poll());
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void offer_failsWhenFull() throws Exception {
+        EventRing<Integer> ring = new EventRing<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+        assertEquals(4, ring.size());
+
+        assertEquals(Integer.valueOf(0), ring.poll());
+        assertTrue(ring.offer(4));
+    }
+
+    @Test
+    public void wrapAround_keepsOrderOverManyLaps() throws Exception {
+        EventRing<Integer> ring = new EventRing<>(4);
+        int next = 0;
+        int expected = 0;
+        // Leaves the ring partly filled on every lap so head and tail wrap at different points
+        for (int lap = 0; lap < 1000; lap++) {
+            while (ring.offer(next)) {
+                next++;
+            }
+            for (int i = 0; i < 3; i++) {
+                assertEquals(Integer.valueOf(expected++), ring.poll());
+            }
+        }
+        Integer item;
+        while ((item = ring.poll()) != null) {
+            assertEquals(Integer.valueOf(expected++), item);
+        }
+        assertEquals(next, expected);
+    }
+
+    @Test
+    public void concurrentProducers_deliverEveryItemOnceInPerProducerOrder() throws Exception {
+        final EventRing<int[]> ring = new EventRing<>(64);
+        final int producers = 4;
+        final int perProducer = 20000;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        int[] item = { producer, i };
+                        while (!ring.offer(item)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        int[] lastSeen = new int[producers];
+        for (int p = 0; p < producers; p++) {
+            lastSeen[p] = -1;
+        }
+        start.countDown();
+        int received = 0;
+        while (received < producers * perProducer) {
+            int[] item = ring.poll();
+            if (item == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(lastSeen[item[0]] + 1, item[1]);
+            lastSeen[item[0]] = item[1];
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(ring.poll());
+        assertEquals(Collections.nCopies(producers, perProducer - 1), toList(lastSeen));
+    }
+
+    private static List<Integer> toList(int[] values) {
+        List<Integer> list = new ArrayList<>();
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,91 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSObject;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+// End-to-end runs of CapacitorSignalR against the in-process StandInHub: received events per
+// second through conversion and dispatch, and invokeWithResult round-trip latency.
+public class HubThroughputBenchmark {
+    private static final int EVENT_COUNT = Integer.getInteger("signalr.bench.events", 20000);
+    private static final int INVOKE_COUNT = Integer.getInteger("signalr.bench.invocations", 5000);
+
+    private StandInHub hub;
+    private StubPlugin plugin;
+    private CapacitorSignalR connection;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(Bench.ENABLED);
+
+        hub = new StandInHub();
+        plugin = new StubPlugin();
+        connection = new CapacitorSignalR(ConnectionRegistry.DEFAULT_HANDLE, new ConnectionRegistry());
+        connection.setPlugin(plugin);
+
+        JSObject options = new JSObject();
+        options.put("url", hub.getUrl());
+        options.put("shouldSkipNegotiate", true);
+        options.put("transport", "WEBSOCKETS");
+        options.put("serverTimeout", 120000);
+        connection.create(options);
+        connection.on("QuoteUpdated", null, null, null, null);
+        connection.start().get(10, TimeUnit.SECONDS);
+        assertTrue(hub.awaitClient(10000));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (connection != null) {
+            connection.dispose();
+        }
+        if (hub != null) {
+            hub.close();
+        }
+    }
+
+    @Test
+    public void receiveThroughput() throws Exception {
+        for (int size : new int[] { Payloads.SMALL, Payloads.MEDIUM, Payloads.LARGE }) {
+            String arguments = "[" + Payloads.quoteJson(size) + "]";
+            int count = size == Payloads.LARGE ? EVENT_COUNT / 10 : EVENT_COUNT;
+
+            plugin.expect("onReceive", count);
+            long startedAt = System.nanoTime();
+            hub.broadcast("QuoteUpdated", arguments, count);
+            assertTrue("Events were not delivered in time", plugin.await(120000));
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+            Bench.report("receive " + Payloads.sizeLabel(size),
+                String.format(Locale.ROOT, "%12.0f events/s (%d events)", count / seconds, count));
+        }
+        Bench.report("metrics", connection.getMetrics().toString());
+    }
+
+    @Test
+    public void invokeLatency() throws Exception {
+        LatencyHistogram latency = new LatencyHistogram();
+        JSONArray args = new JSONArray("[" + Payloads.quoteJson(Payloads.SMALL) + "]");
+
+        // Warm up the connection and the JIT before recording
+        for (int i = 0; i < INVOKE_COUNT / 10; i++) {
+            connection.invokeWithResult("Echo", args, null, null).get(10, TimeUnit.SECONDS);
+        }
+        for (int i = 0; i < INVOKE_COUNT; i++) {
+            long startedAt = System.nanoTime();
+            connection.invokeWithResult("Echo", args, null, null).get(10, TimeUnit.SECONDS);
+            latency.recordNanos(System.nanoTime() - startedAt);
+        }
+
+        Bench.report("invokeWithResult round trip", latency.toJSObject().toString());
+    }
+}
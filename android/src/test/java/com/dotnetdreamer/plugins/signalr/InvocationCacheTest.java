@@ -0,0 +1,186 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class InvocationCacheTest {
+    // Server calls started by the loader, in order
+    private final List<CompletableFuture<Object>> loads = new ArrayList<>();
+    private final InvocationCache.Loader loader = new InvocationCache.Loader() {
+        @Override
+        public CompletableFuture<Object> load() {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            loads.add(future);
+            return future;
+        }
+    };
+
+    @Test
+    public void canonicalKey_sortsObjectKeysAndNormalizesNumbers() throws Exception {
+        JSONArray a = new JSONArray().put(new JSONObject().put("b", 1).put("a", 2.0));
+        JSONArray b = new JSONArray().put(new JSONObject().put("a", 2L).put("b", 1.0));
+        assertEquals(InvocationCache.canonicalKey("M", a), InvocationCache.canonicalKey("M", b));
+        assertFalse(InvocationCache.canonicalKey("M", new JSONArray().put(1))
+            .equals(InvocationCache.canonicalKey("M", new JSONArray().put("1"))));
+        assertFalse(InvocationCache.canonicalKey("M", new JSONArray())
+            .equals(InvocationCache.canonicalKey("N", new JSONArray())));
+    }
+
+    @Test
+    public void fromOptions_onlyCachesMethodsWithATtl() throws Exception {
+        InvocationCache cache = InvocationCache.fromOptions(new JSObject()
+            .put("methods", new JSONObject().put("GetConfig", 1000).put("GetNothing", 0)));
+        assertTrue(cache.isCached("GetConfig"));
+        assertFalse(cache.isCached("GetNothing"));
+        assertFalse(cache.isCached("Other"));
+    }
+
+    @Test
+    public void identicalCalls_shareOneRoundTrip() throws Exception {
+        InvocationCache cache = cache(60000, 10);
+        CompletableFuture<Object> first = cache.get("GetConfig", args(1), loader);
+        CompletableFuture<Object> second = cache.get("GetConfig", args(1), loader);
+        assertEquals(1, loads.size());
+
+        loads.get(0).complete("config");
+        assertEquals("config", first.get(1, TimeUnit.SECONDS));
+        assertEquals("config", second.get(1, TimeUnit.SECONDS));
+        assertEquals(1, cache.getStats().getInt("coalesced"));
+    }
+
+    @Test
+    public void results_areServedFromTheCacheUntilTheirTtl() throws Exception {
+        InvocationCache cache = cache(50, 10);
+        cache.get("GetConfig", args(1), loader);
+        loads.get(0).complete("config");
+
+        assertEquals("config", cache.lookup("GetConfig", args(1)).get());
+        assertNull(cache.lookup("GetConfig", args(2)));
+        Thread.sleep(80);
+        assertNull(cache.lookup("GetConfig", args(1)));
+
+        JSObject stats = cache.getStats();
+        assertEquals(1, stats.getInt("hits"));
+        assertEquals(1, stats.getInt("misses"));
+    }
+
+    @Test
+    public void failures_areNotCached() throws Exception {
+        InvocationCache cache = cache(60000, 10);
+        CompletableFuture<Object> result = cache.get("GetConfig", args(1), loader);
+        loads.get(0).completeExceptionally(new RuntimeException("Hub error"));
+
+        assertTrue(result.isCompletedExceptionally());
+        assertNull(cache.lookup("GetConfig", args(1)));
+        cache.get("GetConfig", args(1), loader);
+        assertEquals(2, loads.size());
+    }
+
+    @Test
+    public void cancelingOneCaller_leavesTheOthersWaiting() throws Exception {
+        InvocationCache cache = cache(60000, 10);
+        CompletableFuture<Object> first = cache.get("GetConfig", args(1), loader);
+        CompletableFuture<Object> second = cache.get("GetConfig", args(1), loader);
+        first.cancel(false);
+
+        assertFalse(loads.get(0).isCancelled());
+        loads.get(0).complete("config");
+        assertEquals("config", second.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelingEveryCaller_abandonsTheRoundTrip() throws Exception {
+        InvocationCache cache = cache(60000, 10);
+        CompletableFuture<Object> first = cache.get("GetConfig", args(1), loader);
+        CompletableFuture<Object> second = cache.get("GetConfig", args(1), loader);
+        first.cancel(false);
+        second.cancel(false);
+        assertTrue(loads.get(0).isCancelled());
+
+        // The next identical call starts anew
+        CompletableFuture<Object> third = cache.get("GetConfig", args(1), loader);
+        assertEquals(2, loads.size());
+        loads.get(1).complete("fresh");
+        assertEquals("fresh", third.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void invalidateDuringACall_keepsItsResultOutOfTheCache() throws Exception {
+        InvocationCache cache = cache(60000, 10);
+        CompletableFuture<Object> result = cache.get("GetConfig", args(1), loader);
+        cache.invalidate("GetConfig");
+        loads.get(0).complete("stale");
+
+        assertEquals("stale", result.get(1, TimeUnit.SECONDS));
+        assertNull(cache.lookup("GetConfig", args(1)));
+    }
+
+    @Test
+    public void invalidate_dropsOnlyTheGivenMethod() throws Exception {
+        InvocationCache cache = cache(60000, 10);
+        cache.get("GetConfig", args(1), loader);
+        cache.get("GetUser", args(1), loader);
+        loads.get(0).complete("config");
+        loads.get(1).complete("user");
+
+        cache.invalidate("GetConfig");
+        assertNull(cache.lookup("GetConfig", args(1)));
+        assertEquals("user", cache.lookup("GetUser", args(1)).get());
+
+        cache.invalidate(null);
+        assertNull(cache.lookup("GetUser", args(1)));
+    }
+
+    @Test
+    public void maxEntries_evictsTheLeastRecentlyUsed() throws Exception {
+        InvocationCache cache = cache(60000, 2);
+        for (int i = 0; i < 2; i++) {
+            cache.get("GetConfig", args(i), loader);
+            loads.get(i).complete("config-" + i);
+        }
+        // Reading 0 makes 1 the eldest
+        cache.lookup("GetConfig", args(0));
+        cache.get("GetConfig", args(2), loader);
+        loads.get(2).complete("config-2");
+
+        assertEquals("config-0", cache.lookup("GetConfig", args(0)).get());
+        assertNull(cache.lookup("GetConfig", args(1)));
+        assertEquals(2, cache.getStats().getInt("entries"));
+    }
+
+    @Test
+    public void throwingLoader_failsTheCall() throws Exception {
+        InvocationCache cache = cache(60000, 10);
+        CompletableFuture<Object> result = cache.get("GetConfig", args(1), new InvocationCache.Loader() {
+            @Override
+            public CompletableFuture<Object> load() {
+                throw new IllegalStateException("Not connected");
+            }
+        });
+        assertTrue(result.isCompletedExceptionally());
+        assertNull(cache.lookup("GetConfig", args(1)));
+    }
+
+    private static InvocationCache cache(long ttlMs, int maxEntries) throws Exception {
+        return InvocationCache.fromOptions(new JSObject()
+            .put("maxEntries", maxEntries)
+            .put("methods", new JSONObject().put("GetConfig", ttlMs).put("GetUser", ttlMs)));
+    }
+
+    private static JSONArray args(int id) {
+        return new JSONArray().put(id);
+    }
+}
@@ -0,0 +1,199 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InvocationTableTest {
+    private ScheduledExecutorService scheduler;
+    // Underlying invocations in the order they were started
+    private final List<String> started = new ArrayList<>();
+    private final List<CompletableFuture<Object>> underlying = new ArrayList<>();
+    private final InvocationTable.Starter starter = new InvocationTable.Starter() {
+        @Override
+        public CompletableFuture<Object> start(String methodName, JSONArray args) {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            synchronized (started) {
+                started.add(methodName);
+                underlying.add(future);
+            }
+            return future;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void submit_startsRightAwayWhenUnlimited() throws Exception {
+        InvocationTable table = table(0, 10, 0);
+        CompletableFuture<Object> result = table.submit(null, "Echo", new JSONArray(), null);
+        assertEquals(1, table.getInFlightCount());
+
+        underlying.get(0).complete("pong");
+        assertEquals("pong", result.get(1, TimeUnit.SECONDS));
+        assertEquals(0, table.getInFlightCount());
+    }
+
+    @Test
+    public void maxInFlight_queuesCallsAndStartsThemInOrder() throws Exception {
+        InvocationTable table = table(2, 10, 0);
+        table.submit("a", "A", new JSONArray(), null);
+        table.submit("b", "B", new JSONArray(), null);
+        table.submit("c", "C", new JSONArray(), null);
+        table.submit("d", "D", new JSONArray(), null);
+        assertEquals(listOf("A", "B"), started);
+        assertEquals(2, table.getStatus().getInt("queued"));
+
+        underlying.get(1).complete(null);
+        assertEquals(listOf("A", "B", "C"), started);
+        underlying.get(0).completeExceptionally(new RuntimeException("boom"));
+        assertEquals(listOf("A", "B", "C", "D"), started);
+        assertEquals(2, table.getInFlightCount());
+        assertEquals(0, table.getStatus().getInt("queued"));
+    }
+
+    @Test
+    public void fullQueue_failsWithOverloaded() throws Exception {
+        InvocationTable table = table(1, 1, 0);
+        table.submit("a", "A", new JSONArray(), null);
+        table.submit("b", "B", new JSONArray(), null);
+        CompletableFuture<Object> rejected = table.submit("c", "C", new JSONArray(), null);
+
+        assertCode("OVERLOADED", rejected);
+        assertEquals(listOf("A"), started);
+    }
+
+    @Test
+    public void duplicateId_isRejected() throws Exception {
+        InvocationTable table = table(0, 10, 0);
+        table.submit("a", "A", new JSONArray(), null);
+        try {
+            table.submit("a", "A", new JSONArray(), null);
+            fail("Expected a duplicate id to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().endsWith(": a"));
+        }
+    }
+
+    @Test
+    public void timeout_failsTheCallAndCancelsTheInvocation() throws Exception {
+        InvocationTable table = table(0, 10, 0);
+        CompletableFuture<Object> result = table.submit("a", "Slow", new JSONArray(), 20L);
+
+        InvocationTable.InvocationException error = assertCode("TIMEOUT", result);
+        assertEquals("Invocation of Slow timed out after 20ms", error.getMessage());
+        assertTrue(underlying.get(0).isCancelled());
+        assertEquals(0, table.getInFlightCount());
+    }
+
+    @Test
+    public void defaultTimeout_coversTimeSpentQueued() throws Exception {
+        InvocationTable table = table(1, 10, 20);
+        table.submit("a", "A", new JSONArray(), 0L);
+        CompletableFuture<Object> queued = table.submit("b", "B", new JSONArray(), null);
+
+        assertCode("TIMEOUT", queued);
+        assertEquals(listOf("A"), started);
+        assertEquals(0, table.getStatus().getInt("queued"));
+    }
+
+    @Test
+    public void cancel_failsTheCallAndFreesItsSlot() throws Exception {
+        InvocationTable table = table(1, 10, 0);
+        CompletableFuture<Object> first = table.submit("a", "A", new JSONArray(), null);
+        table.submit("b", "B", new JSONArray(), null);
+
+        assertTrue(table.cancel("a"));
+        assertFalse(table.cancel("a"));
+        assertFalse(table.cancel("unknown"));
+        assertCode("CANCELED", first);
+        assertTrue(underlying.get(0).isCancelled());
+        assertEquals(listOf("A", "B"), started);
+    }
+
+    @Test
+    public void lateResult_isIgnoredOnceSettled() throws Exception {
+        InvocationTable table = table(0, 10, 0);
+        CompletableFuture<Object> result = table.submit("a", "A", new JSONArray(), null);
+        table.cancel("a");
+        underlying.get(0).complete("late");
+
+        assertCode("CANCELED", result);
+    }
+
+    @Test
+    public void failAll_settlesRunningAndQueuedCalls() throws Exception {
+        InvocationTable table = table(1, 10, 0);
+        CompletableFuture<Object> running = table.submit("a", "A", new JSONArray(), null);
+        CompletableFuture<Object> queued = table.submit("b", "B", new JSONArray(), null);
+        table.failAll("CLOSED", "Connection closed");
+
+        assertCode("CLOSED", running);
+        assertCode("CLOSED", queued);
+        assertEquals(0, table.getInFlightCount());
+        assertEquals(0, table.getStatus().getInt("queued"));
+    }
+
+    @Test
+    public void starterThrowing_failsOnlyThatCall() throws Exception {
+        InvocationTable table = table(1, 10, 0);
+        CompletableFuture<Object> broken = table.submit("a", "A", new JSONArray(), null, new InvocationTable.Starter() {
+            @Override
+            public CompletableFuture<Object> start(String methodName, JSONArray args) {
+                throw new IllegalStateException("Not connected");
+            }
+        });
+        CompletableFuture<Object> next = table.submit("b", "B", new JSONArray(), null);
+
+        assertTrue(broken.isCompletedExceptionally());
+        assertEquals(listOf("B"), started);
+        underlying.get(0).complete(1);
+        assertEquals(1, next.get(1, TimeUnit.SECONDS));
+    }
+
+    private InvocationTable table(int maxInFlight, int maxQueued, long defaultTimeoutMs) {
+        return new InvocationTable(maxInFlight, maxQueued, defaultTimeoutMs, scheduler, starter);
+    }
+
+    private static InvocationTable.InvocationException assertCode(String code, CompletableFuture<Object> result) throws Exception {
+        try {
+            result.get(1, TimeUnit.SECONDS);
+            fail("Expected the call to fail with " + code);
+            return null;
+        } catch (ExecutionException e) {
+            InvocationTable.InvocationException error = (InvocationTable.InvocationException) e.getCause();
+            assertEquals(code, error.code);
+            return error;
+        }
+    }
+
+    private static List<String> listOf(String... values) {
+        List<String> list = new ArrayList<>();
+        for (String value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
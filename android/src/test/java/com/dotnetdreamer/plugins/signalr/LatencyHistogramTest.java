@@ -0,0 +1,100 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSObject;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void empty_reportsOnlyTheCount() throws Exception {
+        JSObject result = new LatencyHistogram().toJSObject();
+        assertEquals(0, result.getInt("count"));
+        assertFalse(result.has("p50Ms"));
+    }
+
+    @Test
+    public void smallValues_areExact() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(3000);
+        JSObject result = histogram.toJSObject();
+        assertEquals(0.003, result.getDouble("p50Ms"), 0);
+        assertEquals(0.003, result.getDouble("maxMs"), 0);
+    }
+
+    @Test
+    public void percentiles_pickTheBucketOfTheirRank() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1..100 ms, one sample each
+        for (int ms = 1; ms <= 100; ms++) {
+            histogram.recordNanos(ms * 1000000L);
+        }
+        JSObject result = histogram.toJSObject();
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(100, result.getInt("count"));
+        assertEquals(50.5, result.getDouble("meanMs"), 1e-9);
+        assertEquals(100.0, result.getDouble("maxMs"), 0);
+        assertWithinBucket(50, result.getDouble("p50Ms"));
+        assertWithinBucket(95, result.getDouble("p95Ms"));
+        assertWithinBucket(99, result.getDouble("p99Ms"));
+    }
+
+    @Test
+    public void percentiles_areOrdered() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 1000; i++) {
+            histogram.recordNanos(i < 900 ? 1000000L : 250000000L);
+        }
+        JSObject result = histogram.toJSObject();
+
+        assertWithinBucket(1, result.getDouble("p50Ms"));
+        assertWithinBucket(250, result.getDouble("p95Ms"));
+        assertWithinBucket(250, result.getDouble("p99Ms"));
+    }
+
+    @Test
+    public void negativeAndHugeValues_stayInRange() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(-5);
+        histogram.recordNanos(Long.MAX_VALUE);
+        JSObject result = histogram.toJSObject();
+
+        assertEquals(2, result.getInt("count"));
+        assertEquals(0.0, result.getDouble("p50Ms"), 0);
+        assertTrue(result.getDouble("p99Ms") > 0);
+    }
+
+    @Test
+    public void concurrentRecording_countsEverySample() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        histogram.recordNanos(i * 1000L);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40000, histogram.toJSObject().getInt("count"));
+        assertEquals(9.999, histogram.toJSObject().getDouble("maxMs"), 0);
+    }
+
+    // The reported value is the upper bound of the bucket, at most 25% above the true value
+    private static void assertWithinBucket(double expectedMs, double actualMs) {
+        assertTrue(actualMs + " < " + expectedMs, actualMs >= expectedMs);
+        assertTrue(actualMs + " > " + expectedMs + " + 25%", actualMs <= expectedMs * 1.25);
+    }
+}
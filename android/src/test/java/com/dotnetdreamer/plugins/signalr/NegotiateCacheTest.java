@@ -0,0 +1,154 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NegotiateCacheTest {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String HUB = "https://example.com/hub";
+    private static final String WEB_SOCKETS =
+        "{\"connectionId\":\"c1\",\"availableTransports\":[{\"transport\":\"WebSockets\"},{\"transport\":\"LongPolling\"}]}";
+
+    private File cacheFile;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheFile = File.createTempFile("negotiate", ".json");
+        cacheFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        cacheFile.delete();
+    }
+
+    @Test
+    public void keyOf_ignoresQueryAndTrailingSlash() {
+        assertEquals(HUB, NegotiateCache.keyOf(HUB + "?negotiateVersion=1"));
+        assertEquals(HUB, NegotiateCache.keyOf(HUB + "/"));
+        assertEquals(HUB, NegotiateCache.keyOf(HUB));
+    }
+
+    @Test
+    public void webSocketsEntry_survivesAColdLaunch() {
+        cache().record(HUB, WEB_SOCKETS, 60000);
+
+        NegotiateCache.Entry entry = cache().get(HUB + "?id=1");
+        assertNotNull(entry);
+        assertTrue(entry.webSockets);
+        assertNull(entry.redirectUrl);
+    }
+
+    @Test
+    public void responseWithoutWebSockets_isNotCached() {
+        NegotiateCache cache = cache();
+        cache.record(HUB, WEB_SOCKETS, 60000);
+        cache.record(HUB, "{\"availableTransports\":[{\"transport\":\"LongPolling\"}]}", 60000);
+        assertNull(cache.get(HUB));
+    }
+
+    @Test
+    public void redirectWithoutToken_isPersisted() {
+        cache().record(HUB, "{\"url\":\"https://service.example.com/client\"}", 60000);
+
+        NegotiateCache.Entry entry = cache().get(HUB);
+        assertFalse(entry.webSockets);
+        assertEquals("https://service.example.com/client", entry.redirectUrl);
+        assertNull(entry.accessToken);
+    }
+
+    @Test
+    public void accessToken_isKeptInMemoryOnly() throws Exception {
+        NegotiateCache cache = cache();
+        cache.record(HUB, "{\"url\":\"https://service.example.com/client\",\"accessToken\":\"secret\"}", 60000);
+        cache.record("https://example.com/other", WEB_SOCKETS, 60000);
+
+        assertEquals("secret", cache.get(HUB).accessToken);
+        assertFalse(read(cacheFile).contains("secret"));
+        assertFalse(read(cacheFile).contains("service.example.com"));
+
+        // Negotiated again after a cold launch
+        assertNull(cache().get(HUB));
+    }
+
+    @Test
+    public void tokensWrittenByAnEarlierVersion_areScrubbedOnLoad() throws Exception {
+        long expiresAt = System.currentTimeMillis() + 60000;
+        write(cacheFile, new JSONObject()
+            .put(HUB, new JSONObject()
+                .put("webSockets", false)
+                .put("redirectUrl", "https://service.example.com/client")
+                .put("accessToken", "secret")
+                .put("expiresAt", expiresAt))
+            .put("https://example.com/other", new JSONObject()
+                .put("webSockets", true)
+                .put("expiresAt", expiresAt))
+            .toString());
+
+        NegotiateCache cache = cache();
+        assertNull(cache.get(HUB));
+        assertTrue(cache.get("https://example.com/other").webSockets);
+        assertFalse(read(cacheFile).contains("secret"));
+    }
+
+    @Test
+    public void entries_expireAfterTheirTtl() throws Exception {
+        NegotiateCache cache = cache();
+        cache.record(HUB, WEB_SOCKETS, 50);
+        assertNotNull(cache.get(HUB));
+
+        Thread.sleep(80);
+        assertNull(cache.get(HUB));
+        assertFalse(read(cacheFile).contains(HUB));
+    }
+
+    @Test
+    public void expiredEntriesOnDisk_areNotLoaded() throws Exception {
+        write(cacheFile, new JSONObject()
+            .put(HUB, new JSONObject()
+                .put("webSockets", true)
+                .put("expiresAt", System.currentTimeMillis() - 1))
+            .toString());
+        assertNull(cache().get(HUB));
+    }
+
+    @Test
+    public void invalidate_dropsTheEntryFromDiskToo() {
+        NegotiateCache cache = cache();
+        cache.record(HUB, WEB_SOCKETS, 60000);
+        cache.invalidate(HUB + "/");
+
+        assertNull(cache.get(HUB));
+        assertNull(cache().get(HUB));
+    }
+
+    private NegotiateCache cache() {
+        NegotiateCache cache = new NegotiateCache();
+        cache.setFile(cacheFile);
+        return cache;
+    }
+
+    private static String read(File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), UTF8);
+    }
+
+    private static void write(File file, String text) throws Exception {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(text.getBytes(UTF8));
+        }
+    }
+}
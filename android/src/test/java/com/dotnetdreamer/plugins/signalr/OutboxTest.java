@@ -0,0 +1,222 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.getcapacitor.JSObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OutboxTest {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private ScheduledExecutorService scheduler;
+    private File journal;
+
+    @Before
+    public void setUp() throws Exception {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        journal = File.createTempFile("outbox", ".log");
+        journal.delete();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        journal.delete();
+    }
+
+    @Test
+    public void restore_replaysUnacknowledgedSendsInOrder() throws Exception {
+        Outbox outbox = outbox(new JSObject());
+        outbox.enqueue("First", args(1));
+        outbox.enqueue("Second", args(2));
+        outbox.enqueue("Third", args(3));
+        outbox.enqueue("Fourth", args(4));
+        sendHead(outbox);
+        Outbox.Entry second = sendHead(outbox);
+        outbox.acknowledge(second.seq);
+
+        // A new process reads the journal the previous one left behind
+        Outbox restored = outbox(new JSObject());
+        assertEquals(listOf("Third", "Fourth"), drain(restored));
+        assertNull(restored.peek());
+    }
+
+    @Test
+    public void restore_compactsJournalToRemainingSends() throws Exception {
+        Outbox outbox = outbox(new JSObject());
+        outbox.enqueue("First", args(1));
+        outbox.enqueue("Second", args(2));
+        outbox.acknowledge(sendHead(outbox).seq);
+
+        List<String> before = lines();
+        assertEquals(3, before.size());
+        assertTrue(before.get(2).contains("\"ack\""));
+
+        outbox(new JSObject());
+        List<String> after = lines();
+        assertEquals(1, after.size());
+        assertTrue(after.get(0).contains("\"method\":\"Second\""));
+    }
+
+    @Test
+    public void acknowledge_truncatesJournalOnceDrained() throws Exception {
+        Outbox outbox = outbox(new JSObject());
+        outbox.enqueue("First", args(1));
+        assertTrue(journal.exists());
+
+        outbox.acknowledge(sendHead(outbox).seq);
+        assertFalse(journal.exists());
+        assertTrue(outbox.isEmpty());
+    }
+
+    @Test
+    public void restore_skipsTornLastLine() throws Exception {
+        write("{\"seq\":1,\"method\":\"First\",\"args\":[]}\n"
+            + "{\"seq\":2,\"method\":\"Second\",\"args\":[]}\n"
+            + "{\"ack\":1}\n"
+            + "{\"seq\":3,\"meth");
+
+        assertEquals(listOf("Second"), drain(outbox(new JSObject())));
+    }
+
+    @Test
+    public void invokeWithResultCalls_areNotJournaled() throws Exception {
+        Outbox outbox = outbox(new JSObject());
+        outbox.enqueueWithResult("WithResult", args(1));
+        outbox.enqueue("Send", args(2));
+
+        assertEquals(listOf("Send"), drain(outbox(new JSObject())));
+    }
+
+    @Test
+    public void persistFalse_writesNoJournal() throws Exception {
+        Outbox outbox = outbox(new JSObject().put("persist", false));
+        outbox.enqueue("First", args(1));
+        assertFalse(journal.exists());
+    }
+
+    @Test
+    public void dropOldest_failsTheDroppedCall() throws Exception {
+        Outbox outbox = outbox(new JSObject().put("maxSize", 1));
+        CompletableFuture<Object> first = outbox.enqueueWithResult("First", args(1));
+        outbox.enqueue("Second", args(2));
+
+        assertTrue(first.isCompletedExceptionally());
+        assertEquals(1, outbox.getStatus().getInt("dropped"));
+        assertEquals(listOf("Second"), drain(outbox));
+    }
+
+    @Test
+    public void reject_throwsWhenFull() throws Exception {
+        Outbox outbox = outbox(new JSObject().put("maxSize", 1).put("overflow", "reject"));
+        outbox.enqueue("First", args(1));
+        try {
+            outbox.enqueue("Second", args(2));
+            fail("Expected a full outbox to reject");
+        } catch (RuntimeException e) {
+            assertEquals("Outbox is full", e.getMessage());
+        }
+    }
+
+    @Test
+    public void block_completesOnceThereIsRoom() throws Exception {
+        Outbox outbox = outbox(new JSObject().put("maxSize", 1).put("overflow", "block"));
+        outbox.enqueue("First", args(1));
+        CompletableFuture<Void> second = outbox.enqueue("Second", args(2));
+        assertFalse(second.isDone());
+        assertEquals(1, outbox.getStatus().getInt("waiting"));
+
+        sendHead(outbox);
+        second.get(1, TimeUnit.SECONDS);
+        assertEquals("Second", outbox.peek().methodName);
+        assertEquals(0, outbox.getStatus().getInt("waiting"));
+    }
+
+    @Test
+    public void block_failsAfterTimeout() throws Exception {
+        Outbox outbox = outbox(new JSObject().put("maxSize", 1).put("overflow", "block").put("blockTimeoutMs", 20));
+        outbox.enqueue("First", args(1));
+        CompletableFuture<Object> second = outbox.enqueueWithResult("Second", args(2));
+        try {
+            second.get(1, TimeUnit.SECONDS);
+            fail("Expected the waiting call to time out");
+        } catch (ExecutionException e) {
+            assertEquals("Timed out waiting for outbox space", e.getCause().getMessage());
+        }
+        assertEquals(listOf("First"), drain(outbox));
+    }
+
+    @Test
+    public void close_failsPendingResultsButKeepsJournal() throws Exception {
+        Outbox outbox = outbox(new JSObject());
+        CompletableFuture<Object> result = outbox.enqueueWithResult("WithResult", args(1));
+        outbox.enqueue("Send", args(2));
+        outbox.close();
+
+        assertTrue(result.isCompletedExceptionally());
+        assertEquals(listOf("Send"), drain(outbox(new JSObject())));
+    }
+
+    private Outbox outbox(JSObject options) {
+        return Outbox.fromOptions(options, scheduler, journal);
+    }
+
+    private static Outbox.Entry sendHead(Outbox outbox) {
+        Outbox.Entry entry = outbox.peek();
+        outbox.remove(entry);
+        return entry;
+    }
+
+    private static List<String> drain(Outbox outbox) {
+        List<String> methods = new ArrayList<>();
+        Outbox.Entry entry;
+        while ((entry = outbox.peek()) != null) {
+            methods.add(entry.methodName);
+            outbox.remove(entry);
+        }
+        return methods;
+    }
+
+    private static JSONArray args(int value) {
+        return new JSONArray().put(value);
+    }
+
+    private static List<String> listOf(String... values) {
+        List<String> list = new ArrayList<>();
+        for (String value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private List<String> lines() throws Exception {
+        return Files.readAllLines(journal.toPath(), UTF8);
+    }
+
+    private void write(String content) throws Exception {
+        try (OutputStream out = new FileOutputStream(journal)) {
+            out.write(content.getBytes(UTF8));
+        }
+    }
+}
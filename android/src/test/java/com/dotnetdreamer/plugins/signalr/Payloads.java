@@ -0,0 +1,49 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.util.Locale;
+import java.util.Map;
+
+// Market-data style payloads of realistic sizes: a quote with a price history whose length sets
+// the size, from a single tick (~250 bytes) to a full snapshot (~64 KB).
+final class Payloads {
+    static final int SMALL = 0;
+    static final int MEDIUM = 60;
+    static final int LARGE = 1000;
+
+    private static final Gson GSON = new Gson();
+
+    private Payloads() {}
+
+    static String quoteJson(int historyLength) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"symbol\":\"MSFT\",\"exchange\":\"NASDAQ\",\"currency\":\"USD\"")
+            .append(",\"price\":421.37,\"bid\":421.35,\"ask\":421.39,\"volume\":18234567")
+            .append(",\"timestamp\":1760000000000,\"halted\":false")
+            .append(",\"tags\":[\"tech\",\"large-cap\",\"dividend\"]")
+            .append(",\"history\":[");
+        for (int i = 0; i < historyLength; i++) {
+            if (i > 0) json.append(',');
+            json.append(String.format(Locale.ROOT, "{\"t\":%d,\"o\":%.2f,\"h\":%.2f,\"l\":%.2f,\"c\":%.2f,\"v\":%d}",
+                1760000000000L + i * 60000L, 420 + i % 7 * 0.13, 421 + i % 5 * 0.21, 419 + i % 3 * 0.17, 420.5 + i % 11 * 0.09, 10000 + i * 37));
+        }
+        return json.append("]}").toString();
+    }
+
+    // Decoded the way the JSON hub protocol hands it over
+    static JsonElement quoteTree(int historyLength) {
+        return JsonParser.parseString(quoteJson(historyLength));
+    }
+
+    // Decoded the way the MessagePack hub protocol hands it over: plain maps, lists and boxed numbers
+    static Map<?, ?> quoteMap(int historyLength) {
+        return GSON.fromJson(quoteJson(historyLength), Map.class);
+    }
+
+    static String sizeLabel(int historyLength) {
+        return historyLength == SMALL ? "small" : historyLength == MEDIUM ? "medium" : "large";
+    }
+}
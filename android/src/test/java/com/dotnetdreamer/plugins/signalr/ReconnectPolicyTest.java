@@ -0,0 +1,80 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.getcapacitor.JSObject;
+
+import org.json.JSONArray;
+import org.junit.Test;
+
+public class ReconnectPolicyTest {
+
+    @Test
+    public void fromOptions_returnsNullUnlessEnabled() throws Exception {
+        assertNull(ReconnectPolicy.fromOptions(new JSObject()));
+        assertNull(ReconnectPolicy.fromOptions(new JSObject().put("enableAutoReconnect", false)));
+        assertNotNull(ReconnectPolicy.fromOptions(new JSObject().put("enableAutoReconnect", true)));
+    }
+
+    @Test
+    public void fromOptions_usesDefaultScheduleWithJitter() throws Exception {
+        ReconnectPolicy policy = ReconnectPolicy.fromOptions(new JSObject().put("enableAutoReconnect", true));
+        for (int i = 0; i < 200; i++) {
+            assertBetween(0, 300, policy.nextDelay(0));
+            assertBetween(1400, 2600, policy.nextDelay(1));
+            assertBetween(7000, 13000, policy.nextDelay(2));
+            assertBetween(21000, 39000, policy.nextDelay(3));
+        }
+        assertEquals(-1, policy.nextDelay(4));
+    }
+
+    @Test
+    public void fromOptions_readsDelaysAndJitter() throws Exception {
+        ReconnectPolicy policy = ReconnectPolicy.fromOptions(new JSObject()
+            .put("enableAutoReconnect", true)
+            .put("autoReconnectRetryDelays", new JSONArray().put(100).put(-5).put(500))
+            .put("autoReconnectJitter", 0));
+
+        assertEquals(100, policy.nextDelay(0));
+        assertEquals(0, policy.nextDelay(1));
+        assertEquals(500, policy.nextDelay(2));
+        assertEquals(-1, policy.nextDelay(3));
+    }
+
+    @Test
+    public void zeroJitter_keepsAnImmediateRetry() throws Exception {
+        ReconnectPolicy policy = new ReconnectPolicy(new long[] { 0 }, 0);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, policy.nextDelay(0));
+        }
+    }
+
+    @Test
+    public void zeroDelay_isSpreadOverTheJitterWindow() throws Exception {
+        ReconnectPolicy policy = new ReconnectPolicy(new long[] { 0 }, 0.5);
+        boolean spread = false;
+        for (int i = 0; i < 200; i++) {
+            long delay = policy.nextDelay(0);
+            assertBetween(0, 500, delay);
+            spread |= delay > 0;
+        }
+        assertTrue(spread);
+    }
+
+    @Test
+    public void jitter_isClampedToOne() throws Exception {
+        ReconnectPolicy policy = new ReconnectPolicy(new long[] { 1000 }, 5);
+        for (int i = 0; i < 200; i++) {
+            assertBetween(0, 2000, policy.nextDelay(0));
+        }
+        ReconnectPolicy negative = new ReconnectPolicy(new long[] { 1000 }, -1);
+        assertEquals(1000, negative.nextDelay(0));
+    }
+
+    private static void assertBetween(long min, long max, long actual) {
+        assertTrue(actual + " not in [" + min + ", " + max + "]", actual >= min && actual <= max);
+    }
+}
@@ -0,0 +1,124 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+// An in-process SignalR hub speaking the JSON hub protocol over a local WebSocket. Clients must
+// skip negotiation. "Echo" returns its first argument, any other invocation completes with null,
+// and broadcast() pushes server-to-client invocations to the connected client.
+class StandInHub implements Closeable {
+    private static final char RECORD_SEPARATOR = '\u001e';
+    // OkHttp closes a WebSocket whose outgoing queue exceeds 16 MiB
+    private static final long MAX_QUEUED_BYTES = 4 * 1024 * 1024;
+
+    private final MockWebServer server = new MockWebServer();
+    private final CountDownLatch connected = new CountDownLatch(1);
+    private final AtomicLong sendsReceived = new AtomicLong();
+    private volatile WebSocket client;
+
+    StandInHub() throws IOException {
+        final WebSocketListener listener = new WebSocketListener() {
+            private boolean handshakeDone;
+
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                client = webSocket;
+            }
+
+            @Override
+            public void onMessage(WebSocket webSocket, String text) {
+                int start = 0;
+                int end;
+                while ((end = text.indexOf(RECORD_SEPARATOR, start)) >= 0) {
+                    handleMessage(webSocket, text.substring(start, end));
+                    start = end + 1;
+                }
+            }
+
+            private void handleMessage(WebSocket webSocket, String message) {
+                if (!handshakeDone) {
+                    handshakeDone = true;
+                    webSocket.send("{}" + RECORD_SEPARATOR);
+                    connected.countDown();
+                    return;
+                }
+
+                JsonObject json = JsonParser.parseString(message).getAsJsonObject();
+                int type = json.get("type").getAsInt();
+                if (type != 1) return; // pings and close messages need no answer
+
+                JsonElement invocationId = json.get("invocationId");
+                if (invocationId == null) {
+                    sendsReceived.incrementAndGet();
+                    return;
+                }
+
+                JsonObject completion = new JsonObject();
+                completion.addProperty("type", 3);
+                completion.add("invocationId", invocationId);
+                JsonArray arguments = json.getAsJsonArray("arguments");
+                if ("Echo".equals(json.get("target").getAsString()) && arguments.size() > 0) {
+                    completion.add("result", arguments.get(0));
+                }
+                webSocket.send(completion.toString() + RECORD_SEPARATOR);
+            }
+        };
+
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().withWebSocketUpgrade(listener);
+            }
+        });
+        server.start();
+    }
+
+    String getUrl() {
+        return server.url("/hub").toString();
+    }
+
+    boolean awaitClient(long timeoutMs) throws InterruptedException {
+        return connected.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Pushes one invocation frame per message, the way a hub writes to a single client
+    void broadcast(String target, String argumentsJson, int count) throws InterruptedException {
+        String frame = "{\"type\":1,\"target\":\"" + target + "\",\"arguments\":" + argumentsJson + "}" + RECORD_SEPARATOR;
+        WebSocket socket = client;
+        for (int i = 0; i < count; i++) {
+            while (socket.queueSize() > MAX_QUEUED_BYTES) {
+                Thread.sleep(1);
+            }
+            socket.send(frame);
+        }
+    }
+
+    long getSendsReceived() {
+        return sendsReceived.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        WebSocket socket = client;
+        if (socket != null) {
+            socket.close(1000, null);
+        }
+        server.shutdown();
+    }
+}
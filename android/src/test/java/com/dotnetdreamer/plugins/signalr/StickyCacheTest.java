@@ -0,0 +1,160 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class StickyCacheTest {
+
+    @Test
+    public void open_returnsNullForFalse() throws Exception {
+        StickyCache cache = new StickyCache(1000);
+        assertNull(cache.open("Event", null));
+        assertNull(cache.open("Event", Boolean.FALSE));
+    }
+
+    @Test
+    public void true_keepsTheLastValue() throws Exception {
+        StickyCache cache = new StickyCache(1000);
+        StickyCache.Slot slot = cache.open("Event", Boolean.TRUE);
+        slot.put("a", 10);
+        slot.put("b", 20);
+
+        assertEquals(listOf("b"), data(cache.get(slot)));
+        assertEquals(20, cache.getBytes());
+        assertEquals(0, cache.getEvictedCount());
+    }
+
+    @Test
+    public void count_keepsTheLastNValuesInOrder() throws Exception {
+        StickyCache cache = new StickyCache(1000);
+        StickyCache.Slot slot = cache.open("Event", new JSONObject().put("count", 3));
+        for (int i = 0; i < 5; i++) {
+            slot.put("v" + i, 10);
+        }
+
+        assertEquals(listOf("v2", "v3", "v4"), data(cache.get(slot)));
+        assertEquals(30, cache.getBytes());
+    }
+
+    @Test
+    public void keyPath_replacesTheValueOfTheSameKey() throws Exception {
+        StickyCache cache = new StickyCache(1000);
+        StickyCache.Slot slot = cache.open("Quote", new JSONObject().put("keyPath", "symbol"));
+        JsonElement msft = json("{\"symbol\":\"MSFT\",\"price\":1}");
+        JsonElement aapl = json("{\"symbol\":\"AAPL\",\"price\":2}");
+        JsonElement msftAgain = json("{\"symbol\":\"MSFT\",\"price\":3}");
+        slot.put(msft, 10);
+        slot.put(aapl, 10);
+        slot.put(msftAgain, 15);
+
+        List<StickyCache.Value> values = cache.get(slot);
+        assertEquals(2, values.size());
+        // The key updated last is handed out last
+        assertEquals(aapl, values.get(0).data);
+        assertEquals(msftAgain, values.get(1).data);
+        assertEquals("MSFT", values.get(1).key);
+        assertEquals(25, cache.getBytes());
+    }
+
+    @Test
+    public void keyPath_limitsTheNumberOfKeys() throws Exception {
+        StickyCache cache = new StickyCache(1000);
+        StickyCache.Slot slot = cache.open("Quote", new JSONObject().put("keyPath", "id").put("count", 2));
+        slot.put(json("{\"id\":1}"), 10);
+        slot.put(json("{\"id\":2}"), 10);
+        slot.put(json("{\"id\":3}"), 10);
+
+        List<StickyCache.Value> values = cache.get(slot);
+        assertEquals(2, values.size());
+        assertEquals(json("{\"id\":2}"), values.get(0).data);
+        assertEquals(20, cache.getBytes());
+    }
+
+    @Test
+    public void budget_evictsLeastRecentlyUsedAcrossEvents() throws Exception {
+        StickyCache cache = new StickyCache(30);
+        StickyCache.Slot first = cache.open("First", new JSONObject().put("count", 10));
+        StickyCache.Slot second = cache.open("Second", new JSONObject().put("count", 10));
+        first.put("f0", 10);
+        second.put("s0", 10);
+        first.put("f1", 10);
+        // Reading marks the second event's value as recently used
+        cache.get(second);
+        first.put("f2", 10);
+
+        assertEquals(listOf("f1", "f2"), data(cache.get(first)));
+        assertEquals(listOf("s0"), data(cache.get(second)));
+        assertEquals(30, cache.getBytes());
+        assertEquals(1, cache.getEvictedCount());
+    }
+
+    @Test
+    public void setMaxBytes_evictsDownToTheNewBudget() throws Exception {
+        StickyCache cache = new StickyCache(1000);
+        StickyCache.Slot slot = cache.open("Event", new JSONObject().put("count", 10));
+        for (int i = 0; i < 5; i++) {
+            slot.put("v" + i, 10);
+        }
+        cache.setMaxBytes(25);
+
+        assertEquals(listOf("v3", "v4"), data(cache.get(slot)));
+        assertEquals(20, cache.getBytes());
+        assertEquals(3, cache.getEvictedCount());
+    }
+
+    @Test
+    public void valueLargerThanTheBudget_isNotKept() throws Exception {
+        StickyCache cache = new StickyCache(10);
+        StickyCache.Slot slot = cache.open("Event", Boolean.TRUE);
+        slot.put("big", 11);
+
+        assertTrue(cache.get(slot).isEmpty());
+        assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    public void close_dropsTheValuesAndIgnoresLaterPuts() throws Exception {
+        StickyCache cache = new StickyCache(1000);
+        StickyCache.Slot slot = cache.open("Event", new JSONObject().put("count", 10).put("retainMs", 1000));
+        StickyCache.Slot other = cache.open("Other", Boolean.TRUE);
+        assertEquals(1000, slot.retainMs);
+        slot.put("a", 10);
+        other.put("b", 10);
+        slot.close();
+        slot.put("c", 10);
+
+        assertTrue(cache.get(slot).isEmpty());
+        assertEquals(listOf("b"), data(cache.get(other)));
+        assertEquals(10, cache.getBytes());
+    }
+
+    private static List<Object> data(List<StickyCache.Value> values) {
+        List<Object> result = new ArrayList<>();
+        for (StickyCache.Value value : values) {
+            result.add(value.data);
+        }
+        return result;
+    }
+
+    private static List<Object> listOf(Object... values) {
+        List<Object> list = new ArrayList<>();
+        for (Object value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static JsonElement json(String text) {
+        return JsonParser.parseString(text);
+    }
+}
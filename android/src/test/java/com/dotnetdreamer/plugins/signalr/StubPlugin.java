@@ -0,0 +1,41 @@
+package com.dotnetdreamer.plugins.signalr;
+
+import com.getcapacitor.JSObject;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stands in for the Capacitor bridge: every channel has a listener and emitted events are only
+// counted, so the benchmarks measure the plugin's own work and not the WebView.
+class StubPlugin extends CapacitorSignalRPlugin {
+    private final AtomicLong delivered = new AtomicLong();
+    private volatile CountDownLatch latch = new CountDownLatch(0);
+    private volatile String awaitedChannel;
+
+    @Override
+    public void notifyListenersPublic(String eventName, JSObject data) {
+        delivered.incrementAndGet();
+        if (eventName.equals(awaitedChannel)) {
+            latch.countDown();
+        }
+    }
+
+    @Override
+    public boolean hasListenersFor(String eventName) {
+        return true;
+    }
+
+    long getDelivered() {
+        return delivered.get();
+    }
+
+    void expect(String channel, int count) {
+        awaitedChannel = channel;
+        latch = new CountDownLatch(count);
+    }
+
+    boolean await(long timeoutMs) throws InterruptedException {
+        return latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+}
@@ -17,6 +17,12 @@ export enum TransportType {
 
 export interface ConnectionOptions {
   url: string;
+  /**
+   * Key identifying this connection in the other methods and in emitted events (default `'default'`).
+   * Creating a handle that already exists replaces its connection (Android and web only; iOS has a
+   * single connection).
+   */
+  handle?: string;
   accessToken?: string;
   shouldSkipNegotiate?: boolean;
   skipNegotiation?: boolean;
@@ -25,20 +31,644 @@ export interface ConnectionOptions {
   keepAliveInterval?: number;
   serverTimeout?: number;
   transport?: TransportType;
+  /**
+   * Hub protocol used on the wire (default `'json'`). `'messagepack'` is binary and smaller to encode and decode (Android only).
+   */
+  protocol?: 'json' | 'messagepack';
   reconnect?: boolean;
   logLevel?: string;
   enableAutoReconnect?: boolean;
   autoReconnectRetryDelays?: number[];
+  /**
+   * Random spread applied to each retry delay, as a fraction of it (default 0.3). A delay of 0 is spread
+   * over 0 to `autoReconnectJitter * 1000` milliseconds instead. Keeps many clients dropped at once from
+   * reconnecting in lockstep.
+   */
+  autoReconnectJitter?: number;
+  /**
+   * Deliver received events in batches through `onReceiveBatch` instead of one `onReceive` per message
+   * (Android and web only)
+   */
+  batching?: BatchingOptions;
+  /**
+   * Deliver each hub event on its own `onReceive:<eventName>` channel instead of the shared `onReceive`,
+   * so only listeners of that event are woken. Ignored when `batching` is set (Android and web only).
+   */
+  perEventChannels?: boolean;
+  /**
+   * Queue `invoke()`/`invokeWithResult()` calls made while not connected and send them in order once connected (Android only)
+   */
+  outbox?: OutboxOptions;
+  /**
+   * Emit `onMetrics` with the output of `getMetrics()` every this many milliseconds (Android only)
+   */
+  metricsIntervalMs?: number;
+  /**
+   * Queue between the socket reader and the thread converting and delivering events (Android only)
+   */
+  dispatch?: DispatchOptions;
+  /**
+   * Default timeout and concurrency limits for `invokeWithResult()` (Android and web only)
+   */
+  invocations?: InvocationOptions;
+  /**
+   * Cache results of read-only hub methods called through `invokeWithResult()` (Android only)
+   */
+  cache?: CacheOptions;
+  /**
+   * Remember each hub URL's negotiate result for this many milliseconds, so the next `create()` can
+   * skip negotiate (when the server offers WebSockets) or go straight to a redirect URL. Redirects carrying
+   * an access token are only kept in memory (Android only)
+   */
+  negotiateCacheTtlMs?: number;
+  /**
+   * Tuning of the HTTP client under the connection (Android only). Connections with the same pool
+   * and socket settings share TCP/TLS sessions and threads.
+   */
+  http?: HttpOptions;
+  /**
+   * Buffer received events while the app is in the background and replay them on resume, with
+   * `true` for the defaults (Android only). Without it events keep being delivered in the background.
+   */
+  background?: BackgroundOptions | boolean;
+  /**
+   * Write received events and results above a size threshold to a file instead of sending them over
+   * the bridge (Android only)
+   */
+  largePayloads?: LargePayloadOptions;
+  /**
+   * Memory shared by the values of all `sticky` events, in estimated JSON bytes (default 4194304).
+   * The least recently received or read values are dropped first (Android only).
+   */
+  stickyCacheBytes?: number;
+  /**
+   * Keep-alive settings for the foreground and the background, and what happens to the connection
+   * while the app is in the background (Android only)
+   */
+  power?: PowerOptions;
+}
+
+export interface PowerOptions {
+  /**
+   * Defaults to the `keepAliveInterval` and `serverTimeout` options
+   */
+  foreground?: KeepAliveProfile;
+  background?: BackgroundPowerOptions;
+}
+
+export interface KeepAliveProfile {
+  /**
+   * Must stay below the server's `ClientTimeoutInterval` (30 seconds by default), or the server drops the connection
+   */
+  keepAliveInterval?: number;
+  /**
+   * Defaults to at least twice `keepAliveInterval`
+   */
+  serverTimeout?: number;
+}
+
+export interface BackgroundPowerOptions extends KeepAliveProfile {
+  /**
+   * Events whose hub handlers are removed while in the background; they are not buffered either
+   */
+  pauseEvents?: string[];
+  /**
+   * Stop the connection after this many milliseconds in the background and reopen it on resume.
+   * It reports `disconnected` with `suspended: true` meanwhile, then `onReconnected`.
+   */
+  disconnectAfterMs?: number;
+}
+
+export interface LargePayloadOptions {
+  /**
+   * Estimated JSON size in bytes above which a payload goes to a file (default 1048576)
+   */
+  thresholdBytes?: number;
+  /**
+   * Files not released with `releasePayloadFile()` are deleted after this many milliseconds (default 300000)
+   */
+  ttlMs?: number;
+}
+
+/**
+ * A payload written to a JSON file in the app cache directory, delivered in place of `data` or `result`.
+ * Read it with e.g. `fetch(Capacitor.convertFileSrc(path))`, then call `releasePayloadFile()`.
+ */
+export interface PayloadFile {
+  fileId: string;
+  path: string;
+  bytes: number;
+  contentType: string;
+  /**
+   * When the file is deleted if not released before, in milliseconds since the epoch
+   */
+  expiresAt: number;
+}
+
+export interface BackgroundOptions {
+  /**
+   * Events kept in memory before further ones are written to a file in the cache directory (default 1000)
+   */
+  maxMemoryEvents?: number;
+  /**
+   * Events kept in total; newer ones are dropped and show up as a gap in `seq` (default 10000)
+   */
+  maxEvents?: number;
+  /**
+   * Write events past `maxMemoryEvents` to disk instead of dropping them (default true)
+   */
+  spill?: boolean;
+  /**
+   * Only replay the latest value of these events, or of every event with `true`
+   */
+  coalesce?: boolean | string[];
+}
+
+export interface ReplaySummary {
+  handle?: string;
+  /**
+   * Events replayed
+   */
+  buffered: number;
+  /**
+   * Events that went through the disk spill file
+   */
+  spilled: number;
+  /**
+   * Events lost because `maxEvents` was reached
+   */
+  dropped: number;
+  /**
+   * Superseded values of coalesced events
+   */
+  coalesced: number;
+  /**
+   * Sequence numbers of the first and last event received while in the background
+   */
+  fromSeq?: number;
+  toSeq?: number;
+}
+
+export interface HttpOptions {
+  connectTimeoutMs?: number;
+  readTimeoutMs?: number;
+  writeTimeoutMs?: number;
+  /**
+   * Limit for a whole HTTP call such as negotiate; 0 means no limit
+   */
+  callTimeoutMs?: number;
+  /**
+   * Interval of WebSocket ping frames, which detect a dead socket sooner than the hub keep-alive
+   */
+  pingIntervalMs?: number;
+  pool?: {
+    /**
+     * Idle connections kept for reuse (default 5)
+     */
+    maxIdleConnections?: number;
+    /**
+     * How long an idle connection is kept (default 300000)
+     */
+    keepAliveMs?: number;
+  };
+  /**
+   * Socket send buffer size in bytes; the system default when unset
+   */
+  sendBufferSize?: number;
+  /**
+   * Socket receive buffer size in bytes; the system default when unset
+   */
+  receiveBufferSize?: number;
+  /**
+   * Disable Nagle's algorithm so small messages are sent without delay
+   */
+  tcpNoDelay?: boolean;
+  /**
+   * Offer permessage-deflate compression of WebSocket frames (default true)
+   */
+  webSocketCompression?: boolean;
+  /**
+   * Messages smaller than this many bytes are sent uncompressed (default 1024)
+   */
+  minCompressSize?: number;
+}
+
+export interface CacheOptions {
+  /**
+   * Time to live of cached results per hub method name, in milliseconds. Only these methods are cached.
+   */
+  methods: Record<string, number>;
+  /**
+   * Most results kept across all methods, least recently used first out (default 256)
+   */
+  maxEntries?: number;
+}
+
+export interface InvocationOptions {
+  /**
+   * Reject calls that have not completed after this many milliseconds, including time spent queued (default 0, no timeout)
+   */
+  timeoutMs?: number;
+  /**
+   * Most calls awaiting a result at once; further calls wait their turn (default 0, unlimited, Android only)
+   */
+  maxInFlight?: number;
+  /**
+   * Most calls waiting for an in-flight slot before new ones are rejected with code `OVERLOADED` (default 1000, Android only)
+   */
+  maxQueued?: number;
+}
+
+export interface BatchCall {
+  methodName: string;
+  args?: any[];
+  /**
+   * Wait for the hub method's return value like `invokeWithResult()`; otherwise the call is sent like `invoke()`
+   */
+  expectResult?: boolean;
+  invocationId?: string;
+  timeoutMs?: number;
+}
+
+export interface BatchResult {
+  ok: boolean;
+  result?: any;
+  /**
+   * Set instead of `result` when it was above the `largePayloads` threshold
+   */
+  payloadFile?: PayloadFile;
+  error?: string;
+  /**
+   * Set for abandoned calls: `TIMEOUT`, `CANCELED`, `CLOSED` or `OVERLOADED`
+   */
+  code?: string;
+}
+
+export interface InvokeWithResultOptions extends HandleOptions {
+  methodName: string;
+  args?: any[];
+  /**
+   * Identifier used to cancel the call with `cancelInvocation()` (Android and web only)
+   */
+  invocationId?: string;
+  /**
+   * Overrides the default timeout of `create()`; 0 waits forever (Android and web only)
+   */
+  timeoutMs?: number;
+}
+
+export interface DispatchOptions {
+  /**
+   * Number of received messages that can wait for conversion, rounded up to a power of two (default 1024)
+   */
+  queueSize?: number;
+  /**
+   * What to do when the queue is full (default `'block'`, which stops reading from the socket until there is room)
+   */
+  overflow?: 'block' | 'drop-oldest' | 'drop-newest';
+}
+
+export interface DispatchStatus {
+  depth: number;
+  capacity: number;
+  highWatermark: number;
+  dropped: number;
+}
+
+export interface BatchingOptions {
+  /**
+   * Flush as soon as this many events are pending (default 100)
+   */
+  maxBatchSize?: number;
+  /**
+   * Longest time an event waits before its batch is delivered, in milliseconds (default 16)
+   */
+  maxDelayMs?: number;
+}
+
+export interface OutboxOptions {
+  /**
+   * Maximum number of queued calls (default 1000)
+   */
+  maxSize?: number;
+  /**
+   * What to do when the outbox is full (default `'drop-oldest'`)
+   */
+  overflow?: 'drop-oldest' | 'reject' | 'block';
+  /**
+   * How long a call waits for space with the `'block'` policy before being rejected, in milliseconds (default 5000).
+   * The call's promise stays pending meanwhile; no thread is blocked.
+   */
+  blockTimeoutMs?: number;
+  /**
+   * Journal queued `invoke()` calls to a file so they survive the app being killed (default true)
+   */
+  persist?: boolean;
+}
+
+export interface OutboxStatus {
+  depth: number;
+  /**
+   * Calls waiting for space with the `'block'` policy
+   */
+  waiting?: number;
+  capacity?: number;
+  dropped?: number;
+  lastFlushCount?: number;
+  lastFlushMs?: number;
+}
+
+export interface LatencyStats {
+  count: number;
+  meanMs?: number;
+  p50Ms?: number;
+  p95Ms?: number;
+  p99Ms?: number;
+  maxMs?: number;
+}
+
+export interface TrafficStats {
+  count: number;
+  /**
+   * Estimated JSON-encoded size of the payloads. Received events are only sized while a listener
+   * or the `sticky` option of `on()` wants them.
+   */
+  bytes: number;
+  /**
+   * Received events rejected by the `filter` of `on()`, when any
+   */
+  filtered?: number;
+  /**
+   * Received events superseded by a later value of their key under the `conflate` option of
+   * `on()`, when any
+   */
+  conflated?: number;
+  /**
+   * Messages per second since the previous `getMetrics()` or `onMetrics`
+   */
+  ratePerSecond: number;
+}
+
+export interface Metrics {
+  handle: string;
+  uptimeMs: number;
+  connection: {
+    start: LatencyStats;
+    negotiate: LatencyStats;
+    transportOpen: LatencyStats;
+    handshake: LatencyStats;
+    /**
+     * Starts that used a cached negotiate result
+     */
+    negotiateCacheHits: number;
+    startFailures: number;
+    reconnects: number;
+    reconnectAttempts: number;
+    closes: number;
+    /**
+     * Stops after the `power.background.disconnectAfterMs` grace period, also counted in `closes`
+     */
+    suspends: number;
+  };
+  /**
+   * `invokeWithResult()` round trips per hub method
+   */
+  invocations: Record<string, LatencyStats & { errors: number }>;
+  /**
+   * Calls sent per hub method
+   */
+  sends: Record<string, TrafficStats>;
+  /**
+   * Messages received per event name
+   */
+  events: Record<string, TrafficStats>;
+  /**
+   * Time spent converting received payloads for the bridge
+   */
+  conversion: LatencyStats;
+  /**
+   * Time spent handing events to the bridge
+   */
+  bridge: LatencyStats;
+  /**
+   * `invokeWithResult()` calls awaiting a result and waiting for an in-flight slot
+   */
+  pendingInvocations?: { inFlight: number; queued: number };
+  /**
+   * Result cache activity; `coalesced` counts calls that shared another call's round trip
+   */
+  cache?: { entries: number; hits: number; misses: number; coalesced: number };
+  /**
+   * Memory held by `sticky` event values and values dropped to stay within `stickyCacheBytes`
+   */
+  sticky?: { bytes: number; evicted: number };
+  /**
+   * Depth of the queue of received messages waiting for conversion
+   */
+  dispatch?: DispatchStatus;
 }
 
 export interface ConnectionInfo {
+  handle: string;
   connectionId?: string;
   state: ConnectionState;
+  /**
+   * Where the time of `create()` went (Android only)
+   */
+  timings?: ConnectTimings;
+}
+
+export interface ConnectTimings {
+  negotiateMs: number;
+  transportOpenMs: number;
+  /**
+   * Time left over after negotiate and opening the transport, mostly the SignalR handshake
+   */
+  handshakeMs: number;
+  totalMs: number;
+  negotiateCached: boolean;
+}
+
+export interface HandleOptions {
+  /**
+   * Connection to address, as passed to `create()` (default `'default'`, Android and web only)
+   */
+  handle?: string;
+}
+
+/**
+ * How a hub event argument is decoded natively. `'json'` accepts any value.
+ */
+export type EventArgType = 'string' | 'number' | 'boolean' | 'json';
+
+export interface SubscribeOptions extends HandleOptions {
+  eventName: string;
+  /**
+   * Argument layout of the event, e.g. `['string', 'json']` (at most 8). Defaults to a single `'json'`
+   * argument, or two strings for `ReceiveMessage`. With one argument `data` is its value, otherwise an array.
+   */
+  args?: EventArgType[];
+  /**
+   * Drop or trim events natively before they are converted and sent over the bridge (Android only)
+   */
+  filter?: EventFilterOptions;
+  /**
+   * Drop superseded values natively before they are converted and sent over the bridge (Android only)
+   */
+  conflate?: ConflationOptions;
+  /**
+   * Keep the event's last values natively and return them from `on()` to later subscribers, so they
+   * start from the current state (Android only). `true` keeps the last value. The values keep
+   * updating for `retainMs` after the last subscriber leaves, until released with `off()` or until
+   * `disconnect()`.
+   */
+  sticky?: boolean | StickyOptions;
+}
+
+export interface StickyOptions {
+  /**
+   * Values kept, or keys kept with `keyPath` (default 1, or 100 with `keyPath`)
+   */
+  count?: number;
+  /**
+   * Keep the last value per distinct value of this dotted path instead of the last `count` values
+   */
+  keyPath?: string;
+  /**
+   * How long values outlive the last subscriber, in milliseconds (default 300000). 0 drops them with it.
+   */
+  retainMs?: number;
+}
+
+export interface EventFilterOptions {
+  /**
+   * Only deliver events matching this expression over dotted paths into `data`, e.g.
+   * `"status == 'active' and (price >= 10 or featured)"`. Supports `==`, `!=`, `<`, `<=`, `>`, `>=`,
+   * `and`, `or`, `not`, parentheses, and string, number, `true`, `false` and `null` values. A path
+   * on its own tests that the value is truthy.
+   */
+  where?: string;
+  /**
+   * Deliver only these paths of `data`, e.g. `['id', 'quote.bid']` or `'id, quote.bid'`, in an object
+   * with the same nesting. Missing fields are left out.
+   */
+  select?: string[] | string;
+}
+
+/**
+ * Returned by `on()` (Android and web only)
+ */
+export interface SubscriptionInfo {
+  /**
+   * Identifies this subscriber in `off()`
+   */
+  subscriptionId: string;
+  /**
+   * Subscribers of the event, including this one
+   */
+  subscribers: number;
+  /**
+   * Values of a `sticky` event received before this call, oldest first
+   */
+  sticky?: SignalREvent[];
+}
+
+export interface UnsubscribeOptions extends HandleOptions {
+  eventName: string;
+  /**
+   * Subscriber to remove, as returned by `on()`. Without it the most recent subscriber is removed.
+   */
+  subscriptionId?: string;
+  /**
+   * Drop the values of a `sticky` event right away once no subscriber is left, instead of after
+   * its `retainMs` (Android only)
+   */
+  releaseSticky?: boolean;
+}
+
+export interface ConflationOptions {
+  /**
+   * Dotted path into `data` whose value keys the conflation, e.g. `'symbol'` or `'0.id'` for
+   * multi-argument events. Without it the latest value of the event wins.
+   */
+  keyPath?: string;
+  /**
+   * Minimum time between emissions for the same key; values arriving in between replace each other (default 0)
+   */
+  minIntervalMs?: number;
 }
 
 export interface SignalREvent {
+  handle?: string;
   eventName: string;
   data?: any;
+  /**
+   * Increasing number of the event within its connection (Android only)
+   */
+  seq?: number;
+  /**
+   * Set on events buffered in the background and delivered on resume (Android only)
+   */
+  replayed?: boolean;
+  /**
+   * Set instead of `data` when the payload was above the `largePayloads` threshold (Android only)
+   */
+  payloadFile?: PayloadFile;
+  /**
+   * Set on values returned by `on()` for `sticky` events, with the time they were received (Android only)
+   */
+  sticky?: boolean;
+  receivedAt?: number;
+}
+
+export interface StreamOptions extends HandleOptions {
+  methodName: string;
+  args?: any[];
+  /**
+   * Identifier used in stream events, generated when omitted
+   */
+  streamId?: string;
+  /**
+   * Number of items delivered before JS has to grant more with `streamRequest()` (default 64)
+   */
+  window?: number;
+  /**
+   * Items buffered natively beyond the granted credit; a stream falling further behind is cancelled and completes with an error (default 1024, Android only)
+   */
+  bufferSize?: number;
+}
+
+export interface UploadOptions extends HandleOptions {
+  /**
+   * Hub method whose last parameter is the uploaded stream
+   */
+  methodName: string;
+  /**
+   * Arguments passed before the stream
+   */
+  args?: any[];
+  streamId?: string;
+  /**
+   * Wait for the hub method's return value, delivered by `completeUpload()`
+   */
+  expectResult?: boolean;
+}
+
+export interface StreamItems {
+  handle?: string;
+  streamId: string;
+  items: any[];
+}
+
+export interface StreamComplete {
+  handle?: string;
+  streamId: string;
+  error?: string;
+}
+
+export interface SignalREventBatch {
+  handle?: string;
+  events: SignalREvent[];
 }
 
 export interface CapacitorSignalRPlugin {
@@ -50,62 +680,172 @@ export interface CapacitorSignalRPlugin {
   /**
    * Disconnect from the SignalR hub
    */
-  disconnect(): Promise<void>;
+  disconnect(options?: HandleOptions): Promise<void>;
   
   /**
    * Get the current connection ID
    */
-  getConnectionId(): Promise<{ connectionId?: string }>;
+  getConnectionId(options?: HandleOptions): Promise<{ connectionId?: string }>;
   
   /**
    * Get the current connection state
    */
-  getConnectionState(): Promise<{ state: ConnectionState }>;
+  getConnectionState(options?: HandleOptions): Promise<{ state: ConnectionState }>;
+  
+  /**
+   * Get the depth of the outbox and statistics of its last flush (Android only)
+   */
+  getOutboxStatus(options?: HandleOptions): Promise<OutboxStatus>;
+
+  /**
+   * Get latency histograms, message counts and bridge cost of a connection (Android only)
+   */
+  getMetrics(options?: HandleOptions): Promise<Metrics>;
   
   /**
    * Send a message to the SignalR hub
    */
-  invoke(options: { methodName: string; args?: any[] }): Promise<void>;
+  invoke(options: HandleOptions & { methodName: string; args?: any[] }): Promise<void>;
   
   /**
-   * Send a message to the SignalR hub and expect a response
+   * Send a message to the SignalR hub and expect a response. Rejects with code `TIMEOUT`, `CANCELED`,
+   * `CLOSED` or `OVERLOADED` when the call is abandoned. A result above the `largePayloads` threshold
+   * arrives as `payloadFile` instead of `result`.
+   */
+  invokeWithResult<T = any>(options: InvokeWithResultOptions): Promise<{ result: T; payloadFile?: PayloadFile }>;
+
+  /**
+   * Send many hub calls in one bridge call without waiting on each other. Resolves once every call
+   * has settled, with one result per call in the same order; a failing call does not fail the batch
+   * (Android and web only).
    */
-  invokeWithResult<T = any>(options: { methodName: string; args?: any[] }): Promise<{ result: T }>;
+  invokeBatch(options: HandleOptions & { calls: BatchCall[] }): Promise<{ results: BatchResult[] }>;
+
+  /**
+   * Drop cached results of one hub method, or of all methods when `methodName` is omitted.
+   * The cache is also cleared whenever the connection closes (Android and web only).
+   */
+  invalidateCache(options?: HandleOptions & { methodName?: string }): Promise<void>;
+
+  /**
+   * Delete a payload file once it has been read (Android only)
+   */
+  releasePayloadFile(options: HandleOptions & { fileId: string }): Promise<{ released: boolean }>;
+
+  /**
+   * Reject a pending `invokeWithResult()` call and stop waiting for its result (Android and web only)
+   */
+  cancelInvocation(options: HandleOptions & { invocationId: string }): Promise<{ canceled: boolean }>;
   
   /**
-   * Subscribe to a hub method
+   * Start a server-to-client stream. Items arrive through `onStreamItems`, the end through `onStreamComplete`
+   * (Android and web only).
    */
-  on(options: { eventName: string }): Promise<void>;
+  stream(options: StreamOptions): Promise<{ streamId: string }>;
+
+  /**
+   * Grant a stream credit for `count` more items (Android and web only)
+   */
+  streamRequest(options: HandleOptions & { streamId: string; count: number }): Promise<void>;
+
+  /**
+   * Cancel a server-to-client stream (Android and web only)
+   */
+  cancelStream(options: HandleOptions & { streamId: string }): Promise<void>;
+
+  /**
+   * Invoke a hub method that takes a client-to-server stream, fed by `uploadChunks()` (Android and web only)
+   */
+  startUpload(options: UploadOptions): Promise<{ streamId: string }>;
+
+  /**
+   * Push items into a client-to-server stream (Android and web only)
+   */
+  uploadChunks(options: HandleOptions & { streamId: string; chunks: any[] }): Promise<void>;
+
+  /**
+   * Complete a client-to-server stream, or fail it with `error` (Android and web only)
+   */
+  completeUpload<T = any>(options: HandleOptions & { streamId: string; error?: string }): Promise<{ result?: T }>;
+
+  /**
+   * Subscribe to a hub method. Subscribing to an event several times shares one native handler; the options of the first
+   * subscriber apply until the last one has called `off()`. The `SubscriptionInfo` result is Android and web
+   * only; iOS resolves without a value.
+   */
+  on(options: SubscribeOptions): Promise<SubscriptionInfo>;
   
   /**
-   * Unsubscribe from a hub method
+   * Unsubscribe from a hub method. The event stops being delivered once its last subscriber is removed.
+   * The remaining `subscribers` count is Android and web only; iOS resolves without a value.
    */
-  off(options: { eventName: string }): Promise<void>;
+  off(options: UnsubscribeOptions): Promise<{ subscribers: number }>;
   
   /**
    * Add listener for plugin events
    */
   addListener(eventName: 'onReceive', listenerFunc: (event: SignalREvent) => void): Promise<PluginListenerHandle>;
   
+  /**
+   * Add listener for a single hub event, used when `perEventChannels` is set in `create()`
+   */
+  addListener(eventName: `onReceive:${string}`, listenerFunc: (event: SignalREvent) => void): Promise<PluginListenerHandle>;
+
+  /**
+   * Add listener for batched events, used when `batching` is set in `create()`
+   */
+  addListener(eventName: 'onReceiveBatch', listenerFunc: (batch: SignalREventBatch) => void): Promise<PluginListenerHandle>;
+  
+  /**
+   * Add listener for items of server-to-client streams
+   */
+  addListener(eventName: 'onStreamItems', listenerFunc: (items: StreamItems) => void): Promise<PluginListenerHandle>;
+
+  /**
+   * Add listener for the end of server-to-client streams
+   */
+  addListener(eventName: 'onStreamComplete', listenerFunc: (complete: StreamComplete) => void): Promise<PluginListenerHandle>;
+  
   /**
    * Add listener for connection state changes
    */
-  addListener(eventName: 'onConnectionStateChanged', listenerFunc: (state: { state: ConnectionState }) => void): Promise<PluginListenerHandle>;
+  addListener(eventName: 'onConnectionStateChanged', listenerFunc: (state: { handle?: string; state: ConnectionState; suspended?: boolean }) => void): Promise<PluginListenerHandle>;
   
   /**
    * Add listener for connection closed event
    */
-  addListener(eventName: 'onClosed', listenerFunc: (error?: { error?: string }) => void): Promise<PluginListenerHandle>;
+  addListener(eventName: 'onClosed', listenerFunc: (error?: { handle?: string; error?: string }) => void): Promise<PluginListenerHandle>;
   
   /**
    * Add listener for reconnecting event
    */
-  addListener(eventName: 'onReconnecting', listenerFunc: (error?: { error?: string }) => void): Promise<PluginListenerHandle>;
+  addListener(eventName: 'onReconnecting', listenerFunc: (error?: { handle?: string; error?: string }) => void): Promise<PluginListenerHandle>;
   
   /**
    * Add listener for reconnected event
    */
-  addListener(eventName: 'onReconnected', listenerFunc: (info: { connectionId?: string }) => void): Promise<PluginListenerHandle>;
+  addListener(eventName: 'onReconnected', listenerFunc: (info: { handle?: string; connectionId?: string }) => void): Promise<PluginListenerHandle>;
+
+  /**
+   * Add listener for outbox flushes after (re)connecting (Android only)
+   */
+  addListener(eventName: 'onOutboxFlushed', listenerFunc: (info: OutboxStatus & { handle?: string; count: number; durationMs: number }) => void): Promise<PluginListenerHandle>;
+
+  /**
+   * Add listener for periodic metrics, enabled with `metricsIntervalMs` in `create()` (Android only)
+   */
+  addListener(eventName: 'onMetrics', listenerFunc: (metrics: Metrics) => void): Promise<PluginListenerHandle>;
+
+  /**
+   * Add listener for the end of the replay of events received in the background (Android only)
+   */
+  addListener(eventName: 'onReplayComplete', listenerFunc: (summary: ReplaySummary) => void): Promise<PluginListenerHandle>;
+
+  /**
+   * Number of listeners attached per event channel. Events on channels without listeners are not converted at all
+   * (Android and web only).
+   */
+  getListenerCounts(): Promise<{ counts: Record<string, number> }>;
 
   /**
    * Remove all listeners for this plugin
@@ -5,15 +5,47 @@ import type {
   CapacitorSignalRPlugin, 
   ConnectionOptions, 
   ConnectionInfo, 
-  SignalREvent
+  SignalREvent,
+  BatchingOptions,
+  HandleOptions,
+  OutboxStatus,
+  Metrics,
+  StreamOptions,
+  UploadOptions,
+  SubscribeOptions,
+  SubscriptionInfo,
+  UnsubscribeOptions,
+  InvokeWithResultOptions,
+  BatchCall,
+  BatchResult
 } from './definitions';
 
 import { ConnectionState, TransportType } from './definitions';
 
+interface WebConnection {
+  handle: string;
+  hubConnection?: signalR.HubConnection;
+  connectionState: ConnectionState;
+  eventHandlers: Map<string, { handler: (...args: any[]) => void; subscribers: string[] }>;
+  perEventChannels: boolean;
+  streams: Map<string, signalR.ISubscription<any>>;
+  uploads: Map<string, { subject: signalR.Subject<any>; result: Promise<any> }>;
+  batching?: BatchingOptions;
+  pendingEvents: SignalREvent[];
+  batchTimer?: ReturnType<typeof setTimeout>;
+  lastBatchFlush: number;
+  invocationTimeoutMs: number;
+  pendingInvocations: Map<string, (error: Error) => void>;
+}
+
+const DEFAULT_HANDLE = 'default';
+
 export class CapacitorSignalRWeb extends WebPlugin implements CapacitorSignalRPlugin {
-  private hubConnection?: signalR.HubConnection;
-  private connectionState: ConnectionState = ConnectionState.DISCONNECTED;
-  private eventHandlers: Map<string, (...args: any[]) => void> = new Map();
+  private connections: Map<string, WebConnection> = new Map();
+
+  private getConnection(handle?: string): WebConnection | undefined {
+    return this.connections.get(handle || DEFAULT_HANDLE);
+  }
 
   private getTransportType(transportType?: TransportType): signalR.HttpTransportType {
     switch (transportType) {
@@ -49,10 +81,14 @@ export class CapacitorSignalRWeb extends WebPlugin implements CapacitorSignalRPl
     }
   }
 
-  private updateConnectionState(state: ConnectionState): void {
-    if (this.connectionState !== state) {
-      this.connectionState = state;
-      this.notifyListeners('onConnectionStateChanged', { state });
+  private isCurrent(connection: WebConnection): boolean {
+    return this.connections.get(connection.handle) === connection;
+  }
+
+  private updateConnectionState(connection: WebConnection, state: ConnectionState): void {
+    if (connection.connectionState !== state) {
+      connection.connectionState = state;
+      this.notifyListeners('onConnectionStateChanged', { handle: connection.handle, state });
     }
   }
 
@@ -70,9 +106,75 @@ export class CapacitorSignalRWeb extends WebPlugin implements CapacitorSignalRPl
     return headers;
   }
 
+  private emitEvent(connection: WebConnection, event: SignalREvent): void {
+    const batching = connection.batching;
+    if (!batching) {
+      this.notifyListeners(connection.perEventChannels ? `onReceive:${event.eventName}` : 'onReceive', event);
+      return;
+    }
+
+    connection.pendingEvents.push(event);
+    if (connection.pendingEvents.length >= (batching.maxBatchSize ?? 100)) {
+      this.flushEvents(connection);
+      return;
+    }
+
+    if (connection.batchTimer === undefined) {
+      const maxDelayMs = batching.maxDelayMs ?? 16;
+      const elapsed = Date.now() - connection.lastBatchFlush;
+      if (elapsed >= maxDelayMs) {
+        // Idle long enough, deliver without waiting
+        this.flushEvents(connection);
+      } else {
+        connection.batchTimer = setTimeout(() => this.flushEvents(connection), maxDelayMs - elapsed);
+      }
+    }
+  }
+
+  private flushEvents(connection: WebConnection): void {
+    if (connection.batchTimer !== undefined) {
+      clearTimeout(connection.batchTimer);
+      connection.batchTimer = undefined;
+    }
+    connection.lastBatchFlush = Date.now();
+    if (connection.pendingEvents.length === 0) return;
+
+    const events = connection.pendingEvents;
+    connection.pendingEvents = [];
+    this.notifyListeners('onReceiveBatch', { handle: connection.handle, events });
+  }
+
   async create(options: ConnectionOptions): Promise<ConnectionInfo> {
     console.log('SignalR Web: create() called with options:', options);
     
+    const handle = options.handle || DEFAULT_HANDLE;
+
+    // Creating a handle again replaces the connection registered under it
+    const previous = this.connections.get(handle);
+    if (previous) {
+      this.flushEvents(previous);
+      previous.hubConnection?.stop().catch(error => console.error('SignalR Web: Error stopping replaced connection:', error));
+    }
+
+    const connection: WebConnection = {
+      handle,
+      connectionState: ConnectionState.DISCONNECTED,
+      eventHandlers: new Map(),
+      perEventChannels: options.perEventChannels ?? false,
+      streams: new Map(),
+      uploads: new Map(),
+      batching: options.batching,
+      pendingEvents: [],
+      lastBatchFlush: 0,
+      invocationTimeoutMs: options.invocations?.timeoutMs ?? 0,
+      pendingInvocations: new Map()
+    };
+    this.connections.set(handle, connection);
+
+    if (options.protocol === 'messagepack') {
+      console.warn('SignalR Web: MessagePack protocol is not available on web, using JSON');
+    }
+
     try {
       // Create the connection builder
       const connectionBuilder = new signalR.HubConnectionBuilder()
@@ -87,178 +189,395 @@ export class CapacitorSignalRWeb extends WebPlugin implements CapacitorSignalRPl
       // Configure automatic reconnect if specified
       if (options.enableAutoReconnect) {
         const retryDelays = options.autoReconnectRetryDelays || [0, 2000, 10000, 30000];
-        connectionBuilder.withAutomaticReconnect(retryDelays);
+        const jitter = Math.min(Math.max(options.autoReconnectJitter ?? 0.3, 0), 1);
+        connectionBuilder.withAutomaticReconnect({
+          nextRetryDelayInMilliseconds: (retryContext) => {
+            const delay = retryDelays[retryContext.previousRetryCount];
+            if (delay === undefined) return null;
+            const spread = delay * jitter;
+            return Math.max(0, Math.round(delay - spread + Math.random() * 2 * spread));
+          }
+        });
       }
 
       // Build the connection
-      this.hubConnection = connectionBuilder.build();
+      const hubConnection = connectionBuilder.build();
+      connection.hubConnection = hubConnection;
 
       // Set up event handlers
-      this.setupEventHandlers();
+      this.setupEventHandlers(connection);
 
-      this.updateConnectionState(ConnectionState.CONNECTING);
+      this.updateConnectionState(connection, ConnectionState.CONNECTING);
 
       // Start the connection
-      await this.hubConnection.start();
+      await hubConnection.start();
       
-      this.updateConnectionState(ConnectionState.CONNECTED);
+      this.updateConnectionState(connection, ConnectionState.CONNECTED);
 
       const connectionInfo: ConnectionInfo = {
-        connectionId: this.hubConnection.connectionId || undefined,
-        state: this.connectionState
+        handle,
+        connectionId: hubConnection.connectionId || undefined,
+        state: connection.connectionState
       };
 
       console.log('SignalR Web: Connected successfully', connectionInfo);
       return connectionInfo;
 
     } catch (error) {
-      this.updateConnectionState(ConnectionState.DISCONNECTED);
+      this.updateConnectionState(connection, ConnectionState.DISCONNECTED);
       console.error('SignalR Web: Connection failed:', error);
       throw error;
     }
   }
 
-  private setupEventHandlers(): void {
-    if (!this.hubConnection) return;
-
-    // Connection state handlers
-    this.hubConnection.onclose((error) => {
-      this.updateConnectionState(ConnectionState.DISCONNECTED);
-      this.notifyListeners('onClosed', { error: error?.message });
+  private setupEventHandlers(connection: WebConnection): void {
+    const hubConnection = connection.hubConnection;
+    if (!hubConnection) return;
+
+    // Connection state handlers. A connection replaced by create() under the same handle still
+    // closes afterwards; its notifications would be taken for the new connection's, so they stop.
+    hubConnection.onclose((error) => {
+      if (!this.isCurrent(connection)) return;
+      this.flushEvents(connection);
+      this.updateConnectionState(connection, ConnectionState.DISCONNECTED);
+      this.notifyListeners('onClosed', { handle: connection.handle, error: error?.message });
     });
 
-    this.hubConnection.onreconnecting((error) => {
-      this.updateConnectionState(ConnectionState.RECONNECTING);
-      this.notifyListeners('onReconnecting', { error: error?.message });
+    hubConnection.onreconnecting((error) => {
+      if (!this.isCurrent(connection)) return;
+      this.updateConnectionState(connection, ConnectionState.RECONNECTING);
+      this.notifyListeners('onReconnecting', { handle: connection.handle, error: error?.message });
     });
 
-    this.hubConnection.onreconnected((connectionId) => {
-      this.updateConnectionState(ConnectionState.CONNECTED);
-      this.notifyListeners('onReconnected', { connectionId });
+    hubConnection.onreconnected((connectionId) => {
+      if (!this.isCurrent(connection)) return;
+      this.updateConnectionState(connection, ConnectionState.CONNECTED);
+      this.notifyListeners('onReconnected', { handle: connection.handle, connectionId });
     });
   }
 
-  async disconnect(): Promise<void> {
+  async disconnect(options?: HandleOptions): Promise<void> {
     console.log('SignalR Web: disconnect() called');
     
-    if (this.hubConnection) {
+    const connection = this.getConnection(options?.handle);
+    if (connection?.hubConnection) {
       try {
-        await this.hubConnection.stop();
+        await connection.hubConnection.stop();
       } catch (error) {
         console.error('SignalR Web: Error during disconnect:', error);
       } finally {
-        this.hubConnection = undefined;
-        this.eventHandlers.clear();
-        this.updateConnectionState(ConnectionState.DISCONNECTED);
-        this.notifyListeners('onClosed', {});
+        connection.hubConnection = undefined;
+        connection.eventHandlers.clear();
+        this.updateConnectionState(connection, ConnectionState.DISCONNECTED);
+        this.notifyListeners('onClosed', { handle: connection.handle });
       }
     }
   }
 
-  async getConnectionId(): Promise<{ connectionId?: string }> {
+  async getConnectionId(options?: HandleOptions): Promise<{ connectionId?: string }> {
     return { 
-      connectionId: this.hubConnection?.connectionId || undefined 
+      connectionId: this.getConnection(options?.handle)?.hubConnection?.connectionId || undefined 
     };
   }
 
-  async getConnectionState(): Promise<{ state: ConnectionState }> {
-    if (this.hubConnection) {
+  async getConnectionState(options?: HandleOptions): Promise<{ state: ConnectionState }> {
+    const connection = this.getConnection(options?.handle);
+    if (!connection) {
+      return { state: ConnectionState.DISCONNECTED };
+    }
+
+    if (connection.hubConnection) {
       // Map SignalR connection state to our enum
-      switch (this.hubConnection.state) {
+      switch (connection.hubConnection.state) {
         case signalR.HubConnectionState.Connecting:
-          this.connectionState = ConnectionState.CONNECTING;
+          connection.connectionState = ConnectionState.CONNECTING;
           break;
         case signalR.HubConnectionState.Connected:
-          this.connectionState = ConnectionState.CONNECTED;
+          connection.connectionState = ConnectionState.CONNECTED;
           break;
         case signalR.HubConnectionState.Reconnecting:
-          this.connectionState = ConnectionState.RECONNECTING;
+          connection.connectionState = ConnectionState.RECONNECTING;
           break;
         case signalR.HubConnectionState.Disconnecting:
-          this.connectionState = ConnectionState.DISCONNECTING;
+          connection.connectionState = ConnectionState.DISCONNECTING;
           break;
         case signalR.HubConnectionState.Disconnected:
-          this.connectionState = ConnectionState.DISCONNECTED;
+          connection.connectionState = ConnectionState.DISCONNECTED;
           break;
       }
     }
-    return { state: this.connectionState };
+    return { state: connection.connectionState };
+  }
+
+  async getListenerCounts(): Promise<{ counts: Record<string, number> }> {
+    const counts: Record<string, number> = {};
+    Object.keys(this.listeners).forEach(eventName => {
+      const count = this.listeners[eventName]?.length ?? 0;
+      if (count > 0) {
+        counts[eventName] = count;
+      }
+    });
+    return { counts };
+  }
+
+  async getOutboxStatus(_options?: HandleOptions): Promise<OutboxStatus> {
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  async getMetrics(_options?: HandleOptions): Promise<Metrics> {
+    throw this.unimplemented('Not implemented on web.');
   }
 
-  async invoke(options: { methodName: string; args?: any[] }): Promise<void> {
+  async invoke(options: HandleOptions & { methodName: string; args?: any[] }): Promise<void> {
     console.log('SignalR Web: invoke() called with:', options);
     
-    if (!this.hubConnection || this.connectionState !== ConnectionState.CONNECTED) {
+    const connection = this.getConnection(options.handle);
+    if (!connection?.hubConnection || connection.connectionState !== ConnectionState.CONNECTED) {
       throw new Error('Not connected to SignalR hub');
     }
 
     try {
-      await this.hubConnection.invoke(options.methodName, ...(options.args || []));
+      await connection.hubConnection.invoke(options.methodName, ...(options.args || []));
     } catch (error) {
       console.error('SignalR Web: Invoke error:', error);
       throw error;
     }
   }
 
-  async invokeWithResult<T = any>(options: { methodName: string; args?: any[] }): Promise<{ result: T }> {
+  async invokeWithResult<T = any>(options: InvokeWithResultOptions): Promise<{ result: T }> {
     console.log('SignalR Web: invokeWithResult() called with:', options);
     
-    if (!this.hubConnection || this.connectionState !== ConnectionState.CONNECTED) {
+    const connection = this.getConnection(options.handle);
+    if (!connection?.hubConnection || connection.connectionState !== ConnectionState.CONNECTED) {
       throw new Error('Not connected to SignalR hub');
     }
 
+    const invocationId = options.invocationId ?? `invocation-${++this.invocationCounter}`;
+    if (connection.pendingInvocations.has(invocationId)) {
+      throw new Error(`Invocation id already in use: ${invocationId}`);
+    }
+
+    // The JS client cannot abort an invocation, so timeouts and cancellation only stop waiting for it
+    const abandoned = new Promise<never>((_, reject) => {
+      connection.pendingInvocations.set(invocationId, reject);
+    });
+    const timeoutMs = options.timeoutMs ?? connection.invocationTimeoutMs;
+    const timer = timeoutMs > 0
+      ? setTimeout(() => connection.pendingInvocations.get(invocationId)?.(
+          this.invocationError('TIMEOUT', `Invocation of ${options.methodName} timed out after ${timeoutMs}ms`)), timeoutMs)
+      : undefined;
+
     try {
-      const result = await this.hubConnection.invoke<T>(options.methodName, ...(options.args || []));
+      const result = await Promise.race([
+        connection.hubConnection.invoke<T>(options.methodName, ...(options.args || [])),
+        abandoned
+      ]);
       return { result };
     } catch (error) {
       console.error('SignalR Web: InvokeWithResult error:', error);
       throw error;
+    } finally {
+      clearTimeout(timer);
+      connection.pendingInvocations.delete(invocationId);
     }
   }
 
-  async on(options: { eventName: string }): Promise<void> {
+  async invokeBatch(options: HandleOptions & { calls: BatchCall[] }): Promise<{ results: BatchResult[] }> {
+    const results = await Promise.all(options.calls.map(async (call): Promise<BatchResult> => {
+      try {
+        if (call.expectResult) {
+          const { result } = await this.invokeWithResult({ ...call, handle: options.handle });
+          return { ok: true, result };
+        }
+        await this.invoke({ handle: options.handle, methodName: call.methodName, args: call.args });
+        return { ok: true };
+      } catch (error) {
+        return { ok: false, error: error?.message ?? String(error), code: error?.code };
+      }
+    }));
+    return { results };
+  }
+
+  async invalidateCache(_options?: HandleOptions & { methodName?: string }): Promise<void> {
+    // Results are never cached on web, so there is nothing to drop
+  }
+
+  async releasePayloadFile(_options: HandleOptions & { fileId: string }): Promise<{ released: boolean }> {
+    // Payloads are always delivered inline on web
+    return { released: false };
+  }
+
+  async cancelInvocation(options: HandleOptions & { invocationId: string }): Promise<{ canceled: boolean }> {
+    const connection = this.getConnection(options.handle);
+    const reject = connection?.pendingInvocations.get(options.invocationId);
+    if (!connection || !reject) {
+      return { canceled: false };
+    }
+    connection.pendingInvocations.delete(options.invocationId);
+    reject(this.invocationError('CANCELED', 'Invocation was canceled'));
+    return { canceled: true };
+  }
+
+  private invocationCounter = 0;
+
+  private invocationError(code: string, message: string): Error {
+    return Object.assign(new Error(message), { code });
+  }
+
+  private streamCounter = 0;
+
+  private getConnectedHub(handle?: string): { connection: WebConnection; hubConnection: signalR.HubConnection } {
+    const connection = this.getConnection(handle);
+    if (!connection?.hubConnection || connection.connectionState !== ConnectionState.CONNECTED) {
+      throw new Error('Not connected to SignalR hub');
+    }
+    return { connection, hubConnection: connection.hubConnection };
+  }
+
+  // Items are handed over as they arrive; there is no bridge to protect on web, so the window is not enforced
+  async stream(options: StreamOptions): Promise<{ streamId: string }> {
+    const { connection, hubConnection } = this.getConnectedHub(options.handle);
+    const streamId = options.streamId || `stream-${++this.streamCounter}`;
+
+    const subscription = hubConnection.stream(options.methodName, ...(options.args || [])).subscribe({
+      next: (item) => this.notifyListeners('onStreamItems', { handle: connection.handle, streamId, items: [item] }),
+      error: (error) => {
+        connection.streams.delete(streamId);
+        this.notifyListeners('onStreamComplete', { handle: connection.handle, streamId, error: error?.message });
+      },
+      complete: () => {
+        connection.streams.delete(streamId);
+        this.notifyListeners('onStreamComplete', { handle: connection.handle, streamId });
+      }
+    });
+    connection.streams.set(streamId, subscription);
+    return { streamId };
+  }
+
+  async streamRequest(_options: HandleOptions & { streamId: string; count: number }): Promise<void> {
+    // Nothing to do, web streams are not flow controlled
+  }
+
+  async cancelStream(options: HandleOptions & { streamId: string }): Promise<void> {
+    const connection = this.getConnection(options.handle);
+    const subscription = connection?.streams.get(options.streamId);
+    if (connection && subscription) {
+      subscription.dispose();
+      connection.streams.delete(options.streamId);
+    }
+  }
+
+  async startUpload(options: UploadOptions): Promise<{ streamId: string }> {
+    const { connection, hubConnection } = this.getConnectedHub(options.handle);
+    const streamId = options.streamId || `upload-${++this.streamCounter}`;
+
+    const subject = new signalR.Subject<any>();
+    const args = [...(options.args || []), subject];
+    const result = options.expectResult
+      ? hubConnection.invoke(options.methodName, ...args)
+      : hubConnection.send(options.methodName, ...args).then(() => undefined);
+    // Failures surface through completeUpload()
+    result.catch(() => undefined);
+
+    connection.uploads.set(streamId, { subject, result });
+    return { streamId };
+  }
+
+  async uploadChunks(options: HandleOptions & { streamId: string; chunks: any[] }): Promise<void> {
+    const upload = this.getConnection(options.handle)?.uploads.get(options.streamId);
+    if (!upload) {
+      throw new Error(`Unknown upload: ${options.streamId}`);
+    }
+    options.chunks.forEach(chunk => upload.subject.next(chunk));
+  }
+
+  async completeUpload<T = any>(options: HandleOptions & { streamId: string; error?: string }): Promise<{ result?: T }> {
+    const connection = this.getConnection(options.handle);
+    const upload = connection?.uploads.get(options.streamId);
+    if (!connection || !upload) {
+      throw new Error(`Unknown upload: ${options.streamId}`);
+    }
+    connection.uploads.delete(options.streamId);
+
+    if (options.error) {
+      upload.subject.error(new Error(options.error));
+    } else {
+      upload.subject.complete();
+    }
+    const result = await upload.result;
+    return { result };
+  }
+
+  // Argument types only matter natively, the JS client already decodes every argument
+  async on(options: SubscribeOptions): Promise<SubscriptionInfo> {
     console.log('SignalR Web: on() called for event:', options.eventName);
     
-    if (!this.hubConnection) {
+    const connection = this.getConnection(options.handle);
+    const hubConnection = connection?.hubConnection;
+    if (!connection || !hubConnection) {
       throw new Error('Hub connection not initialized');
     }
 
-    // Remove existing handler if any
-    if (this.eventHandlers.has(options.eventName)) {
-      this.hubConnection.off(options.eventName, this.eventHandlers.get(options.eventName)!);
+    const subscriptionId = `subscription-${++this.subscriptionCounter}`;
+
+    // Later subscribers share the handler registered by the first one
+    const existing = connection.eventHandlers.get(options.eventName);
+    if (existing) {
+      existing.subscribers.push(subscriptionId);
+      return { subscriptionId, subscribers: existing.subscribers.length };
     }
 
     // Create new handler
     const handler = (...args: any[]) => {
       const event: SignalREvent = { 
+        handle: connection.handle,
         eventName: options.eventName, 
         data: args.length === 1 ? args[0] : args 
       };
-      this.notifyListeners('onReceive', event);
+      this.emitEvent(connection, event);
     };
 
     // Register handler
-    this.eventHandlers.set(options.eventName, handler);
-    this.hubConnection.on(options.eventName, handler);
+    connection.eventHandlers.set(options.eventName, { handler, subscribers: [subscriptionId] });
+    hubConnection.on(options.eventName, handler);
+    return { subscriptionId, subscribers: 1 };
   }
 
-  async off(options: { eventName: string }): Promise<void> {
+  async off(options: UnsubscribeOptions): Promise<{ subscribers: number }> {
     console.log('SignalR Web: off() called for event:', options.eventName);
     
-    if (!this.hubConnection) {
+    const connection = this.getConnection(options.handle);
+    if (!connection?.hubConnection) {
       throw new Error('Hub connection not initialized');
     }
 
-    const handler = this.eventHandlers.get(options.eventName);
-    if (handler) {
-      this.hubConnection.off(options.eventName, handler);
-      this.eventHandlers.delete(options.eventName);
+    const entry = connection.eventHandlers.get(options.eventName);
+    if (!entry) {
+      return { subscribers: 0 };
     }
+
+    if (options.subscriptionId === undefined) {
+      entry.subscribers.pop();
+    } else {
+      const index = entry.subscribers.indexOf(options.subscriptionId);
+      if (index >= 0) {
+        entry.subscribers.splice(index, 1);
+      }
+    }
+
+    // The handler only goes away with the last subscriber
+    if (entry.subscribers.length === 0) {
+      connection.hubConnection.off(options.eventName, entry.handler);
+      connection.eventHandlers.delete(options.eventName);
+    }
+    return { subscribers: entry.subscribers.length };
   }
 
+  private subscriptionCounter = 0;
+
   // For testing purposes, we can simulate receiving events
-  simulateReceiveEvent(eventName: string, data?: any): void {
-    const event: SignalREvent = { eventName, data };
+  simulateReceiveEvent(eventName: string, data?: any, handle: string = DEFAULT_HANDLE): void {
+    const event: SignalREvent = { handle, eventName, data };
     this.notifyListeners('onReceive', event);
   }
 }